@@ -0,0 +1,293 @@
+package com.school.autocomplete;
+
+import com.school.entity.Student;
+import com.school.entity.Teacher;
+import com.school.event.RemoteChangesEvent;
+import com.school.event.StudentChangedEvent;
+import com.school.event.StudentsArchivedEvent;
+import com.school.event.TeacherChangedEvent;
+import com.school.repo.StudentRepo;
+import com.school.repo.TeacherRepo;
+import com.school.shard.ShardContext;
+import com.school.shard.ShardDirectory;
+import com.school.roster.LongObjectMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// In-memory type-ahead over the first names, last names and emails of students and teachers.
+// Keys are case- and accent-folded. Built at startup by streaming both tables, then kept current from the
+// change events StudentService and TeacherService publish after commit. Those only cover this node's writes, so it
+// is rebuilt when RosterChangeStamp sees changes made elsewhere; the current index serves until the new one is built.
+@Component
+public class AutocompleteIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(AutocompleteIndex.class);
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    @Autowired
+    private StudentRepo studentRepository;
+
+    @Autowired
+    private TeacherRepo teacherRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Value("${school.autocomplete.enabled:true}")
+    private boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Index index = new Index();
+
+    // Changes seen while a new index is being built; replayed onto it before it replaces the current one
+    private List<Consumer<Index>> changesDuringBuild;
+
+    private volatile boolean ready;
+
+    // Held while an index is being built, so a rebuild never starts while another one runs
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled || !building.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buildIndex();
+        } finally {
+            building.set(false);
+        }
+    }
+
+    // Writes by other nodes never reach the change listeners below
+    @EventListener
+    public void onRemoteChanges(RemoteChangesEvent event) {
+        build();
+    }
+
+    private void buildIndex() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            changesDuringBuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Index built = new Index();
+        try {
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            for (String shard : shardDirectory.getShardNames()) {
+                ShardContext.run(null, shard, () -> readOnly.executeWithoutResult(status -> {
+                    try (Stream<Object[]> rows = studentRepository.streamNameColumns()) {
+                        rows.forEach(row -> built.put(PersonType.STUDENT, (Long) row[0], (String) row[1],
+                                (String) row[2], (String) row[3]));
+                    }
+                    try (Stream<Object[]> rows = teacherRepository.streamNameColumns()) {
+                        rows.forEach(row -> built.put(PersonType.TEACHER, (Long) row[0], (String) row[1],
+                                (String) row[2], (String) row[3]));
+                    }
+                }));
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringBuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("Autocomplete index build failed", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Consumer<Index> change : changesDuringBuild) {
+                change.accept(built);
+            }
+            changesDuringBuild = null;
+            index = built;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Autocomplete index loaded {} people in {} ms", built.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Up to limit people of the given type (or both when null) with a name or email starting with text
+    public List<AutocompleteMatch> complete(String text, PersonType type, int limit) {
+        String prefix = fold(text.trim());
+        List<AutocompleteMatch> matches = new ArrayList<>(limit);
+        if (prefix.isEmpty()) {
+            return matches;
+        }
+        lock.readLock().lock();
+        try {
+            index.complete(prefix, type, limit, matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return matches;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentChanged(StudentChangedEvent event) {
+        Student student = event.getStudent();
+        if (event.isDeleted()) {
+            apply(target -> target.remove(PersonType.STUDENT, student.getId()));
+        } else {
+            String firstName = student.getFirstName();
+            String lastName = student.getLastName();
+            String email = student.getEmail();
+            apply(target -> target.put(PersonType.STUDENT, student.getId(), firstName, lastName, email));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentsArchived(StudentsArchivedEvent event) {
+        apply(target -> {
+            for (Long studentId : event.getStudentIds()) {
+                target.remove(PersonType.STUDENT, studentId);
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeacherChanged(TeacherChangedEvent event) {
+        Teacher teacher = event.getTeacher();
+        if (event.isDeleted()) {
+            apply(target -> target.remove(PersonType.TEACHER, teacher.getId()));
+        } else {
+            String firstName = teacher.getFirstName();
+            String lastName = teacher.getLastName();
+            String email = teacher.getEmail();
+            apply(target -> target.put(PersonType.TEACHER, teacher.getId(), firstName, lastName, email));
+        }
+    }
+
+    // For the memory benchmark, which fills an index without a database
+    void put(PersonType type, long id, String firstName, String lastName, String email) {
+        apply(target -> target.put(type, id, firstName, lastName, email));
+    }
+
+    private void apply(Consumer<Index> change) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (changesDuringBuild != null) {
+                changesDuringBuild.add(change);
+            }
+            change.accept(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static String fold(String value) {
+        String folded = value.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < folded.length(); i++) {
+            if (folded.charAt(i) > 0x7f) {
+                return COMBINING_MARKS.matcher(Normalizer.normalize(folded, Normalizer.Form.NFD)).replaceAll("");
+            }
+        }
+        return folded;
+    }
+
+    private static long ref(PersonType type, long id) {
+        return id << 1 | type.ordinal();
+    }
+
+    // The trie plus the names it was built from, needed to display matches and to drop old keys on updates
+    private static final class Index {
+
+        private final PrefixTrie trie = new PrefixTrie();
+        private final LongObjectMap<String[]> people = new LongObjectMap<>();
+
+        void put(PersonType type, long id, String firstName, String lastName, String email) {
+            long ref = ref(type, id);
+            String[] previous = people.get(ref);
+            if (previous != null) {
+                removeKeys(previous, ref);
+            }
+            String[] person = {firstName, lastName, email};
+            for (String value : person) {
+                if (value != null) {
+                    trie.add(fold(value), ref);
+                }
+            }
+            people.put(ref, person);
+        }
+
+        void remove(PersonType type, long id) {
+            long ref = ref(type, id);
+            String[] previous = people.remove(ref);
+            if (previous != null) {
+                removeKeys(previous, ref);
+            }
+        }
+
+        private void removeKeys(String[] person, long ref) {
+            for (String value : person) {
+                if (value != null) {
+                    trie.remove(fold(value), ref);
+                }
+            }
+        }
+
+        void complete(String prefix, PersonType type, int limit, List<AutocompleteMatch> matches) {
+            long[] seen = new long[limit];
+            int[] count = {0};
+            trie.visit(prefix, ref -> {
+                if (type != null && (ref & 1) != type.ordinal()) {
+                    return true;
+                }
+                // A person can match on more than one of their keys
+                for (int i = 0; i < count[0]; i++) {
+                    if (seen[i] == ref) {
+                        return true;
+                    }
+                }
+                seen[count[0]++] = ref;
+                String[] person = people.get(ref);
+                matches.add(new AutocompleteMatch(PersonType.values()[(int) (ref & 1)], ref >>> 1,
+                        person[0], person[1], person[2]));
+                return count[0] < limit;
+            });
+        }
+
+        int size() {
+            return people.size();
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.school.autocomplete;
+
+// A student or teacher whose first name, last name or email starts with the typed text
+public record AutocompleteMatch(PersonType type, Long id, String firstName, String lastName, String email) {
+}
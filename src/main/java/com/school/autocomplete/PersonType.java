@@ -0,0 +1,6 @@
+package com.school.autocomplete;
+
+public enum PersonType {
+    STUDENT,
+    TEACHER
+}
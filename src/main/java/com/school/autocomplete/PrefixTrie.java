@@ -0,0 +1,193 @@
+package com.school.autocomplete;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+// Compressed (radix) trie from keys to sorted sets of long references.
+// Each edge holds a run of characters, so memory grows with the number of distinct keys rather than their length.
+// Completions are visited depth-first in key order: the exact key first, then longer keys alphabetically.
+// Not thread-safe; AutocompleteIndex guards it with a read/write lock.
+class PrefixTrie {
+
+    private static final long[] NO_REFS = new long[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root = new Node("");
+
+    void add(String key, long ref) {
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            int index = childIndex(node, key.charAt(position));
+            if (index < 0) {
+                Node child = new Node(key.substring(position));
+                child.addRef(ref);
+                node.children = insert(node.children, -index - 1, child);
+                return;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, position);
+            if (common < child.label.length()) {
+                // Split the edge where the key leaves it
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children = new Node[]{child};
+                node.children[index] = middle;
+                child = middle;
+            }
+            node = child;
+            position += common;
+        }
+        node.addRef(ref);
+    }
+
+    void remove(String key, long ref) {
+        remove(root, key, 0, ref);
+    }
+
+    // Whether the node is left empty and can be dropped by its parent
+    private boolean remove(Node node, String key, int position, long ref) {
+        if (position == key.length()) {
+            node.removeRef(ref);
+        } else {
+            int index = childIndex(node, key.charAt(position));
+            if (index < 0) {
+                return false;
+            }
+            Node child = node.children[index];
+            if (!key.startsWith(child.label, position)) {
+                return false;
+            }
+            if (remove(child, key, position + child.label.length(), ref)) {
+                node.children = delete(node.children, index);
+            } else if (child.refCount == 0 && child.children.length == 1) {
+                // A node with no refs and one child is merged into that child
+                Node grandchild = child.children[0];
+                grandchild.label = child.label + grandchild.label;
+                node.children[index] = grandchild;
+            }
+        }
+        return node != root && node.refCount == 0 && node.children.length == 0;
+    }
+
+    // Visit the refs of every key starting with prefix, in key order, until the visitor returns false
+    void visit(String prefix, LongPredicate visitor) {
+        Node node = root;
+        int position = 0;
+        while (position < prefix.length()) {
+            int index = childIndex(node, prefix.charAt(position));
+            if (index < 0) {
+                return;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, prefix, position);
+            if (position + common < prefix.length() && common < child.label.length()) {
+                return;
+            }
+            node = child;
+            position += common;
+        }
+        visit(node, visitor);
+    }
+
+    private static boolean visit(Node node, LongPredicate visitor) {
+        for (int i = 0; i < node.refCount; i++) {
+            if (!visitor.test(node.refs[i])) {
+                return false;
+            }
+        }
+        for (Node child : node.children) {
+            if (!visit(child, visitor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int childIndex(Node node, char first) {
+        Node[] children = node.children;
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char c = children[middle].label.charAt(0);
+            if (c < first) {
+                low = middle + 1;
+            } else if (c > first) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int commonPrefix(String label, String key, int position) {
+        int max = Math.min(label.length(), key.length() - position);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(position + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static Node[] insert(Node[] children, int index, Node child) {
+        Node[] updated = new Node[children.length + 1];
+        System.arraycopy(children, 0, updated, 0, index);
+        updated[index] = child;
+        System.arraycopy(children, index, updated, index + 1, children.length - index);
+        return updated;
+    }
+
+    private static Node[] delete(Node[] children, int index) {
+        if (children.length == 1) {
+            return NO_CHILDREN;
+        }
+        Node[] updated = new Node[children.length - 1];
+        System.arraycopy(children, 0, updated, 0, index);
+        System.arraycopy(children, index + 1, updated, index, children.length - index - 1);
+        return updated;
+    }
+
+    private static final class Node {
+
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        // Sorted; only the first refCount entries are in use
+        private long[] refs = NO_REFS;
+        private int refCount;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private void addRef(long ref) {
+            int index = refCount > 0 && ref > refs[refCount - 1]
+                    ? -(refCount + 1)
+                    : Arrays.binarySearch(refs, 0, refCount, ref);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (refCount == refs.length) {
+                // Grow by half so keys shared by many people are not copied on every add
+                refs = Arrays.copyOf(refs, refCount < 4 ? refCount + 1 : refCount + (refCount >> 1));
+            }
+            System.arraycopy(refs, index, refs, index + 1, refCount - index);
+            refs[index] = ref;
+            refCount++;
+        }
+
+        private void removeRef(long ref) {
+            int index = Arrays.binarySearch(refs, 0, refCount, ref);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(refs, index + 1, refs, index, refCount - index - 1);
+            refCount--;
+            if (refCount == 0) {
+                refs = NO_REFS;
+            }
+        }
+    }
+}
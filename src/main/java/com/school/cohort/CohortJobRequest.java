@@ -0,0 +1,60 @@
+package com.school.cohort;
+
+// Body of POST /cohort-jobs
+public class CohortJobRequest {
+
+    private CohortJobType type;
+    private String fromGrade;
+    private String toGrade;
+    private Long fromTeacherId;
+    private Long teacherId;
+    private Integer chunkSize;
+
+    public CohortJobType getType() {
+        return type;
+    }
+
+    public void setType(CohortJobType type) {
+        this.type = type;
+    }
+
+    public String getFromGrade() {
+        return fromGrade;
+    }
+
+    public void setFromGrade(String fromGrade) {
+        this.fromGrade = fromGrade;
+    }
+
+    public String getToGrade() {
+        return toGrade;
+    }
+
+    public void setToGrade(String toGrade) {
+        this.toGrade = toGrade;
+    }
+
+    public Long getFromTeacherId() {
+        return fromTeacherId;
+    }
+
+    public void setFromTeacherId(Long fromTeacherId) {
+        this.fromTeacherId = fromTeacherId;
+    }
+
+    public Long getTeacherId() {
+        return teacherId;
+    }
+
+    public void setTeacherId(Long teacherId) {
+        this.teacherId = teacherId;
+    }
+
+    public Integer getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+}
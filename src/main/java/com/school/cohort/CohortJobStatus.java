@@ -0,0 +1,8 @@
+package com.school.cohort;
+
+public enum CohortJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,13 @@
+package com.school.cohort;
+
+public enum CohortJobType {
+
+    // Move every student of fromGrade to toGrade
+    PROMOTE,
+
+    // Move every student of fromGrade to the graduated grade and unassign their teacher
+    GRADUATE,
+
+    // Assign every student of fromGrade (optionally only those of fromTeacherId) to teacherId
+    REASSIGN_TEACHER
+}
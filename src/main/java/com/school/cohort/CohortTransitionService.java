@@ -0,0 +1,282 @@
+package com.school.cohort;
+
+import com.school.dictionary.DictionaryCategory;
+import com.school.dictionary.ValueDictionary;
+import com.school.entity.CohortJob;
+import com.school.entity.Teacher;
+import com.school.event.StudentsUpdatedEvent;
+import com.school.repo.CohortJobRepo;
+import com.school.repo.StudentRepo;
+import com.school.repo.TeacherRepo;
+import com.school.shard.ShardContext;
+import com.school.shard.ShardDirectory;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Applies cohort transitions (promote a grade, graduate a grade, reassign a grade's teacher) as set-based updates.
+// A job walks the cohort by student id in chunks; each chunk is one short transaction that locks the job row,
+// updates up to chunkSize students by id and advances the job's checkpoint. A crash loses at most the chunk in
+// flight, and jobs left PENDING or RUNNING are picked up again at startup. With shards a job runs on the shard of
+// the school it was submitted for, where its row is stored next to the students it updates.
+@Service
+public class CohortTransitionService {
+
+    private static final Logger log = LoggerFactory.getLogger(CohortTransitionService.class);
+
+    @Autowired
+    private CohortJobRepo cohortJobRepository;
+
+    @Autowired
+    private StudentRepo studentRepository;
+
+    @Autowired
+    private TeacherRepo teacherRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ValueDictionary valueDictionary;
+
+    @Value("${school.cohort.chunk-size:500}")
+    private int defaultChunkSize;
+
+    @Value("${school.cohort.max-chunk-size:5000}")
+    private int maxChunkSize;
+
+    // Pause between chunks so other transactions and replicas keep up
+    @Value("${school.cohort.chunk-pause:50ms}")
+    private Duration chunkPause;
+
+    @Value("${school.cohort.graduated-grade:Graduated}")
+    private String graduatedGrade;
+
+    // Jobs run one at a time, in the order they were submitted
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cohort-jobs");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Validate and store a job, then start it in the background
+    public CohortJob submit(CohortJobRequest request) {
+        CohortJob job = new CohortJob();
+        job.setType(request.getType());
+        job.setFromGrade(request.getFromGrade());
+        job.setToGrade(request.getToGrade());
+        job.setFromTeacherId(request.getFromTeacherId());
+        job.setTeacherId(request.getTeacherId());
+        job.setChunkSize(request.getChunkSize() != null ? request.getChunkSize() : defaultChunkSize);
+        job.setSchoolCode(shardDirectory.currentSchool());
+        validate(job);
+        shardDirectory.checkNotMoving(job.getSchoolCode());
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CohortJob saved = transaction.execute(status -> {
+            checkNotChained(job);
+            // The chunks set the grade with bulk updates, which only encode values already in the dictionary
+            valueDictionary.register(DictionaryCategory.GRADE_LEVEL, job.getToGrade());
+            job.setStatus(CohortJobStatus.PENDING);
+            job.setTotalCount(studentRepository.countCohort(job.getFromGrade(), job.getFromTeacherId()));
+            job.setCreatedAt(Instant.now());
+            job.setUpdatedAt(job.getCreatedAt());
+            return cohortJobRepository.save(job);
+        });
+        start(saved.getId());
+        return saved;
+    }
+
+    public Optional<CohortJob> getJob(Long id) {
+        return cohortJobRepository.findById(id);
+    }
+
+    public List<CohortJob> getAllJobs() {
+        return cohortJobRepository.findAll();
+    }
+
+    // Restart a failed job from its checkpoint
+    public CohortJob resume(Long id) {
+        CohortJob job = cohortJobRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Cohort job not found with id: " + id));
+        if (job.getStatus() != CohortJobStatus.FAILED) {
+            throw new RuntimeException("Only failed jobs can be resumed, job " + id + " is " + job.getStatus());
+        }
+        start(id);
+        return job;
+    }
+
+    // Pick up jobs that were pending or running when the application last stopped
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        for (String shard : shardDirectory.getShardNames()) {
+            List<CohortJob> unfinished = ShardContext.call(null, shard, () -> cohortJobRepository
+                    .findByStatusInOrderById(EnumSet.of(CohortJobStatus.PENDING, CohortJobStatus.RUNNING)));
+            for (CohortJob job : unfinished) {
+                log.info("Resuming cohort job {} of shard {} after student id {}", job.getId(), shard,
+                        job.getLastStudentId());
+                ShardContext.run(job.getSchoolCode(), shard, () -> start(job.getId()));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Run a job of the current shard on the executor, in that shard
+    private void start(Long jobId) {
+        String school = ShardContext.currentSchool();
+        String shard = ShardContext.currentShard();
+        executor.execute(() -> ShardContext.run(school, shard, () -> run(jobId)));
+    }
+
+    private void run(Long jobId) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try {
+            while (true) {
+                Boolean more = transaction.execute(status -> applyChunk(jobId));
+                if (!Boolean.TRUE.equals(more)) {
+                    break;
+                }
+                if (!chunkPause.isZero()) {
+                    Thread.sleep(chunkPause.toMillis());
+                }
+            }
+        } catch (InterruptedException e) {
+            // Shutting down; the job stays RUNNING and resumes at the next start
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Cohort job {} failed", jobId, e);
+            transaction.executeWithoutResult(status -> cohortJobRepository.findById(jobId).ifPresent(job -> {
+                job.setStatus(CohortJobStatus.FAILED);
+                String message = String.valueOf(e.getMessage());
+                job.setErrorMessage(message.length() > 1000 ? message.substring(0, 1000) : message);
+                job.setUpdatedAt(Instant.now());
+            }));
+        }
+    }
+
+    // Apply one chunk and advance the checkpoint; returns whether the job has more to do
+    private boolean applyChunk(Long jobId) {
+        CohortJob job = cohortJobRepository.findByIdForUpdate(jobId)
+                .orElseThrow(() -> new RuntimeException("Cohort job not found with id: " + jobId));
+        if (job.getStatus() == CohortJobStatus.COMPLETED) {
+            return false;
+        }
+        // Fails the job while its school is moved; it can be resumed afterwards
+        shardDirectory.checkNotMoving(job.getSchoolCode());
+
+        List<Long> ids = studentRepository.findCohortIdsAfter(job.getFromGrade(), job.getFromTeacherId(),
+                job.getLastStudentId(), Limit.of(job.getChunkSize()));
+        job.setUpdatedAt(Instant.now());
+        job.setErrorMessage(null);
+        if (ids.isEmpty()) {
+            job.setStatus(CohortJobStatus.COMPLETED);
+            log.info("Cohort job {} completed, {} students updated", jobId, job.getProcessedCount());
+            return false;
+        }
+
+        switch (job.getType()) {
+            case PROMOTE -> studentRepository.updateGradeLevel(ids, job.getToGrade());
+            case GRADUATE ->
+                    studentRepository.updateGradeLevelAndClearTeacher(ids, job.getToGrade(), LocalDate.now());
+            case REASSIGN_TEACHER -> {
+                Teacher teacher = teacherRepository.getReferenceById(job.getTeacherId());
+                studentRepository.updateTeacher(ids, teacher);
+            }
+        }
+        job.setStatus(CohortJobStatus.RUNNING);
+        job.setLastStudentId(ids.get(ids.size() - 1));
+        job.setProcessedCount(job.getProcessedCount() + ids.size());
+        eventPublisher.publishEvent(new StudentsUpdatedEvent(ids));
+        return true;
+    }
+
+    // Jobs run one after another and each one moves whoever is in its fromGrade when it gets there, so a job taking
+    // students out of a grade that an earlier unfinished job fills (9->10 then 10->11) would move the same students
+    // twice. Such transitions have to be submitted top-down (10->11 first). Failed jobs count as unfinished, as they
+    // can be resumed after any later job.
+    private void checkNotChained(CohortJob job) {
+        List<CohortJob> unfinished = cohortJobRepository.findByStatusInOrderById(
+                EnumSet.of(CohortJobStatus.PENDING, CohortJobStatus.RUNNING, CohortJobStatus.FAILED));
+        for (CohortJob other : unfinished) {
+            if (!Objects.equals(other.getSchoolCode(), job.getSchoolCode())) {
+                continue;
+            }
+            if (job.getFromGrade().equals(other.getToGrade())) {
+                throw new RuntimeException("Cohort job " + other.getId() + " is still moving students into grade "
+                        + other.getToGrade() + "; submit transitions top-down or wait for it to complete");
+            }
+            if (other.getStatus() == CohortJobStatus.FAILED && other.getFromGrade().equals(job.getToGrade())) {
+                throw new RuntimeException("Failed cohort job " + other.getId() + " would move students out of grade "
+                        + job.getToGrade() + " when resumed; resume it first");
+            }
+        }
+    }
+
+    private void validate(CohortJob job) {
+        if (job.getType() == null) {
+            throw new RuntimeException("type is required");
+        }
+        if (job.getChunkSize() < 1 || job.getChunkSize() > maxChunkSize) {
+            throw new RuntimeException("chunkSize must be between 1 and " + maxChunkSize);
+        }
+        switch (job.getType()) {
+            case PROMOTE -> {
+                if (job.getFromGrade() == null || job.getToGrade() == null) {
+                    throw new RuntimeException("fromGrade and toGrade are required to promote");
+                }
+                if (job.getFromGrade().equals(job.getToGrade())) {
+                    throw new RuntimeException("fromGrade and toGrade must differ");
+                }
+            }
+            case GRADUATE -> {
+                if (job.getFromGrade() == null) {
+                    job.setFromGrade("12");
+                }
+                job.setToGrade(graduatedGrade);
+            }
+            case REASSIGN_TEACHER -> {
+                if (job.getFromGrade() == null || job.getTeacherId() == null) {
+                    throw new RuntimeException("fromGrade and teacherId are required to reassign a teacher");
+                }
+                Teacher teacher = teacherRepository.findById(job.getTeacherId())
+                        .orElseThrow(() -> new RuntimeException("Teacher not found with id: " + job.getTeacherId()));
+                // Teachers and students of a school share its shard; teachers without a school are the default's
+                String teacherSchool = teacher.getSchoolCode() != null ? teacher.getSchoolCode()
+                        : shardDirectory.getDefaultSchool();
+                if (!teacherSchool.equals(job.getSchoolCode())) {
+                    throw new RuntimeException("Teacher " + job.getTeacherId() + " is not a teacher of school " +
+                            job.getSchoolCode());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.school.controller;
+
+import com.school.autocomplete.AutocompleteIndex;
+import com.school.autocomplete.AutocompleteMatch;
+import com.school.autocomplete.PersonType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("autocomplete")
+public class AutocompleteController {
+
+    @Autowired
+    private AutocompleteIndex autocompleteIndex;
+
+    // Students and teachers whose first name, last name or email starts with q,
+    // e.g. /autocomplete?q=smi&type=STUDENT&limit=10
+    @GetMapping
+    public ResponseEntity<?> complete(@RequestParam String q,
+                                      @RequestParam(required = false) PersonType type,
+                                      @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > 50) {
+            return new ResponseEntity<>("limit must be between 1 and 50", HttpStatus.BAD_REQUEST);
+        }
+        if (!autocompleteIndex.isReady()) {
+            return new ResponseEntity<>("Autocomplete index is loading", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        List<AutocompleteMatch> matches = autocompleteIndex.complete(q, type, limit);
+        return new ResponseEntity<>(matches, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,56 @@
+package com.school.controller;
+
+import com.school.cohort.CohortJobRequest;
+import com.school.cohort.CohortTransitionService;
+import com.school.entity.CohortJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("cohort-jobs")
+public class CohortJobController {
+
+    @Autowired
+    private CohortTransitionService cohortTransitionService;
+
+    // Start a cohort transition, e.g. {"type":"PROMOTE","fromGrade":"9","toGrade":"10"}.
+    // Returns at once with the job; poll GET /cohort-jobs/{id} for progress.
+    @PostMapping
+    public ResponseEntity<?> submitJob(@RequestBody CohortJobRequest request) {
+        try {
+            CohortJob job = cohortTransitionService.submit(request);
+            return new ResponseEntity<>(job, HttpStatus.ACCEPTED);
+        } catch (RuntimeException e) {
+            DatabaseExceptionHandler.rethrowIfUnavailable(e);
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<List<CohortJob>> getAllJobs() {
+        return new ResponseEntity<>(cohortTransitionService.getAllJobs(), HttpStatus.OK);
+    }
+
+    @GetMapping("{id}")
+    public ResponseEntity<CohortJob> getJob(@PathVariable Long id) {
+        Optional<CohortJob> job = cohortTransitionService.getJob(id);
+        return job.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    // Continue a failed job from its last committed chunk
+    @PostMapping("{id}/resume")
+    public ResponseEntity<?> resumeJob(@PathVariable Long id) {
+        try {
+            return new ResponseEntity<>(cohortTransitionService.resume(id), HttpStatus.ACCEPTED);
+        } catch (RuntimeException e) {
+            DatabaseExceptionHandler.rethrowIfUnavailable(e);
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+}
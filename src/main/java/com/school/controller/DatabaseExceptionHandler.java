@@ -0,0 +1,37 @@
+package com.school.controller;
+
+import com.school.db.CircuitBreakerProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+// Turns database timeouts and an open circuit breaker into 503 responses instead of 500s. Controllers that answer
+// their own RuntimeExceptions with a 4xx pass these on through rethrowIfUnavailable
+@RestControllerAdvice
+public class DatabaseExceptionHandler {
+
+    @Autowired
+    private CircuitBreakerProperties circuitBreakerProperties;
+
+    @ExceptionHandler({QueryTimeoutException.class, TransientDataAccessResourceException.class,
+            CannotCreateTransactionException.class})
+    public ResponseEntity<String> handleDatabaseUnavailable(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(circuitBreakerProperties.getOpenDuration().toSeconds()))
+                .body("Database is temporarily unavailable, please retry later");
+    }
+
+    // Rethrows the exceptions answered here, so a catch (RuntimeException) does not turn them into a 4xx
+    static void rethrowIfUnavailable(RuntimeException e) {
+        if (e instanceof QueryTimeoutException || e instanceof TransientDataAccessResourceException
+                || e instanceof CannotCreateTransactionException) {
+            throw e;
+        }
+    }
+}
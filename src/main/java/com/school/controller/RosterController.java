@@ -0,0 +1,51 @@
+package com.school.controller;
+
+import com.school.roster.RosterConsistencyChecker;
+import com.school.roster.RosterConsistencyReport;
+import com.school.roster.RosterReadModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("roster")
+public class RosterController {
+
+    @Autowired
+    private RosterReadModel rosterReadModel;
+
+    @Autowired
+    private RosterConsistencyChecker consistencyChecker;
+
+    // Compare the in-memory roster with the database
+    @GetMapping("/consistency")
+    public ResponseEntity<?> checkConsistency() {
+        try {
+            RosterConsistencyReport report = consistencyChecker.check(false);
+            return new ResponseEntity<>(report, HttpStatus.OK);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    // Compare the in-memory roster with the database and repair any differences
+    @PostMapping("/reconcile")
+    public ResponseEntity<?> reconcile() {
+        try {
+            RosterConsistencyReport report = consistencyChecker.check(true);
+            return new ResponseEntity<>(report, HttpStatus.OK);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    // Reload the in-memory roster from the database
+    @PostMapping("/reload")
+    public ResponseEntity<String> reload() {
+        if (!rosterReadModel.bootstrap()) {
+            return new ResponseEntity<>("Roster is already loading", HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>("Roster reloaded", HttpStatus.OK);
+    }
+}
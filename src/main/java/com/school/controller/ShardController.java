@@ -0,0 +1,46 @@
+package com.school.controller;
+
+import com.school.shard.ShardDirectory;
+import com.school.shard.ShardRebalancer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("shards")
+public class ShardController {
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+
+    // Shards, the schools assigned to them and their row counts
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getShards() {
+        Map<String, Object> overview = new LinkedHashMap<>();
+        overview.put("defaultSchool", shardDirectory.getDefaultSchool());
+        overview.put("schools", shardDirectory.getAssignments());
+        overview.put("rows", shardRebalancer.countRows());
+        return new ResponseEntity<>(overview, HttpStatus.OK);
+    }
+
+    // Move a school's rows to another shard, e.g. POST /shards/schools/NTH/move?to=north.
+    // Writes for the school are refused while it moves; returns once the move is done.
+    @PostMapping("schools/{school}/move")
+    public ResponseEntity<?> moveSchool(@PathVariable String school, @RequestParam String to) {
+        try {
+            return new ResponseEntity<>(shardRebalancer.move(school, to), HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        } catch (RuntimeException e) {
+            DatabaseExceptionHandler.rethrowIfUnavailable(e);
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+}
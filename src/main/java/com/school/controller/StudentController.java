@@ -1,15 +1,25 @@
 package com.school.controller;
 
 import com.school.entity.Student;
+import com.school.json.JsonStreamBody;
+import com.school.repo.StudentFilter;
+import com.school.service.StudentArchiveService;
 import com.school.service.StudentService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -19,6 +29,12 @@ public class StudentController {
     @Autowired
     private StudentService studentService;
 
+    @Autowired
+    private StudentArchiveService studentArchiveService;
+
+    @Value("${school.student.filter.max-page-size:500}")
+    private int filterMaxPageSize;
+
     // Create a new student
     @PostMapping
     public ResponseEntity<?> createStudent(@Valid @RequestBody Student student) {
@@ -26,27 +42,62 @@ public class StudentController {
             Student savedStudent = studentService.createStudent(student);
             return new ResponseEntity<>(savedStudent, HttpStatus.CREATED);
         } catch (RuntimeException e) {
+            DatabaseExceptionHandler.rethrowIfUnavailable(e);
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // Create several students at once; accepts JSON, CBOR or Smile
+    @PostMapping("/bulk")
+    public ResponseEntity<?> createStudents(@RequestBody List<@Valid Student> students) {
+        try {
+            List<Student> savedStudents = studentService.createStudents(students);
+            return new ResponseEntity<>(savedStudents, HttpStatus.CREATED);
+        } catch (RuntimeException e) {
+            DatabaseExceptionHandler.rethrowIfUnavailable(e);
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
     }
 
-    // Get all students
+    // Get all students, or only the fields listed in fields= (e.g. ?fields=id,firstName,lastName)
     @GetMapping
-    public ResponseEntity<List<Student>> getAllStudents() {
-        List<Student> students = studentService.getAllStudents();
+    public ResponseEntity<?> getAllStudents(@RequestParam(required = false) String fields) {
+        if (fields != null) {
+            try {
+                List<Map<String, Object>> students = studentService.getAllStudentFields(fields);
+                return new ResponseEntity<>(students, HttpStatus.OK);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+        }
+        // Rows are written to the response as they are read instead of being collected first
+        JsonStreamBody students = studentService::writeAllStudents;
         return new ResponseEntity<>(students, HttpStatus.OK);
     }
 
-    // Get all students with their teacher information
+    // Get all students with their teacher information. The teacher is not serialized (it is the back reference of
+    // Teacher.students), so this is the same body as GET /student and is streamed the same way.
     @GetMapping("/with-teacher")
-    public ResponseEntity<List<Student>> getAllStudentsWithTeacher() {
-        List<Student> students = studentService.getAllStudentsWithTeacher();
+    public ResponseEntity<JsonStreamBody> getAllStudentsWithTeacher() {
+        JsonStreamBody students = studentService::writeAllStudents;
         return new ResponseEntity<>(students, HttpStatus.OK);
     }
 
-    // Get student by ID
+    // Get student by ID, or only the fields listed in fields=
     @GetMapping("/{id}")
-    public ResponseEntity<?> getStudentById(@PathVariable Long id) {
+    public ResponseEntity<?> getStudentById(@PathVariable Long id, @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            Optional<Map<String, Object>> student;
+            try {
+                student = studentService.getStudentFieldsById(id, fields);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+            if (student.isPresent()) {
+                return new ResponseEntity<>(student.get(), HttpStatus.OK);
+            }
+            return new ResponseEntity<>("Student not found with id: " + id, HttpStatus.NOT_FOUND);
+        }
         Optional<Student> student = studentService.getStudentById(id);
         if (student.isPresent()) {
             return new ResponseEntity<>(student.get(), HttpStatus.OK);
@@ -123,6 +174,33 @@ public class StudentController {
         return new ResponseEntity<>(students, HttpStatus.OK);
     }
 
+    // Filter students by any combination of grade level, teacher, teacher subject or department,
+    // has-teacher, enrollment date range and name, e.g.
+    // /student/filter?gradeLevel=9&subject=Math&enrolledFrom=2026-01-01&name=smi&sort=lastName,asc&page=0&size=50
+    // Pages larger than school.student.filter.max-page-size are cut to it. The response has no total count, its
+    // page.hasNext says whether another page follows
+    @GetMapping("/filter")
+    public ResponseEntity<?> filterStudents(@ModelAttribute StudentFilter filter,
+                                            @PageableDefault(size = 50) Pageable pageable) {
+        try {
+            if (pageable.getPageSize() > filterMaxPageSize) {
+                pageable = PageRequest.of(pageable.getPageNumber(), filterMaxPageSize, pageable.getSort());
+            }
+            Slice<Student> students = studentService.filterStudents(filter, pageable);
+            Map<String, Object> page = new LinkedHashMap<>();
+            page.put("size", students.getSize());
+            page.put("number", students.getNumber());
+            page.put("hasNext", students.hasNext());
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("content", students.getContent());
+            body.put("page", page);
+            return new ResponseEntity<>(body, HttpStatus.OK);
+        } catch (RuntimeException e) {
+            DatabaseExceptionHandler.rethrowIfUnavailable(e);
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
     // Update student
     @PutMapping("/{id}")
     public ResponseEntity<?> updateStudent(@PathVariable Long id, @Valid @RequestBody Student studentDetails) {
@@ -130,6 +208,7 @@ public class StudentController {
             Student updatedStudent = studentService.updateStudent(id, studentDetails);
             return new ResponseEntity<>(updatedStudent, HttpStatus.OK);
         } catch (RuntimeException e) {
+            DatabaseExceptionHandler.rethrowIfUnavailable(e);
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
     }
@@ -141,6 +220,7 @@ public class StudentController {
             Student updatedStudent = studentService.assignTeacherToStudent(studentId, teacherId);
             return new ResponseEntity<>(updatedStudent, HttpStatus.OK);
         } catch (RuntimeException e) {
+            DatabaseExceptionHandler.rethrowIfUnavailable(e);
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
     }
@@ -152,6 +232,7 @@ public class StudentController {
             Student updatedStudent = studentService.removeTeacherFromStudent(studentId);
             return new ResponseEntity<>(updatedStudent, HttpStatus.OK);
         } catch (RuntimeException e) {
+            DatabaseExceptionHandler.rethrowIfUnavailable(e);
             return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
         }
     }
@@ -163,10 +244,23 @@ public class StudentController {
             studentService.deleteStudent(id);
             return new ResponseEntity<>("Student deleted successfully", HttpStatus.OK);
         } catch (RuntimeException e) {
+            DatabaseExceptionHandler.rethrowIfUnavailable(e);
             return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
         }
     }
 
+    // Move graduates past the retention period to the archive now instead of waiting for the nightly run
+    @PostMapping("/archive")
+    public ResponseEntity<?> archiveInactiveCohorts() {
+        try {
+            int archived = studentArchiveService.archiveInactiveCohorts();
+            return new ResponseEntity<>(archived, HttpStatus.OK);
+        } catch (RuntimeException e) {
+            DatabaseExceptionHandler.rethrowIfUnavailable(e);
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+
     // Check if student exists
     @GetMapping("/{id}/exists")
     public ResponseEntity<Boolean> checkStudentExists(@PathVariable Long id) {
@@ -1,6 +1,9 @@
 package com.school.controller;
 
 import com.school.entity.Teacher;
+import com.school.json.JsonStreamBody;
+import com.school.report.DepartmentWorkload;
+import com.school.report.TeacherWorkload;
 import com.school.service.TeacherService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +12,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -25,27 +29,60 @@ public class TeacherController {
             Teacher savedTeacher = teacherService.createTeacher(teacher);
             return new ResponseEntity<>(savedTeacher, HttpStatus.CREATED);
         } catch (RuntimeException e) {
+            DatabaseExceptionHandler.rethrowIfUnavailable(e);
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
     }
 
-    // Get all teachers
+    // Create several teachers at once; accepts JSON, CBOR or Smile
+    @PostMapping("/bulk")
+    public ResponseEntity<?> createTeachers(@RequestBody List<@Valid Teacher> teachers) {
+        try {
+            List<Teacher> savedTeachers = teacherService.createTeachers(teachers);
+            return new ResponseEntity<>(savedTeachers, HttpStatus.CREATED);
+        } catch (RuntimeException e) {
+            DatabaseExceptionHandler.rethrowIfUnavailable(e);
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // Get all teachers, or only the fields listed in fields= (e.g. ?fields=id,firstName,lastName)
     @GetMapping
-    public ResponseEntity<List<Teacher>> getAllTeachers() {
+    public ResponseEntity<?> getAllTeachers(@RequestParam(required = false) String fields) {
+        if (fields != null) {
+            try {
+                List<Map<String, Object>> teachers = teacherService.getAllTeacherFields(fields);
+                return new ResponseEntity<>(teachers, HttpStatus.OK);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+        }
         List<Teacher> teachers = teacherService.getAllTeachers();
         return new ResponseEntity<>(teachers, HttpStatus.OK);
     }
 
-    // Get all teachers with their students
+    // Get all teachers with their students, written to the response as they are read
     @GetMapping("/with-students")
-    public ResponseEntity<List<Teacher>> getAllTeachersWithStudents() {
-        List<Teacher> teachers = teacherService.getAllTeachersWithStudents();
+    public ResponseEntity<JsonStreamBody> getAllTeachersWithStudents() {
+        JsonStreamBody teachers = teacherService::writeAllTeachersWithStudents;
         return new ResponseEntity<>(teachers, HttpStatus.OK);
     }
 
-    // Get teacher by ID
+    // Get teacher by ID, or only the fields listed in fields=
     @GetMapping("/{id}")
-    public ResponseEntity<?> getTeacherById(@PathVariable Long id) {
+    public ResponseEntity<?> getTeacherById(@PathVariable Long id, @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            Optional<Map<String, Object>> teacher;
+            try {
+                teacher = teacherService.getTeacherFieldsById(id, fields);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+            if (teacher.isPresent()) {
+                return new ResponseEntity<>(teacher.get(), HttpStatus.OK);
+            }
+            return new ResponseEntity<>("Teacher not found with id: " + id, HttpStatus.NOT_FOUND);
+        }
         Optional<Teacher> teacher = teacherService.getTeacherById(id);
         if (teacher.isPresent()) {
             return new ResponseEntity<>(teacher.get(), HttpStatus.OK);
@@ -93,6 +130,31 @@ public class TeacherController {
         return new ResponseEntity<>(teachers, HttpStatus.OK);
     }
 
+    // Teachers ranked by student count, e.g. /teacher/workload?order=bottom&limit=5&department=Science&minStudents=1
+    @GetMapping("/workload")
+    public ResponseEntity<?> getTeacherWorkloads(@RequestParam(defaultValue = "top") String order,
+                                                 @RequestParam(defaultValue = "20") int limit,
+                                                 @RequestParam(required = false) String department,
+                                                 @RequestParam(required = false) Long minStudents,
+                                                 @RequestParam(required = false) Long maxStudents) {
+        if (!order.equals("top") && !order.equals("bottom")) {
+            return new ResponseEntity<>("order must be top or bottom", HttpStatus.BAD_REQUEST);
+        }
+        if (limit < 1 || limit > 1000) {
+            return new ResponseEntity<>("limit must be between 1 and 1000", HttpStatus.BAD_REQUEST);
+        }
+        List<TeacherWorkload> workloads = teacherService.getTeacherWorkloads(order.equals("top"), limit,
+                department, minStudents, maxStudents);
+        return new ResponseEntity<>(workloads, HttpStatus.OK);
+    }
+
+    // Teacher and student counts per department
+    @GetMapping("/workload/departments")
+    public ResponseEntity<List<DepartmentWorkload>> getDepartmentWorkloads() {
+        List<DepartmentWorkload> workloads = teacherService.getDepartmentWorkloads();
+        return new ResponseEntity<>(workloads, HttpStatus.OK);
+    }
+
     // Update teacher
     @PutMapping("/{id}")
     public ResponseEntity<?> updateTeacher(@PathVariable Long id, @Valid @RequestBody Teacher teacherDetails) {
@@ -100,6 +162,7 @@ public class TeacherController {
             Teacher updatedTeacher = teacherService.updateTeacher(id, teacherDetails);
             return new ResponseEntity<>(updatedTeacher, HttpStatus.OK);
         } catch (RuntimeException e) {
+            DatabaseExceptionHandler.rethrowIfUnavailable(e);
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
     }
@@ -111,6 +174,7 @@ public class TeacherController {
             teacherService.deleteTeacher(id);
             return new ResponseEntity<>("Teacher deleted successfully", HttpStatus.OK);
         } catch (RuntimeException e) {
+            DatabaseExceptionHandler.rethrowIfUnavailable(e);
             return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
         }
     }
@@ -0,0 +1,27 @@
+package com.school.db;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+// Wraps the application DataSource in a CircuitBreakingDataSource
+@Component
+public class CircuitBreakerDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<DatabaseCircuitBreaker> circuitBreaker;
+
+    public CircuitBreakerDataSourcePostProcessor(ObjectProvider<DatabaseCircuitBreaker> circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                && !(bean instanceof CircuitBreakingDataSource)) {
+            return new CircuitBreakingDataSource(dataSource, circuitBreaker.getObject());
+        }
+        return bean;
+    }
+}
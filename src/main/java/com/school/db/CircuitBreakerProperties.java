@@ -0,0 +1,74 @@
+package com.school.db;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "school.db.circuit-breaker")
+public class CircuitBreakerProperties {
+
+    private boolean enabled = true;
+
+    // Number of most recent statements the failure rate is computed over
+    private int windowSize = 50;
+
+    // Failures needed in the window before the breaker may open at all
+    private int minimumFailures = 10;
+
+    // Failure rate in percent that opens the breaker
+    private int failureRateThreshold = 50;
+
+    // How long the breaker fails fast before letting probe connections through
+    private Duration openDuration = Duration.ofSeconds(10);
+
+    // Successful probes needed to close the breaker again
+    private int halfOpenProbes = 3;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public int getMinimumFailures() {
+        return minimumFailures;
+    }
+
+    public void setMinimumFailures(int minimumFailures) {
+        this.minimumFailures = minimumFailures;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(int failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(Duration openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public int getHalfOpenProbes() {
+        return halfOpenProbes;
+    }
+
+    public void setHalfOpenProbes(int halfOpenProbes) {
+        this.halfOpenProbes = halfOpenProbes;
+    }
+}
@@ -0,0 +1,136 @@
+package com.school.db;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+
+// DataSource wrapper that refuses connections while the circuit breaker is open and reports the
+// outcome of every executed statement back to it
+public class CircuitBreakingDataSource extends DelegatingDataSource {
+
+    private final DatabaseCircuitBreaker circuitBreaker;
+
+    public CircuitBreakingDataSource(DataSource targetDataSource, DatabaseCircuitBreaker circuitBreaker) {
+        super(targetDataSource);
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        checkBreaker();
+        try {
+            return wrap(obtainTargetDataSource().getConnection());
+        } catch (SQLException e) {
+            circuitBreaker.recordFailure();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        checkBreaker();
+        try {
+            return wrap(obtainTargetDataSource().getConnection(username, password));
+        } catch (SQLException e) {
+            circuitBreaker.recordFailure();
+            throw e;
+        }
+    }
+
+    private void checkBreaker() throws SQLException {
+        if (!circuitBreaker.allowRequest()) {
+            throw new SQLTransientConnectionException("Database circuit breaker is open", "08001");
+        }
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection));
+    }
+
+    // Timeouts and lost connections count against the database; constraint violations and bad SQL do not
+    static boolean isDatabaseFailure(SQLException e) {
+        if (e instanceof SQLTimeoutException || e instanceof SQLTransientConnectionException
+                || e instanceof SQLNonTransientConnectionException || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        String sqlState = e.getSQLState();
+        return sqlState != null && sqlState.startsWith("08");
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                // Behind a LazyConnectionDataSourceProxy the physical connection is only opened here, e.g. by
+                // prepareStatement, so a refused or lost connection shows up on the connection, not getConnection
+                Throwable cause = e.getTargetException();
+                if (cause instanceof SQLException sqlException && isDatabaseFailure(sqlException)) {
+                    circuitBreaker.recordFailure();
+                }
+                throw cause;
+            }
+
+            Class<?> type = method.getReturnType();
+            if (type == Statement.class || type == PreparedStatement.class || type == CallableStatement.class) {
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                        new StatementHandler(result));
+            }
+            return result;
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+
+        private final Object target;
+
+        StatementHandler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            boolean execute = method.getName().startsWith("execute");
+            try {
+                Object result = method.invoke(target, args);
+                if (execute) {
+                    circuitBreaker.recordSuccess();
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getTargetException();
+                if (execute) {
+                    if (cause instanceof SQLException sqlException && isDatabaseFailure(sqlException)) {
+                        circuitBreaker.recordFailure();
+                    } else {
+                        circuitBreaker.recordSuccess();
+                    }
+                }
+                throw cause;
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.school.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+
+// Circuit breaker for the database.
+// CLOSED: everything goes through and statement outcomes are recorded in a sliding window.
+// OPEN: too many recent statements failed or timed out, new connections are refused until openDuration passes.
+// HALF_OPEN: a few probe connections are let through; enough successes close the breaker, a failure reopens it.
+@Component
+public class DatabaseCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final CircuitBreakerProperties properties;
+    private final Clock clock;
+
+    private final boolean[] window;
+    private int windowPosition;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private Instant stateChangedAt;
+    private int probesIssued;
+    private int probeSuccesses;
+
+    @Autowired
+    public DatabaseCircuitBreaker(CircuitBreakerProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    public DatabaseCircuitBreaker(CircuitBreakerProperties properties, Clock clock) {
+        this.properties = properties;
+        this.clock = clock;
+        this.window = new boolean[properties.getWindowSize()];
+        this.stateChangedAt = clock.instant();
+    }
+
+    // Whether a new connection may be handed out
+    public synchronized boolean allowRequest() {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+
+        Instant now = clock.instant();
+        boolean waitedOpenDuration = !now.isBefore(stateChangedAt.plus(properties.getOpenDuration()));
+        switch (state) {
+            case OPEN:
+                if (!waitedOpenDuration) {
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN);
+                probesIssued = 1;
+                return true;
+            case HALF_OPEN:
+                // Probes that never reported back must not keep the breaker half open forever
+                if (waitedOpenDuration) {
+                    stateChangedAt = now;
+                    probesIssued = 0;
+                }
+                if (probesIssued < properties.getHalfOpenProbes()) {
+                    probesIssued++;
+                    return true;
+                }
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++probeSuccesses >= properties.getHalfOpenProbes()) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void recordFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && failures >= properties.getMinimumFailures()
+                && failures * 100 >= properties.getFailureRateThreshold() * recorded) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            if (window[windowPosition]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[windowPosition] = failure;
+        if (failure) {
+            failures++;
+        }
+        windowPosition = (windowPosition + 1) % window.length;
+    }
+
+    private void transitionTo(State newState) {
+        log.warn("Database circuit breaker {} -> {}", state, newState);
+        state = newState;
+        stateChangedAt = clock.instant();
+        probesIssued = 0;
+        probeSuccesses = 0;
+        if (newState == State.CLOSED) {
+            recorded = 0;
+            failures = 0;
+            windowPosition = 0;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.school.db;
+
+// Groups repository methods that share a statement timeout
+public enum QueryCategory {
+
+    // Single-row lookups by key, exists and count checks
+    POINT_READ,
+
+    // Queries returning many rows
+    LIST_SCAN,
+
+    // Contains / leading-wildcard searches that cannot use an index
+    SEARCH,
+
+    // Inserts, updates and deletes
+    WRITE
+}
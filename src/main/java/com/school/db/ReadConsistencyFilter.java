@@ -0,0 +1,34 @@
+package com.school.db;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Lets a client that just wrote data read it back from the primary by sending "X-Read-Consistency: primary",
+// so it never sees a replica that has not caught up yet
+@Component
+public class ReadConsistencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Read-Consistency";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!"primary".equalsIgnoreCase(request.getHeader(HEADER))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        ReplicaPoolDataSource.forcePrimaryReads(true);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaPoolDataSource.forcePrimaryReads(false);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.school.db;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "school.datasource")
+public class ReadReplicaProperties {
+
+    // Replicas serving read-only transactions; when empty everything goes to spring.datasource
+    private List<Replica> replicas = new ArrayList<>();
+
+    // How long a replica that failed to hand out a connection is skipped before it is tried again
+    private Duration unhealthyBackoff = Duration.ofSeconds(30);
+
+    // Pool size for each replica
+    private int replicaPoolSize = 10;
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(List<Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+    public Duration getUnhealthyBackoff() {
+        return unhealthyBackoff;
+    }
+
+    public void setUnhealthyBackoff(Duration unhealthyBackoff) {
+        this.unhealthyBackoff = unhealthyBackoff;
+    }
+
+    public int getReplicaPoolSize() {
+        return replicaPoolSize;
+    }
+
+    public void setReplicaPoolSize(int replicaPoolSize) {
+        this.replicaPoolSize = replicaPoolSize;
+    }
+
+    public static class Replica {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.school.db;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Hands out connections that come from the read-only data source when they are first used in a read-only
+// transaction, and from the primary otherwise. Spring marks the connection read-only itself only while Hibernate
+// holds it for the whole session; once Hibernate releases it after every transaction (see ReadWriteDataSourceConfig)
+// it asks for the connection before the transaction is marked read-only, so the transaction's flag is read when
+// the physical connection is fetched.
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy {
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource readOnly) {
+        super(new ByTransaction(primary, readOnly));
+        setReadOnlyDataSource(readOnly);
+    }
+
+    private static class ByTransaction extends AbstractDataSource {
+
+        private final DataSource primary;
+        private final DataSource readOnly;
+
+        ByTransaction(DataSource primary, DataSource readOnly) {
+            this.primary = primary;
+            this.readOnly = readOnly;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return target().getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return target().getConnection(username, password);
+        }
+
+        private DataSource target() {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? readOnly : primary;
+        }
+    }
+}
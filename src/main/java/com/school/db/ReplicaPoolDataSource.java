@@ -0,0 +1,113 @@
+package com.school.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hands out connections from a pool of read replicas in round-robin order.
+// A replica that fails to give a connection is skipped for the backoff period; when no replica is
+// available, or the current thread asked for primary reads, connections come from the primary.
+public class ReplicaPoolDataSource extends AbstractDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaPoolDataSource.class);
+
+    private static final ThreadLocal<Boolean> primaryReads = new ThreadLocal<>();
+
+    private final List<Replica> replicas;
+    private final DataSource primary;
+    private final long backoffNanos;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaPoolDataSource(List<DataSource> replicas, DataSource primary, Duration unhealthyBackoff) {
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.primary = primary;
+        this.backoffNanos = unhealthyBackoff.toNanos();
+    }
+
+    // Send read-only transactions of the current thread to the primary, e.g. to read back a write
+    public static void forcePrimaryReads(boolean force) {
+        if (force) {
+            primaryReads.set(Boolean.TRUE);
+        } else {
+            primaryReads.remove();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connect(DataSource::getConnection);
+    }
+
+    // Same choice of replica or primary, connecting with the given credentials
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connect(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    // Number of replicas currently considered healthy
+    public int getHealthyReplicaCount() {
+        long now = System.nanoTime();
+        return (int) replicas.stream().filter(replica -> replica.isHealthy(now)).count();
+    }
+
+    private Connection connect(Connector connector) throws SQLException {
+        if (primaryReads.get() == null && !replicas.isEmpty()) {
+            int size = replicas.size();
+            int start = Math.floorMod(next.getAndIncrement(), size);
+            long now = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                Replica replica = replicas.get((start + i) % size);
+                if (replica.isHealthy(now)) {
+                    try {
+                        Connection connection = connector.connect(replica.dataSource);
+                        replica.failed = false;
+                        return connection;
+                    } catch (SQLException e) {
+                        log.warn("Read replica {} unavailable, skipping it for {} ms", (start + i) % size,
+                                backoffNanos / 1_000_000, e);
+                        replica.unhealthyUntil = now + backoffNanos;
+                        replica.failed = true;
+                    }
+                }
+            }
+        }
+        return connector.connect(primary);
+    }
+
+    // Closes the replica pools on shutdown
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Connector {
+
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+
+    private static class Replica {
+
+        private final DataSource dataSource;
+        private volatile long unhealthyUntil;
+        private volatile boolean failed;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        boolean isHealthy(long now) {
+            return !failed || now - unhealthyUntil >= 0;
+        }
+    }
+}
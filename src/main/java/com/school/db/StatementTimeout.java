@@ -0,0 +1,15 @@
+package com.school.db;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Puts a repository method in a timeout category.
+// Methods without it are categorised by name, see StatementTimeoutAspect.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatementTimeout {
+
+    QueryCategory value();
+}
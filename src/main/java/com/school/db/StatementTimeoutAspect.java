@@ -0,0 +1,96 @@
+package com.school.db;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Applies the configured statement timeout to every repository call.
+// The timeout is set as the jakarta.persistence.query.timeout property of the current session, which
+// Hibernate passes on as a query hint to each query the repository method creates.
+@Aspect
+@Component
+public class StatementTimeoutAspect {
+
+    public static final String QUERY_TIMEOUT_HINT = "jakarta.persistence.query.timeout";
+
+    // Hint value Hibernate reads as "no timeout"; the session has no way to remove a property once set
+    private static final int NO_TIMEOUT = 0;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private StatementTimeoutProperties properties;
+
+    private final Map<Method, String> methodKeys = new ConcurrentHashMap<>();
+
+    @Around("execution(public * org.springframework.data.repository.Repository+.*(..))")
+    public Object applyTimeout(ProceedingJoinPoint joinPoint) throws Throwable {
+        // Outside a transaction each call gets a throwaway EntityManager, so there is no session to configure
+        if (!properties.isEnabled() || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        String methodKey = methodKeys.computeIfAbsent(method, m -> methodKey(joinPoint.getTarget(), m));
+        Duration timeout = properties.resolve(methodKey, categoryOf(method));
+        if (timeout == null) {
+            return joinPoint.proceed();
+        }
+
+        Object previous = entityManager.getProperties().get(QUERY_TIMEOUT_HINT);
+        entityManager.setProperty(QUERY_TIMEOUT_HINT, timeoutHint(timeout));
+        try {
+            return joinPoint.proceed();
+        } finally {
+            entityManager.setProperty(QUERY_TIMEOUT_HINT, previous != null ? previous : NO_TIMEOUT);
+        }
+    }
+
+    // Query timeout hint in milliseconds. JDBC timeouts are whole seconds and Hibernate truncates the hint,
+    // so it is rounded up to a whole second: a sub-second timeout would otherwise become 0, i.e. none at all.
+    public static int timeoutHint(Duration timeout) {
+        long seconds = Math.max(1, (timeout.toMillis() + 999) / 1000);
+        return (int) Math.min(Integer.MAX_VALUE / 1000, seconds) * 1000;
+    }
+
+    // Category from @StatementTimeout, or guessed from the Spring Data method name
+    static QueryCategory categoryOf(Method method) {
+        StatementTimeout annotation = AnnotationUtils.findAnnotation(method, StatementTimeout.class);
+        if (annotation != null) {
+            return annotation.value();
+        }
+
+        String name = method.getName();
+        if (name.startsWith("save") || name.startsWith("delete") || name.startsWith("flush")) {
+            return QueryCategory.WRITE;
+        }
+        if (name.startsWith("exists") || name.startsWith("count") || name.equals("findById")
+                || name.equals("getReferenceById")) {
+            return QueryCategory.POINT_READ;
+        }
+        if (name.contains("Containing") || name.contains("Like")) {
+            return QueryCategory.SEARCH;
+        }
+        return QueryCategory.LIST_SCAN;
+    }
+
+    private static String methodKey(Object repository, Method method) {
+        Class<?>[] interfaces = AopProxyUtils.proxiedUserInterfaces(repository);
+        String owner = interfaces.length > 0 ? interfaces[0].getSimpleName() : method.getDeclaringClass().getSimpleName();
+        return owner + "." + method.getName();
+    }
+}
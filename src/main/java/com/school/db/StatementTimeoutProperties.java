@@ -0,0 +1,57 @@
+package com.school.db;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "school.db.timeouts")
+public class StatementTimeoutProperties {
+
+    private boolean enabled = true;
+
+    // Timeout per query category
+    private Map<QueryCategory, Duration> categories = new EnumMap<>(QueryCategory.class);
+
+    // Timeout per repository method, keyed as "StudentRepo.findAllWithTeacher"; wins over the category
+    private Map<String, Duration> methods = new HashMap<>();
+
+    public StatementTimeoutProperties() {
+        categories.put(QueryCategory.POINT_READ, Duration.ofSeconds(2));
+        categories.put(QueryCategory.LIST_SCAN, Duration.ofSeconds(15));
+        categories.put(QueryCategory.SEARCH, Duration.ofSeconds(5));
+        categories.put(QueryCategory.WRITE, Duration.ofSeconds(10));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Map<QueryCategory, Duration> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(Map<QueryCategory, Duration> categories) {
+        this.categories.putAll(categories);
+    }
+
+    public Map<String, Duration> getMethods() {
+        return methods;
+    }
+
+    public void setMethods(Map<String, Duration> methods) {
+        this.methods = methods;
+    }
+
+    // Timeout for a repository method, or null if none applies
+    public Duration resolve(String methodKey, QueryCategory category) {
+        Duration timeout = methods.get(methodKey);
+        return timeout != null ? timeout : categories.get(category);
+    }
+}
@@ -0,0 +1,11 @@
+package com.school.dictionary;
+
+import jakarta.persistence.Converter;
+
+@Converter
+public class DepartmentConverter extends DictionaryConverter {
+
+    public DepartmentConverter() {
+        super(DictionaryCategory.DEPARTMENT);
+    }
+}
@@ -0,0 +1,8 @@
+package com.school.dictionary;
+
+// Columns stored as dictionary codes
+public enum DictionaryCategory {
+    GRADE_LEVEL,
+    SUBJECT,
+    DEPARTMENT
+}
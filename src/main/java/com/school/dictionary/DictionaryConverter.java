@@ -0,0 +1,33 @@
+package com.school.dictionary;
+
+import jakarta.persistence.AttributeConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+
+// Stores a string attribute as its dictionary code. Hibernate creates the subclasses through Spring,
+// so the shared ValueDictionary and its cache are injected.
+public abstract class DictionaryConverter implements AttributeConverter<String, Short> {
+
+    private final DictionaryCategory category;
+
+    @Autowired
+    private ValueDictionary dictionary;
+
+    protected DictionaryConverter(DictionaryCategory category) {
+        this.category = category;
+    }
+
+    DictionaryCategory getCategory() {
+        return category;
+    }
+
+    // Values of entity writes are already registered by DictionaryEntityListener; query parameters are not
+    @Override
+    public Short convertToDatabaseColumn(String attribute) {
+        return dictionary.encode(category, attribute);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short code) {
+        return dictionary.decode(code);
+    }
+}
@@ -0,0 +1,60 @@
+package com.school.dictionary;
+
+import jakarta.persistence.Convert;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Adds the values of an entity's dictionary-coded attributes to the dictionary before the entity is inserted or
+// updated, so the converters only have to encode values that are already there. Like the converters it is
+// created by Hibernate through Spring.
+public class DictionaryEntityListener {
+
+    private static final Map<Class<?>, List<CodedField>> codedFields = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ValueDictionary dictionary;
+
+    @PrePersist
+    @PreUpdate
+    public void registerValues(Object entity) {
+        for (CodedField codedField : codedFields.computeIfAbsent(entity.getClass(),
+                DictionaryEntityListener::findCodedFields)) {
+            try {
+                dictionary.register(codedField.category(), (String) codedField.field().get(entity));
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Could not read " + codedField.field(), e);
+            }
+        }
+    }
+
+    // Fields converted by a DictionaryConverter, with their category
+    private static List<CodedField> findCodedFields(Class<?> entityClass) {
+        List<CodedField> result = new ArrayList<>();
+        for (Class<?> type = entityClass; type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                Convert convert = field.getAnnotation(Convert.class);
+                if (convert != null && DictionaryConverter.class.isAssignableFrom(convert.converter())) {
+                    try {
+                        DictionaryConverter converter = (DictionaryConverter) convert.converter()
+                                .getDeclaredConstructor().newInstance();
+                        field.setAccessible(true);
+                        result.add(new CodedField(field, converter.getCategory()));
+                    } catch (ReflectiveOperationException e) {
+                        throw new RuntimeException("Could not create " + convert.converter(), e);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private record CodedField(Field field, DictionaryCategory category) {
+    }
+}
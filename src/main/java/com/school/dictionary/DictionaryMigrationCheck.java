@@ -0,0 +1,87 @@
+package com.school.dictionary;
+
+import com.school.shard.ShardContext;
+import com.school.shard.ShardDirectory;
+import com.school.shard.ShardingProperties;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Refuses to start against a schema that still has the string columns db/dictionary-encoding-migration.sql replaces.
+// Runs while the EntityManagerFactory is built, before ddl-auto gets to add the *_code columns next to the old
+// ones (which would leave the migration unable to run and the old NOT NULL columns failing every insert).
+// Skipped when Hibernate does not touch the schema (ddl-auto=none, as in the fast-startup profile).
+@Component
+public class DictionaryMigrationCheck implements HibernatePropertiesCustomizer {
+
+    // Columns the migration drops, by table
+    private static final Map<String, List<String>> LEGACY_COLUMNS = Map.of(
+            "students", List.of("grade_level"),
+            "teacher", List.of("subject", "department"));
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectProvider<ShardingProperties> shardingProperties;
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        Object action = hibernateProperties.get(AvailableSettings.HBM2DDL_AUTO);
+        if (action == null || "none".equals(String.valueOf(action))) {
+            return;
+        }
+        List<String> shards = new ArrayList<>(List.of(ShardDirectory.MAIN_SHARD));
+        ShardingProperties sharding = shardingProperties.getIfAvailable();
+        if (sharding != null) {
+            sharding.getShards().forEach(shard -> shards.add(shard.getName()));
+        }
+        for (String shard : shards) {
+            List<String> legacy = ShardContext.call(null, shard, this::findLegacyColumns);
+            if (!legacy.isEmpty()) {
+                throw new IllegalStateException("Shard " + shard + " still has the columns " + legacy
+                        + "; run db/dictionary-encoding-migration.sql against it before starting this version");
+            }
+        }
+    }
+
+    private List<String> findLegacyColumns() {
+        List<String> found = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (Map.Entry<String, List<String>> table : LEGACY_COLUMNS.entrySet()) {
+                for (String column : table.getValue()) {
+                    if (hasColumn(connection, metaData, table.getKey(), column)) {
+                        found.add(table.getKey() + "." + column);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Could not check the schema for the dictionary migration", e);
+        }
+        return found;
+    }
+
+    private static boolean hasColumn(Connection connection, DatabaseMetaData metaData, String table, String column)
+            throws SQLException {
+        if (metaData.storesUpperCaseIdentifiers()) {
+            table = table.toUpperCase();
+            column = column.toUpperCase();
+        }
+        try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(), table,
+                column)) {
+            return columns.next();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.school.dictionary;
+
+import jakarta.persistence.Converter;
+
+@Converter
+public class GradeLevelConverter extends DictionaryConverter {
+
+    public GradeLevelConverter() {
+        super(DictionaryCategory.GRADE_LEVEL);
+    }
+}
@@ -0,0 +1,11 @@
+package com.school.dictionary;
+
+import jakarta.persistence.Converter;
+
+@Converter
+public class SubjectConverter extends DictionaryConverter {
+
+    public SubjectConverter() {
+        super(DictionaryCategory.SUBJECT);
+    }
+}
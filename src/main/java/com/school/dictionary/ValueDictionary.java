@@ -0,0 +1,287 @@
+package com.school.dictionary;
+
+import com.school.event.RemoteChangesEvent;
+import com.school.shard.ShardContext;
+import com.school.shard.ShardDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Maps the values of low-cardinality columns to small codes stored in dictionary_values.
+// Codes are cached in memory for the life of the application; entries are never changed or deleted.
+// Only writes add entries: DictionaryEntityListener registers an entity's values before it is inserted or updated,
+// and bulk updates register the value they set. Encoding a query parameter never adds one, an unknown value
+// encodes to UNKNOWN and is remembered as unknown for school.dictionary.unknown-ttl, so a filter on a value nobody
+// wrote does not query dictionary_values on every request. Registering the value here forgets that at once; one
+// added by another node is seen once it expires, or sooner when its writes are noticed (RemoteChangesEvent).
+// Lookups and inserts run on the current transaction's connection, so an entry added by a write commits or rolls
+// back with it and is cached only once committed. With shards the dictionary lives on the main shard, so a code
+// means the same value on every shard; work on another shard uses a main-shard connection of its own for the
+// dictionary.
+@Component
+public class ValueDictionary {
+
+    // Code for a value that is not in the dictionary; matches no row
+    public static final short UNKNOWN = -1;
+
+    // Most unknown values remembered; arbitrary query parameters must not grow the cache without bound
+    private static final int MAX_UNKNOWN = 10_000;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${school.dictionary.unknown-ttl:30s}")
+    private Duration unknownTtl = Duration.ofSeconds(30);
+
+    private final Map<String, Short> codes = new ConcurrentHashMap<>();
+    private final Map<Short, String> values = new ConcurrentHashMap<>();
+
+    // Values found missing, with the System.nanoTime() until which they are taken to be missing
+    private final Map<String, Long> unknown = new ConcurrentHashMap<>();
+
+    public ValueDictionary() {
+    }
+
+    public ValueDictionary(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    // Code for a value, or UNKNOWN when it is not in the dictionary
+    public Short encode(DictionaryCategory category, String value) {
+        if (value == null) {
+            return null;
+        }
+        String key = key(category, value);
+        Short code = cachedCode(key);
+        if (code != null) {
+            return code;
+        }
+        Long unknownUntil = unknown.get(key);
+        if (unknownUntil != null && unknownUntil - System.nanoTime() > 0) {
+            return UNKNOWN;
+        }
+        Entry entry = withConnection(connection -> select(connection, category, value, false));
+        if (entry == null) {
+            if (unknown.size() >= MAX_UNKNOWN) {
+                unknown.clear();
+            }
+            unknown.put(key, System.nanoTime() + unknownTtl.toNanos());
+            return UNKNOWN;
+        }
+        cache(category, value, entry);
+        return entry.code();
+    }
+
+    // Code for a value that is about to be written, adding it to the dictionary when it is not there yet
+    public Short register(DictionaryCategory category, String value) {
+        if (value == null) {
+            return null;
+        }
+        String key = key(category, value);
+        Short code = cachedCode(key);
+        if (code != null) {
+            return code;
+        }
+        return withConnection(connection -> {
+            Entry entry = select(connection, category, value, false);
+            if (entry != null) {
+                cache(category, value, entry);
+                return entry.code();
+            }
+            entry = insert(connection, category, value);
+            if (connection.getAutoCommit() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+                cache(category, value, entry);
+            } else {
+                pendingEntries().put(key, entry);
+            }
+            return entry.code();
+        });
+    }
+
+    // Values another node added may be among those remembered as unknown
+    @EventListener
+    public void onRemoteChanges(RemoteChangesEvent event) {
+        unknown.clear();
+    }
+
+    public String decode(Short code) {
+        if (code == null) {
+            return null;
+        }
+        String value = values.get(code);
+        if (value != null) {
+            return value;
+        }
+        for (Entry entry : pendingEntriesIfAny().values()) {
+            if (entry.code() == code) {
+                return entry.label();
+            }
+        }
+
+        // The dictionary is small: on a miss load all of it rather than one entry
+        withConnection(connection -> {
+            loadAll(connection);
+            return null;
+        });
+
+        value = values.get(code);
+        if (value == null) {
+            throw new RuntimeException("Unknown dictionary code: " + code);
+        }
+        return value;
+    }
+
+    private Short cachedCode(String key) {
+        Short code = codes.get(key);
+        if (code == null) {
+            Entry entry = pendingEntriesIfAny().get(key);
+            code = entry != null ? entry.code() : null;
+        }
+        return code;
+    }
+
+    // The database may match case-insensitively, so decode to the stored label, not the value asked for
+    private void cache(DictionaryCategory category, String value, Entry entry) {
+        String key = key(category, value);
+        codes.put(key, entry.code());
+        unknown.remove(key);
+        values.putIfAbsent(entry.code(), entry.label());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Entry> pendingEntriesIfAny() {
+        Map<String, Entry> pending = (Map<String, Entry>) TransactionSynchronizationManager.getResource(this);
+        return pending != null ? pending : Map.of();
+    }
+
+    // Entries this transaction added; they are cached once it commits and forgotten if it rolls back
+    @SuppressWarnings("unchecked")
+    private Map<String, Entry> pendingEntries() {
+        Map<String, Entry> pending = (Map<String, Entry>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<String, Entry> entries = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, entries);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void suspend() {
+                    TransactionSynchronizationManager.unbindResource(ValueDictionary.this);
+                }
+
+                @Override
+                public void resume() {
+                    TransactionSynchronizationManager.bindResource(ValueDictionary.this, entries);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ValueDictionary.this);
+                    if (status == STATUS_COMMITTED) {
+                        entries.forEach((key, entry) -> {
+                            codes.put(key, entry.code());
+                            unknown.remove(key);
+                            values.putIfAbsent(entry.code(), entry.label());
+                        });
+                    }
+                }
+            });
+            pending = entries;
+        }
+        return pending;
+    }
+
+    // Run work on a connection to the main shard: the current transaction's connection when the thread is on the
+    // main shard, so a lookup never holds a second pooled connection. A transaction on another shard cannot reach
+    // the main shard, so there the work runs on its own auto-commit connection.
+    private <T> T withConnection(ConnectionWork<T> work) {
+        String shard = ShardContext.currentShard();
+        if (shard == null || ShardDirectory.MAIN_SHARD.equals(shard)) {
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            try {
+                return work.apply(connection);
+            } catch (SQLException e) {
+                throw new RuntimeException("Could not access the value dictionary", e);
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        }
+        return ShardContext.call(null, ShardDirectory.MAIN_SHARD, () -> {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                return work.apply(connection);
+            } catch (SQLException e) {
+                throw new RuntimeException("Could not access the value dictionary", e);
+            }
+        });
+    }
+
+    private void loadAll(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id, category, label FROM dictionary_values");
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                short id = resultSet.getShort(1);
+                String label = resultSet.getString(3);
+                values.putIfAbsent(id, label);
+                codes.putIfAbsent(key(DictionaryCategory.valueOf(resultSet.getString(2)), label), id);
+            }
+        }
+    }
+
+    // With forUpdate the read sees rows committed after this transaction's snapshot was taken
+    private Entry select(Connection connection, DictionaryCategory category, String value, boolean forUpdate)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id, label FROM dictionary_values WHERE category = ? AND label = ?"
+                        + (forUpdate ? " FOR UPDATE" : ""))) {
+            statement.setString(1, category.name());
+            statement.setString(2, value);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? new Entry(resultSet.getShort(1), resultSet.getString(2)) : null;
+            }
+        }
+    }
+
+    private Entry insert(Connection connection, DictionaryCategory category, String value) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO dictionary_values (category, label) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            statement.setString(1, category.name());
+            statement.setString(2, value);
+            statement.executeUpdate();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                keys.next();
+                return new Entry(keys.getShort(1), value);
+            }
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // Another node or transaction added it first
+            return select(connection, category, value, true);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionWork<T> {
+        T apply(Connection connection) throws SQLException;
+    }
+
+    private record Entry(short code, String label) {
+    }
+
+    private static String key(DictionaryCategory category, String value) {
+        return category.ordinal() + ":" + value;
+    }
+}
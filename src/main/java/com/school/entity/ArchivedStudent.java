@@ -0,0 +1,117 @@
+package com.school.entity;
+
+import com.school.dictionary.DictionaryEntityListener;
+import com.school.dictionary.GradeLevelConverter;
+import com.school.shard.SchoolFilter;
+import jakarta.persistence.*;
+import org.hibernate.annotations.Filter;
+
+import java.time.LocalDate;
+
+// A student moved out of the students table by the archiving job.
+// Keeps the original id so archived students still resolve by id, email and student ID.
+@Entity
+@Filter(name = SchoolFilter.NAME, condition = SchoolFilter.CONDITION)
+@EntityListeners(DictionaryEntityListener.class)
+@Table(name = "students_archive", indexes = {
+        @Index(name = "idx_students_archive_enrollment_date", columnList = "enrollment_date"),
+        @Index(name = "idx_students_archive_school_code", columnList = "school_code")
+})
+public class ArchivedStudent {
+
+    @Id
+    private Long id;
+
+    @Column(name = "first_name", nullable = false)
+    private String firstName;
+
+    @Column(name = "last_name", nullable = false)
+    private String lastName;
+
+    @Column(unique = true, nullable = false)
+    private String email;
+
+    @Column(name = "phone_number")
+    private String phoneNumber;
+
+    @Column(name = "enrollment_date")
+    private LocalDate enrollmentDate;
+
+    @Convert(converter = GradeLevelConverter.class)
+    @Column(name = "grade_level_code")
+    private String gradeLevel;
+
+    @Column(name = "student_id", unique = true)
+    private String studentId;
+
+    @Column(name = "teacher_id")
+    private Long teacherId;
+
+    @Column(name = "school_code", length = 16)
+    private String schoolCode;
+
+    @Column(name = "left_on")
+    private LocalDate leftOn;
+
+    @Column(name = "archived_on", nullable = false)
+    private LocalDate archivedOn;
+
+    public ArchivedStudent() {
+    }
+
+    // Copy as a detached Student, as returned by the regular student endpoints
+    public Student toStudent() {
+        Student student = new Student(firstName, lastName, email, phoneNumber, enrollmentDate, gradeLevel, studentId);
+        student.setId(id);
+        student.setSchoolCode(schoolCode);
+        return student;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public LocalDate getEnrollmentDate() {
+        return enrollmentDate;
+    }
+
+    public String getGradeLevel() {
+        return gradeLevel;
+    }
+
+    public String getStudentId() {
+        return studentId;
+    }
+
+    public Long getTeacherId() {
+        return teacherId;
+    }
+
+    public String getSchoolCode() {
+        return schoolCode;
+    }
+
+    public LocalDate getLeftOn() {
+        return leftOn;
+    }
+
+    public LocalDate getArchivedOn() {
+        return archivedOn;
+    }
+}
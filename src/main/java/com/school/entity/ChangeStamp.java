@@ -0,0 +1,41 @@
+package com.school.entity;
+
+import jakarta.persistence.*;
+
+// Counter bumped by every transaction that changes a set of tables; see com.school.roster.RosterChangeStamp.
+// Two reads returning the same stamp mean nothing in that set was changed in between.
+@Entity
+@Table(name = "change_stamps")
+public class ChangeStamp {
+
+    @Id
+    @Column(length = 32)
+    private String name;
+
+    @Column(nullable = false)
+    private Long stamp;
+
+    public ChangeStamp() {
+    }
+
+    public ChangeStamp(String name, Long stamp) {
+        this.name = name;
+        this.stamp = stamp;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getStamp() {
+        return stamp;
+    }
+
+    public void setStamp(Long stamp) {
+        this.stamp = stamp;
+    }
+}
@@ -0,0 +1,195 @@
+package com.school.entity;
+
+import com.school.cohort.CohortJobStatus;
+import com.school.cohort.CohortJobType;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+// A cohort transition applied to students in chunks; see com.school.cohort.CohortTransitionService.
+// lastStudentId is the checkpoint: it is committed together with each chunk, so a job resumes after the
+// last chunk that was actually applied. A job is stored on the shard of the school it was submitted for and only
+// updates students on that shard.
+@Entity
+@Table(name = "cohort_jobs")
+public class CohortJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private CohortJobType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private CohortJobStatus status;
+
+    @Column(name = "from_grade", nullable = false)
+    private String fromGrade;
+
+    @Column(name = "to_grade")
+    private String toGrade;
+
+    @Column(name = "from_teacher_id")
+    private Long fromTeacherId;
+
+    @Column(name = "teacher_id")
+    private Long teacherId;
+
+    @Column(name = "school_code", length = 16)
+    private String schoolCode;
+
+    @Column(name = "chunk_size", nullable = false)
+    private int chunkSize;
+
+    @Column(name = "last_student_id", nullable = false)
+    private long lastStudentId;
+
+    @Column(name = "processed_count", nullable = false)
+    private long processedCount;
+
+    @Column(name = "total_count", nullable = false)
+    private long totalCount;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public CohortJob() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public CohortJobType getType() {
+        return type;
+    }
+
+    public void setType(CohortJobType type) {
+        this.type = type;
+    }
+
+    public CohortJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(CohortJobStatus status) {
+        this.status = status;
+    }
+
+    public String getFromGrade() {
+        return fromGrade;
+    }
+
+    public void setFromGrade(String fromGrade) {
+        this.fromGrade = fromGrade;
+    }
+
+    public String getToGrade() {
+        return toGrade;
+    }
+
+    public void setToGrade(String toGrade) {
+        this.toGrade = toGrade;
+    }
+
+    public Long getFromTeacherId() {
+        return fromTeacherId;
+    }
+
+    public void setFromTeacherId(Long fromTeacherId) {
+        this.fromTeacherId = fromTeacherId;
+    }
+
+    public Long getTeacherId() {
+        return teacherId;
+    }
+
+    public void setTeacherId(Long teacherId) {
+        this.teacherId = teacherId;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public long getLastStudentId() {
+        return lastStudentId;
+    }
+
+    public void setLastStudentId(long lastStudentId) {
+        this.lastStudentId = lastStudentId;
+    }
+
+    public long getProcessedCount() {
+        return processedCount;
+    }
+
+    public void setProcessedCount(long processedCount) {
+        this.processedCount = processedCount;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(long totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public String getSchoolCode() {
+        return schoolCode;
+    }
+
+    public void setSchoolCode(String schoolCode) {
+        this.schoolCode = schoolCode;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    // Share of the students counted at submission that have been processed, 0 to 100
+    public double getPercentComplete() {
+        if (status == CohortJobStatus.COMPLETED) {
+            return 100;
+        }
+        return totalCount == 0 ? 0 : Math.min(100, processedCount * 100.0 / totalCount);
+    }
+}
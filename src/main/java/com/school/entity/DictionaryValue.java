@@ -0,0 +1,48 @@
+package com.school.entity;
+
+import jakarta.persistence.*;
+
+// One entry of the dictionary backing the low-cardinality string columns (grade level, subject, department).
+// Rows only store the small id; see com.school.dictionary.ValueDictionary.
+@Entity
+@Table(name = "dictionary_values",
+        uniqueConstraints = @UniqueConstraint(name = "uk_dictionary_values", columnNames = {"category", "label"}))
+public class DictionaryValue {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Short id;
+
+    @Column(nullable = false, length = 32)
+    private String category;
+
+    @Column(nullable = false, length = 100)
+    private String label;
+
+    public DictionaryValue() {
+    }
+
+    public Short getId() {
+        return id;
+    }
+
+    public void setId(Short id) {
+        this.id = id;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+}
@@ -0,0 +1,56 @@
+package com.school.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+// Lease on a background job that must run on one node at a time, such as archiving.
+// The node named by holder may run the job until expiresAt; it renews the lease while it works and any node may
+// take it over once it has expired. Only the main shard's table is used.
+@Entity
+@Table(name = "job_leases")
+public class JobLease {
+
+    @Id
+    @Column(length = 32)
+    private String name;
+
+    @Column(length = 64)
+    private String holder;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public JobLease() {
+    }
+
+    public JobLease(String name, String holder, Instant expiresAt) {
+        this.name = name;
+        this.holder = holder;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getHolder() {
+        return holder;
+    }
+
+    public void setHolder(String holder) {
+        this.holder = holder;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,68 @@
+package com.school.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+// Shard a school's rows live on, when it differs from school.sharding.schools; see com.school.shard.ShardDirectory.
+// Only the main shard's table is used. While moving is set the school's rows are being copied to another shard
+// and writes for the school are refused.
+@Entity
+@Table(name = "school_shards")
+public class SchoolShard {
+
+    @Id
+    @Column(name = "school_code", length = 16)
+    private String schoolCode;
+
+    @Column(name = "shard_name", nullable = false, length = 32)
+    private String shardName;
+
+    @Column(nullable = false)
+    private boolean moving;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public SchoolShard() {
+    }
+
+    public SchoolShard(String schoolCode, String shardName, boolean moving) {
+        this.schoolCode = schoolCode;
+        this.shardName = shardName;
+        this.moving = moving;
+        this.updatedAt = Instant.now();
+    }
+
+    public String getSchoolCode() {
+        return schoolCode;
+    }
+
+    public void setSchoolCode(String schoolCode) {
+        this.schoolCode = schoolCode;
+    }
+
+    public String getShardName() {
+        return shardName;
+    }
+
+    public void setShardName(String shardName) {
+        this.shardName = shardName;
+    }
+
+    public boolean isMoving() {
+        return moving;
+    }
+
+    public void setMoving(boolean moving) {
+        this.moving = moving;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
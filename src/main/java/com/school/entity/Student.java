@@ -1,8 +1,16 @@
 package com.school.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.school.dictionary.DictionaryEntityListener;
+import com.school.dictionary.GradeLevelConverter;
+import com.school.shard.SchoolFilter;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Filter;
+import org.hibernate.annotations.FilterDef;
+import org.hibernate.annotations.ParamDef;
 
 import java.time.LocalDate;
 import jakarta.validation.constraints.Email;
@@ -10,7 +18,21 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
 @Entity
-@Table(name = "students")
+// Reads are limited to the request's school, see SchoolFilter
+@FilterDef(name = SchoolFilter.NAME, autoEnabled = true, applyToLoadByKey = true,
+        parameters = @ParamDef(name = SchoolFilter.PARAMETER, type = String.class,
+                resolver = SchoolFilter.CurrentSchool.class))
+@Filter(name = SchoolFilter.NAME, condition = SchoolFilter.CONDITION)
+@EntityListeners(DictionaryEntityListener.class)
+@Table(name = "students", indexes = {
+        @Index(name = "idx_students_grade_level_code", columnList = "grade_level_code"),
+        @Index(name = "idx_students_enrollment_date", columnList = "enrollment_date"),
+        @Index(name = "idx_students_school_code", columnList = "school_code"),
+        @Index(name = "idx_students_left_on", columnList = "left_on")
+})
+// Property order is part of the API schema shared by the JSON, CBOR and Smile encodings
+@JsonPropertyOrder({"id", "firstName", "lastName", "email", "phoneNumber", "enrollmentDate", "gradeLevel", "studentId",
+        "schoolCode"})
 public class Student {
 
     @Id
@@ -38,12 +60,25 @@ public class Student {
     @Column(name = "enrollment_date")
     private LocalDate enrollmentDate;
 
-    @Column(name = "grade_level")
+    // Stored as a dictionary code, see ValueDictionary
+    @Convert(converter = GradeLevelConverter.class)
+    @Column(name = "grade_level_code")
     private String gradeLevel;
 
     @Column(name = "student_id", unique = true)
     private String studentId;
 
+    // Day the student graduated, set by the graduation cohort job; the archiving job moves graduates some
+    // time after it. Not part of the API.
+    @JsonIgnore
+    @Column(name = "left_on")
+    private LocalDate leftOn;
+
+    // School the student belongs to, which is also the shard key, see com.school.shard
+    @Size(max = 16, message = "School code must be at most 16 characters")
+    @Column(name = "school_code", length = 16)
+    private String schoolCode;
+
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "teacher_id", nullable = true)
@@ -130,6 +165,22 @@ public class Student {
         this.studentId = studentId;
     }
 
+    public LocalDate getLeftOn() {
+        return leftOn;
+    }
+
+    public void setLeftOn(LocalDate leftOn) {
+        this.leftOn = leftOn;
+    }
+
+    public String getSchoolCode() {
+        return schoolCode;
+    }
+
+    public void setSchoolCode(String schoolCode) {
+        this.schoolCode = schoolCode;
+    }
+
     public Teacher getTeacher() {
         return teacher;
     }
@@ -149,6 +200,7 @@ public class Student {
                 ", enrollmentDate=" + enrollmentDate +
                 ", gradeLevel='" + gradeLevel + '\'' +
                 ", studentId='" + studentId + '\'' +
+                ", schoolCode='" + schoolCode + '\'' +
                 '}';
     }
 
@@ -0,0 +1,36 @@
+package com.school.entity;
+
+import jakarta.persistence.*;
+
+// High-water mark of one student ID sequence (a school, or a school and enrollment year).
+// Values below nextValue have been handed out in blocks; see com.school.studentid.StudentIdBlockAllocator.
+@Entity
+@Table(name = "student_id_blocks")
+public class StudentIdBlock {
+
+    @Id
+    @Column(length = 64)
+    private String scope;
+
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+
+    public StudentIdBlock() {
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public Long getNextValue() {
+        return nextValue;
+    }
+
+    public void setNextValue(Long nextValue) {
+        this.nextValue = nextValue;
+    }
+}
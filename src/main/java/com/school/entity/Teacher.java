@@ -1,7 +1,13 @@
 package com.school.entity;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.school.dictionary.DepartmentConverter;
+import com.school.dictionary.DictionaryEntityListener;
+import com.school.dictionary.SubjectConverter;
+import com.school.shard.SchoolFilter;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Filter;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -10,6 +16,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Filter(name = SchoolFilter.NAME, condition = SchoolFilter.CONDITION)
+@EntityListeners(DictionaryEntityListener.class)
+@Table(indexes = {
+        @Index(name = "idx_teacher_subject_code", columnList = "subject_code"),
+        @Index(name = "idx_teacher_department_code", columnList = "department_code"),
+        @Index(name = "idx_teacher_school_code", columnList = "school_code")
+})
+// Property order is part of the API schema shared by the JSON, CBOR and Smile encodings
+@JsonPropertyOrder({"id", "firstName", "lastName", "email", "phoneNumber", "subject", "department", "schoolCode",
+        "students"})
 public class Teacher {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -34,12 +50,20 @@ public class Teacher {
     @Column(name = "phone_number")
     private String phoneNumber;
 
-    @Column(name = "subject")
+    // Subject and department are stored as dictionary codes, see ValueDictionary
+    @Convert(converter = SubjectConverter.class)
+    @Column(name = "subject_code")
     private String subject;
 
-    @Column(name = "department")
+    @Convert(converter = DepartmentConverter.class)
+    @Column(name = "department_code")
     private String department;
 
+    // School the teacher belongs to, which is also the shard key, see com.school.shard
+    @Size(max = 16, message = "School code must be at most 16 characters")
+    @Column(name = "school_code", length = 16)
+    private String schoolCode;
+
     // One-to-Many relationship with Student
     @OneToMany(mappedBy = "teacher", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonManagedReference
@@ -114,6 +138,14 @@ public class Teacher {
         this.department = department;
     }
 
+    public String getSchoolCode() {
+        return schoolCode;
+    }
+
+    public void setSchoolCode(String schoolCode) {
+        this.schoolCode = schoolCode;
+    }
+
     public List<Student> getStudents() {
         return students;
     }
@@ -144,6 +176,7 @@ public class Teacher {
                 ", phoneNumber='" + phoneNumber + '\'' +
                 ", subject='" + subject + '\'' +
                 ", department='" + department + '\'' +
+                ", schoolCode='" + schoolCode + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,17 @@
+package com.school.event;
+
+// Published by RosterChangeStamp when the students or teacher tables were changed other than through this node's
+// change events: by another node, or by SQL outside the application. In-memory views rebuild from the database.
+public class RemoteChangesEvent {
+
+    private final long changes;
+
+    public RemoteChangesEvent(long changes) {
+        this.changes = changes;
+    }
+
+    // Number of changes made elsewhere since the previous check
+    public long getChanges() {
+        return changes;
+    }
+}
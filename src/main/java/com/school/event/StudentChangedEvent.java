@@ -0,0 +1,23 @@
+package com.school.event;
+
+import com.school.entity.Student;
+
+// Published by StudentService after a student is saved or deleted
+public class StudentChangedEvent {
+
+    private final Student student;
+    private final boolean deleted;
+
+    public StudentChangedEvent(Student student, boolean deleted) {
+        this.student = student;
+        this.deleted = deleted;
+    }
+
+    public Student getStudent() {
+        return student;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+}
@@ -0,0 +1,17 @@
+package com.school.event;
+
+import java.util.List;
+
+// Published by StudentArchiveService after a batch of students was moved to the archive table
+public class StudentsArchivedEvent {
+
+    private final List<Long> studentIds;
+
+    public StudentsArchivedEvent(List<Long> studentIds) {
+        this.studentIds = studentIds;
+    }
+
+    public List<Long> getStudentIds() {
+        return studentIds;
+    }
+}
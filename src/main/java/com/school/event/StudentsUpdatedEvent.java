@@ -0,0 +1,17 @@
+package com.school.event;
+
+import java.util.List;
+
+// Published after a set-based update changed a batch of students, e.g. a cohort transition chunk
+public class StudentsUpdatedEvent {
+
+    private final List<Long> studentIds;
+
+    public StudentsUpdatedEvent(List<Long> studentIds) {
+        this.studentIds = studentIds;
+    }
+
+    public List<Long> getStudentIds() {
+        return studentIds;
+    }
+}
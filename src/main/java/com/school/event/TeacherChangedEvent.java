@@ -0,0 +1,23 @@
+package com.school.event;
+
+import com.school.entity.Teacher;
+
+// Published by TeacherService after a teacher is saved or deleted
+public class TeacherChangedEvent {
+
+    private final Teacher teacher;
+    private final boolean deleted;
+
+    public TeacherChangedEvent(Teacher teacher, boolean deleted) {
+        this.teacher = teacher;
+        this.deleted = deleted;
+    }
+
+    public Teacher getTeacher() {
+        return teacher;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+}
@@ -0,0 +1,13 @@
+package com.school.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+// A response body written straight to the response with Jackson's streaming generator.
+// writeTo runs while the response is being written, so rows can be read from the database as they are sent.
+@FunctionalInterface
+public interface JsonStreamBody {
+
+    void writeTo(JsonGenerator generator) throws IOException;
+}
@@ -0,0 +1,77 @@
+package com.school.json;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Writes JsonStreamBody responses through a generator on the servlet output stream.
+// The generator comes from the factory of the negotiated media type, so the same body can be written as
+// JSON, CBOR or Smile.
+public class JsonStreamBodyConverter extends AbstractHttpMessageConverter<JsonStreamBody> {
+
+    private static final Logger log = LoggerFactory.getLogger(JsonStreamBodyConverter.class);
+
+    private final Map<MediaType, JsonFactory> factories;
+
+    // Factories by media type; the first one is used when the content type is not set
+    public JsonStreamBodyConverter(Map<MediaType, JsonFactory> factories) {
+        super(factories.keySet().toArray(new MediaType[0]));
+        this.factories = new LinkedHashMap<>(factories);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return JsonStreamBody.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected JsonStreamBody readInternal(Class<? extends JsonStreamBody> clazz, HttpInputMessage inputMessage)
+            throws HttpMessageNotReadableException {
+        throw new HttpMessageNotReadableException("JsonStreamBody is write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(JsonStreamBody body, HttpOutputMessage outputMessage) throws IOException {
+        JsonFactory factory = factoryFor(outputMessage.getHeaders().getContentType());
+        try (JsonGenerator generator = factory.createGenerator(outputMessage.getBody(), JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            try {
+                body.writeTo(generator);
+            } catch (IOException | RuntimeException e) {
+                // The status and part of the body may already be sent. Leave the open arrays and objects unclosed,
+                // so the client sees a malformed body rather than a complete but shorter list, and log the failure.
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                log.error("Streaming a {} response failed, the client gets a truncated body",
+                        factory.getFormatName(), e);
+                throw e;
+            }
+        }
+    }
+
+    private JsonFactory factoryFor(MediaType contentType) {
+        if (contentType != null) {
+            for (Map.Entry<MediaType, JsonFactory> entry : factories.entrySet()) {
+                if (entry.getKey().isCompatibleWith(contentType)) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return factories.values().iterator().next();
+    }
+}
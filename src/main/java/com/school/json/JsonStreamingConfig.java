@@ -0,0 +1,56 @@
+package com.school.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Response and request encodings besides JSON: CBOR (application/cbor) and Smile (application/x-jackson-smile).
+// Both are built from the application's Jackson configuration, so they carry the same properties as the JSON.
+// Streamed bodies are written with the factories of those same mappers, so spring.jackson.* generator settings
+// apply to them as well.
+@Configuration
+public class JsonStreamingConfig implements WebMvcConfigurer {
+
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        Map<MediaType, JsonFactory> factories = new LinkedHashMap<>();
+        factories.put(MediaType.APPLICATION_JSON, objectMapper.getFactory());
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter instanceof MappingJackson2CborHttpMessageConverter cbor) {
+                factories.putIfAbsent(MediaType.APPLICATION_CBOR, cbor.getObjectMapper().getFactory());
+            } else if (converter instanceof MappingJackson2SmileHttpMessageConverter smile) {
+                factories.putIfAbsent(APPLICATION_SMILE, smile.getObjectMapper().getFactory());
+            }
+        }
+        converters.add(0, new JsonStreamBodyConverter(factories));
+    }
+}
@@ -0,0 +1,167 @@
+package com.school.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Writes student rows as the same JSON array the Student entity serializes to, one row at a time, and teacher rows
+// joined with their students as the JSON array of Teacher entities with their students.
+// Field names are pre-encoded once, and enrollment dates, which repeat across a cohort, are encoded once per date.
+@Component
+public class StudentJsonWriter {
+
+    // Column order of the student rows, see StudentRepo.streamJsonColumns
+    public static final int ID = 0;
+    public static final int FIRST_NAME = 1;
+    public static final int LAST_NAME = 2;
+    public static final int EMAIL = 3;
+    public static final int PHONE_NUMBER = 4;
+    public static final int ENROLLMENT_DATE = 5;
+    public static final int GRADE_LEVEL = 6;
+    public static final int STUDENT_ID = 7;
+    public static final int SCHOOL_CODE = 8;
+
+    // Column order of the teacher rows, see TeacherRepo.streamJsonColumnsWithStudents; each row goes on with the
+    // columns of one of the teacher's students, all null for a teacher without students
+    public static final int TEACHER_ID = 0;
+    public static final int TEACHER_FIRST_NAME = 1;
+    public static final int TEACHER_LAST_NAME = 2;
+    public static final int TEACHER_EMAIL = 3;
+    public static final int TEACHER_PHONE_NUMBER = 4;
+    public static final int TEACHER_SUBJECT = 5;
+    public static final int TEACHER_DEPARTMENT = 6;
+    public static final int TEACHER_SCHOOL_CODE = 7;
+    public static final int TEACHER_STUDENT = 8;
+
+    private static final SerializedString ID_NAME = new SerializedString("id");
+    private static final SerializedString FIRST_NAME_NAME = new SerializedString("firstName");
+    private static final SerializedString LAST_NAME_NAME = new SerializedString("lastName");
+    private static final SerializedString EMAIL_NAME = new SerializedString("email");
+    private static final SerializedString PHONE_NUMBER_NAME = new SerializedString("phoneNumber");
+    private static final SerializedString ENROLLMENT_DATE_NAME = new SerializedString("enrollmentDate");
+    private static final SerializedString GRADE_LEVEL_NAME = new SerializedString("gradeLevel");
+    private static final SerializedString STUDENT_ID_NAME = new SerializedString("studentId");
+    private static final SerializedString SCHOOL_CODE_NAME = new SerializedString("schoolCode");
+    private static final SerializedString SUBJECT_NAME = new SerializedString("subject");
+    private static final SerializedString DEPARTMENT_NAME = new SerializedString("department");
+    private static final SerializedString STUDENTS_NAME = new SerializedString("students");
+
+    private static final int MAX_CACHED_DATES = 4096;
+
+    // Write every row of the stream as one JSON array; rows are not kept after they are written
+    public void writeArray(JsonGenerator generator, Stream<Object[]> rows) throws IOException {
+        Map<LocalDate, SerializedString> dates = new HashMap<>();
+        generator.writeStartArray();
+        try {
+            rows.forEach(row -> {
+                try {
+                    writeStudent(generator, row, 0, dates);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.writeEndArray();
+    }
+
+    // Write teacher rows ordered by teacher id, then student id, as one JSON array of teachers with their students
+    public void writeTeachersWithStudents(JsonGenerator generator, Stream<Object[]> rows) throws IOException {
+        Map<LocalDate, SerializedString> dates = new HashMap<>();
+        Long[] teacher = new Long[1];
+        generator.writeStartArray();
+        try {
+            rows.forEach(row -> {
+                try {
+                    Long teacherId = (Long) row[TEACHER_ID];
+                    if (!teacherId.equals(teacher[0])) {
+                        if (teacher[0] != null) {
+                            generator.writeEndArray();
+                            generator.writeEndObject();
+                        }
+                        writeTeacher(generator, row);
+                        teacher[0] = teacherId;
+                    }
+                    if (row[TEACHER_STUDENT + ID] != null) {
+                        writeStudent(generator, row, TEACHER_STUDENT, dates);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (teacher[0] != null) {
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    // Teacher fields up to the opened students array
+    private void writeTeacher(JsonGenerator generator, Object[] row) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(ID_NAME);
+        generator.writeNumber((Long) row[TEACHER_ID]);
+        writeString(generator, FIRST_NAME_NAME, (String) row[TEACHER_FIRST_NAME]);
+        writeString(generator, LAST_NAME_NAME, (String) row[TEACHER_LAST_NAME]);
+        writeString(generator, EMAIL_NAME, (String) row[TEACHER_EMAIL]);
+        writeString(generator, PHONE_NUMBER_NAME, (String) row[TEACHER_PHONE_NUMBER]);
+        writeString(generator, SUBJECT_NAME, (String) row[TEACHER_SUBJECT]);
+        writeString(generator, DEPARTMENT_NAME, (String) row[TEACHER_DEPARTMENT]);
+        writeString(generator, SCHOOL_CODE_NAME, (String) row[TEACHER_SCHOOL_CODE]);
+        generator.writeFieldName(STUDENTS_NAME);
+        generator.writeStartArray();
+    }
+
+    // Student whose columns start at offset in the row
+    private void writeStudent(JsonGenerator generator, Object[] row, int offset,
+                              Map<LocalDate, SerializedString> dates) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(ID_NAME);
+        generator.writeNumber((Long) row[offset + ID]);
+        writeString(generator, FIRST_NAME_NAME, (String) row[offset + FIRST_NAME]);
+        writeString(generator, LAST_NAME_NAME, (String) row[offset + LAST_NAME]);
+        writeString(generator, EMAIL_NAME, (String) row[offset + EMAIL]);
+        writeString(generator, PHONE_NUMBER_NAME, (String) row[offset + PHONE_NUMBER]);
+
+        generator.writeFieldName(ENROLLMENT_DATE_NAME);
+        LocalDate enrollmentDate = (LocalDate) row[offset + ENROLLMENT_DATE];
+        if (enrollmentDate == null) {
+            generator.writeNull();
+        } else {
+            SerializedString date = dates.get(enrollmentDate);
+            if (date == null) {
+                if (dates.size() == MAX_CACHED_DATES) {
+                    dates.clear();
+                }
+                date = new SerializedString(enrollmentDate.toString());
+                dates.put(enrollmentDate, date);
+            }
+            generator.writeString(date);
+        }
+
+        writeString(generator, GRADE_LEVEL_NAME, (String) row[offset + GRADE_LEVEL]);
+        writeString(generator, STUDENT_ID_NAME, (String) row[offset + STUDENT_ID]);
+        writeString(generator, SCHOOL_CODE_NAME, (String) row[offset + SCHOOL_CODE]);
+        generator.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator generator, SerializedString name, String value) throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value);
+        }
+    }
+}
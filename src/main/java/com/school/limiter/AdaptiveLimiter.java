@@ -0,0 +1,86 @@
+package com.school.limiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Gradient-style concurrency limiter.
+// Tracks a fast and a slow moving average of request latency. While recent requests are no slower
+// than the long-term average (times the tolerance) the limit grows by roughly sqrt(limit) per update,
+// once they slow down the limit shrinks in proportion to the slowdown.
+public class AdaptiveLimiter {
+
+    private static final double SHORT_WINDOW_WEIGHT = 0.1;
+    private static final double LONG_WINDOW_WEIGHT = 0.005;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double shortLatency;
+    private double longLatency;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    // Take a slot if one is free
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Give the slot back and feed the observed latency into the limit
+    public void release(long latencyNanos) {
+        // Requests in flight when this one finished, counting itself
+        int inFlightAtRelease = inFlight.getAndDecrement();
+        update(latencyNanos, inFlightAtRelease);
+    }
+
+    private synchronized void update(long latencyNanos, int inFlightAtRelease) {
+        if (shortLatency == 0) {
+            shortLatency = latencyNanos;
+            longLatency = latencyNanos;
+            return;
+        }
+
+        shortLatency += (latencyNanos - shortLatency) * SHORT_WINDOW_WEIGHT;
+        longLatency += (latencyNanos - longLatency) * LONG_WINDOW_WEIGHT;
+
+        // Latency recovered below the long-term average: let the average follow it down faster
+        if (longLatency > shortLatency * 2) {
+            longLatency *= 0.95;
+        }
+
+        // Requests that finished well below the limit say nothing about whether the limit is too low
+        if (inFlightAtRelease < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longLatency / shortLatency));
+        double queueSize = Math.sqrt(limit);
+        double newLimit = limit * gradient + queueSize;
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
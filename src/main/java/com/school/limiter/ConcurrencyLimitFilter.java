@@ -0,0 +1,68 @@
+package com.school.limiter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Sheds load on the student and teacher endpoints once the adaptive limit for the route class is reached
+@Component
+@ConditionalOnProperty(prefix = "school.limiter", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final Map<RouteClass, AdaptiveLimiter> limiters = new EnumMap<>(RouteClass.class);
+
+    private final LimiterProperties properties;
+
+    @Autowired
+    public ConcurrencyLimitFilter(LimiterProperties properties) {
+        this.properties = properties;
+        for (RouteClass routeClass : RouteClass.values()) {
+            LimiterProperties.Route route = properties.getRoute(routeClass);
+            limiters.put(routeClass, new AdaptiveLimiter(route.getInitialLimit(), route.getMinLimit(),
+                    route.getMaxLimit(), route.getTolerance()));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RouteClass routeClass = RouteClass.classify(request);
+        if (routeClass == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        AdaptiveLimiter limiter = limiters.get(routeClass);
+        if (!limiter.tryAcquire()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER,
+                    String.valueOf(properties.getRoute(routeClass).getRetryAfterSeconds()));
+            response.setContentType("text/plain");
+            response.getWriter().write("Server is busy, please retry later");
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    // Current limit for a route class
+    public AdaptiveLimiter getLimiter(RouteClass routeClass) {
+        return limiters.get(routeClass);
+    }
+}
@@ -0,0 +1,91 @@
+package com.school.limiter;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "school.limiter")
+public class LimiterProperties {
+
+    private boolean enabled = true;
+
+    private Map<RouteClass, Route> routes = new EnumMap<>(RouteClass.class);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Map<RouteClass, Route> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(Map<RouteClass, Route> routes) {
+        this.routes = routes;
+    }
+
+    // Settings for a route class, falling back to defaults when not configured
+    public Route getRoute(RouteClass routeClass) {
+        return routes.getOrDefault(routeClass, new Route());
+    }
+
+    public static class Route {
+
+        // Limit used before any latency has been observed
+        private int initialLimit = 20;
+
+        private int minLimit = 2;
+
+        private int maxLimit = 200;
+
+        // How much slower than the long-term latency recent requests may get before the limit shrinks
+        private double tolerance = 1.5;
+
+        // Value of the Retry-After header sent with rejected requests
+        private int retryAfterSeconds = 1;
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public void setTolerance(double tolerance) {
+            this.tolerance = tolerance;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public void setRetryAfterSeconds(int retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+}
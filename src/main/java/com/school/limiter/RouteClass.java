@@ -0,0 +1,46 @@
+package com.school.limiter;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+// Cost classes used to give each kind of request its own concurrency limit
+public enum RouteClass {
+
+    // Lookups of a single row by id, email, student ID, plus exists/count checks
+    POINT_READ,
+
+    // Endpoints returning lists of rows
+    LIST_SCAN,
+
+    // POST, PUT, PATCH and DELETE requests
+    WRITE;
+
+    // Classify a request against /student or /teacher, or return null for anything else. HEAD costs what the GET
+    // costs; OPTIONS is answered without touching the database.
+    public static RouteClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith("/student") && !path.startsWith("/teacher")) {
+            return null;
+        }
+
+        String method = request.getMethod();
+        if ("OPTIONS".equals(method)) {
+            return POINT_READ;
+        }
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return WRITE;
+        }
+
+        String[] segments = path.split("/");
+        String last = segments[segments.length - 1];
+        if (last.equals("exists") || last.equals("count")) {
+            return POINT_READ;
+        }
+        if (segments.length == 3 && last.chars().allMatch(Character::isDigit)) {
+            return POINT_READ;
+        }
+        if (segments.length == 4 && (segments[2].equals("email") || segments[2].equals("student-id"))) {
+            return POINT_READ;
+        }
+        return LIST_SCAN;
+    }
+}
@@ -0,0 +1,91 @@
+package com.school.projection;
+
+import com.school.entity.ArchivedStudent;
+import com.school.entity.Student;
+import com.school.entity.Teacher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Fields a client may request with fields= for one entity, mapped to the attribute path selecting them.
+// Only plain columns are listed, so a projection never joins or loads an association.
+public class FieldWhitelist {
+
+    public static final FieldWhitelist STUDENT = new FieldWhitelist(Student.class)
+            .field("id", "id")
+            .field("firstName", "firstName")
+            .field("lastName", "lastName")
+            .field("email", "email")
+            .field("phoneNumber", "phoneNumber")
+            .field("enrollmentDate", "enrollmentDate")
+            .field("gradeLevel", "gradeLevel")
+            .field("studentId", "studentId")
+            .field("schoolCode", "schoolCode")
+            .field("teacherId", "teacher.id");
+
+    // Archived students answer the same fields as active ones
+    public static final FieldWhitelist ARCHIVED_STUDENT = new FieldWhitelist(ArchivedStudent.class)
+            .field("id", "id")
+            .field("firstName", "firstName")
+            .field("lastName", "lastName")
+            .field("email", "email")
+            .field("phoneNumber", "phoneNumber")
+            .field("enrollmentDate", "enrollmentDate")
+            .field("gradeLevel", "gradeLevel")
+            .field("studentId", "studentId")
+            .field("schoolCode", "schoolCode")
+            .field("teacherId", "teacherId");
+
+    public static final FieldWhitelist TEACHER = new FieldWhitelist(Teacher.class)
+            .field("id", "id")
+            .field("firstName", "firstName")
+            .field("lastName", "lastName")
+            .field("email", "email")
+            .field("phoneNumber", "phoneNumber")
+            .field("subject", "subject")
+            .field("department", "department")
+            .field("schoolCode", "schoolCode");
+
+    private final Class<?> entityType;
+    private final Map<String, String[]> paths = new LinkedHashMap<>();
+
+    private FieldWhitelist(Class<?> entityType) {
+        this.entityType = entityType;
+    }
+
+    private FieldWhitelist field(String name, String path) {
+        paths.put(name, path.split("\\."));
+        return this;
+    }
+
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+
+    // Parse a fields= value such as "id,firstName,lastName" into field names in the order requested, each once
+    public List<String> parse(String fields) {
+        List<String> requested = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!paths.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field " + name + ", allowed fields are " + paths.keySet());
+            }
+            if (!requested.contains(name)) {
+                requested.add(name);
+            }
+        }
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("No fields requested, allowed fields are " + paths.keySet());
+        }
+        return requested;
+    }
+
+    String[] pathOf(String field) {
+        return paths.get(field);
+    }
+}
@@ -0,0 +1,121 @@
+package com.school.projection;
+
+import com.school.db.QueryCategory;
+import com.school.db.StatementTimeoutAspect;
+import com.school.db.StatementTimeoutProperties;
+import com.school.shard.ShardExecutor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Runs tuple queries selecting only the requested columns of an entity.
+// Rows come back as field name -> value maps, so no entity is created, managed or dirty-checked. With shards and a
+// request that names no school, findAll reads the rows of every shard (see ShardExecutor); findById reads the
+// current shard, the services look it up on every shard.
+@Component
+public class SparseFieldQuery {
+
+    private static final String ID = "id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private StatementTimeoutProperties timeouts;
+
+    // Absent where only the projection is wired up
+    @Autowired
+    private ObjectProvider<ShardExecutor> shardExecutor;
+
+    // Requested fields of every row, ordered by id
+    public List<Map<String, Object>> findAll(FieldWhitelist whitelist, List<String> fields) {
+        ShardExecutor executor = shardExecutor.getIfAvailable();
+        if (executor == null || !executor.isScatterRead()) {
+            return findAllOnShard(whitelist, fields);
+        }
+        // The shards' rows are merged by id, which is read along when not requested
+        boolean withId = fields.contains(ID);
+        List<String> read = new ArrayList<>(fields);
+        if (!withId) {
+            read.add(0, ID);
+        }
+        List<Map<String, Object>> rows = executor.gather(shard -> findAllOnShard(whitelist, read),
+                Comparator.comparing(row -> (Long) row.get(ID)));
+        if (!withId) {
+            rows.forEach(row -> row.remove(ID));
+        }
+        return rows;
+    }
+
+    private List<Map<String, Object>> findAllOnShard(FieldWhitelist whitelist, List<String> fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<?> root = query.from(whitelist.getEntityType());
+        query.multiselect(selections(root, whitelist, fields)).orderBy(cb.asc(root.get("id")));
+
+        List<Tuple> tuples = withTimeout(entityManager.createQuery(query), "SparseFieldQuery.findAll",
+                QueryCategory.LIST_SCAN).getResultList();
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            rows.add(toRow(tuple, fields));
+        }
+        return rows;
+    }
+
+    // Requested fields of the row with an id
+    public Optional<Map<String, Object>> findById(FieldWhitelist whitelist, List<String> fields, Long id) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<?> root = query.from(whitelist.getEntityType());
+        query.multiselect(selections(root, whitelist, fields)).where(cb.equal(root.get("id"), id));
+
+        List<Tuple> tuples = withTimeout(entityManager.createQuery(query), "SparseFieldQuery.findById",
+                QueryCategory.POINT_READ).getResultList();
+        return tuples.isEmpty() ? Optional.empty() : Optional.of(toRow(tuples.get(0), fields));
+    }
+
+    private static List<Selection<?>> selections(Root<?> root, FieldWhitelist whitelist, List<String> fields) {
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            Path<?> path = root;
+            for (String attribute : whitelist.pathOf(field)) {
+                path = path.get(attribute);
+            }
+            selections.add(path.alias(field));
+        }
+        return selections;
+    }
+
+    private static Map<String, Object> toRow(Tuple tuple, List<String> fields) {
+        Map<String, Object> row = new LinkedHashMap<>((int) (fields.size() / 0.75f) + 1);
+        for (int i = 0; i < fields.size(); i++) {
+            row.put(fields.get(i), tuple.get(i));
+        }
+        return row;
+    }
+
+    private <T> TypedQuery<T> withTimeout(TypedQuery<T> query, String key, QueryCategory category) {
+        Duration timeout = timeouts.isEnabled() ? timeouts.resolve(key, category) : null;
+        if (timeout != null) {
+            query.setHint(StatementTimeoutAspect.QUERY_TIMEOUT_HINT, StatementTimeoutAspect.timeoutHint(timeout));
+        }
+        return query;
+    }
+}
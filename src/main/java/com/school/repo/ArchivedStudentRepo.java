@@ -0,0 +1,46 @@
+package com.school.repo;
+
+import com.school.db.QueryCategory;
+import com.school.db.StatementTimeout;
+import com.school.entity.ArchivedStudent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ArchivedStudentRepo extends JpaRepository<ArchivedStudent, Long> {
+
+    // Find archived student by email
+    @StatementTimeout(QueryCategory.POINT_READ)
+    Optional<ArchivedStudent> findByEmail(String email);
+
+    // Find archived student by student ID
+    @StatementTimeout(QueryCategory.POINT_READ)
+    Optional<ArchivedStudent> findByStudentId(String studentId);
+
+    // Find archived students enrolled between dates
+    List<ArchivedStudent> findByEnrollmentDateBetween(LocalDate startDate, LocalDate endDate);
+
+    // Check if an archived student exists by email
+    boolean existsByEmail(String email);
+
+    // Check if an archived student exists by student ID
+    boolean existsByStudentId(String studentId);
+
+    // Copy a batch of students into the archive table
+    @Modifying
+    @StatementTimeout(QueryCategory.WRITE)
+    @Query(value = "INSERT INTO students_archive (id, first_name, last_name, email, phone_number, enrollment_date, " +
+            "grade_level_code, student_id, teacher_id, school_code, left_on, archived_on) " +
+            "SELECT id, first_name, last_name, email, phone_number, enrollment_date, " +
+            "grade_level_code, student_id, teacher_id, school_code, left_on, :archivedOn FROM students " +
+            "WHERE id IN (:ids)",
+            nativeQuery = true)
+    int copyFromStudents(@Param("ids") List<Long> ids, @Param("archivedOn") LocalDate archivedOn);
+}
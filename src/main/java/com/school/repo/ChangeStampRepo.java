@@ -0,0 +1,30 @@
+package com.school.repo;
+
+import com.school.entity.ChangeStamp;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChangeStampRepo extends JpaRepository<ChangeStamp, String> {
+
+    // Current value of a stamp
+    @Query("SELECT c.stamp FROM ChangeStamp c WHERE c.name = :name")
+    Optional<Long> findStamp(@Param("name") String name);
+
+    // Rows of a striped stamp: the row called name and those called name.<stripe>
+    @Query("SELECT c FROM ChangeStamp c WHERE c.name = :name OR c.name LIKE CONCAT(:name, '.%')")
+    List<ChangeStamp> findStripes(@Param("name") String name);
+
+    // Bump a stamp in the caller's transaction; returns 0 if the stamp row does not exist yet
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChangeStamp c SET c.stamp = c.stamp + 1 WHERE c.name = :name")
+    int increment(@Param("name") String name);
+}
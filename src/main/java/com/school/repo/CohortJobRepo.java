@@ -0,0 +1,26 @@
+package com.school.repo;
+
+import com.school.cohort.CohortJobStatus;
+import com.school.entity.CohortJob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CohortJobRepo extends JpaRepository<CohortJob, Long> {
+
+    // Find jobs in any of the given states, oldest first
+    List<CohortJob> findByStatusInOrderById(Collection<CohortJobStatus> statuses);
+
+    // Lock a job row for the length of a chunk transaction, so a chunk is never applied twice
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM CohortJob j WHERE j.id = :id")
+    Optional<CohortJob> findByIdForUpdate(@Param("id") Long id);
+}
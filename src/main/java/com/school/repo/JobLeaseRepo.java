@@ -0,0 +1,26 @@
+package com.school.repo;
+
+import com.school.entity.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface JobLeaseRepo extends JpaRepository<JobLease, String> {
+
+    // Take or renew a lease if it is free, expired or already ours; returns 0 if another node holds it
+    @Modifying
+    @Query("UPDATE JobLease l SET l.holder = :holder, l.expiresAt = :until " +
+            "WHERE l.name = :name AND (l.holder = :holder OR l.holder IS NULL OR l.expiresAt < :now)")
+    int acquire(@Param("name") String name, @Param("holder") String holder, @Param("now") Instant now,
+                @Param("until") Instant until);
+
+    // Give up a lease we hold
+    @Modifying
+    @Query("UPDATE JobLease l SET l.holder = NULL WHERE l.name = :name AND l.holder = :holder")
+    int release(@Param("name") String name, @Param("holder") String holder);
+}
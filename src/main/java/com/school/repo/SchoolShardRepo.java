@@ -0,0 +1,9 @@
+package com.school.repo;
+
+import com.school.entity.SchoolShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SchoolShardRepo extends JpaRepository<SchoolShard, String> {
+}
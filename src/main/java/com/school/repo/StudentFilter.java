@@ -0,0 +1,133 @@
+package com.school.repo;
+
+import com.school.entity.Student;
+import com.school.entity.Teacher;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Criteria of the student filter endpoint; every criterion left null is ignored.
+// All criteria are compiled into one WHERE clause. Grade level, teacher, enrollment date, subject and department
+// compare the indexed columns directly; the teacher table is only joined when a teacher column is filtered on.
+public class StudentFilter {
+
+    private String gradeLevel;
+    private String subject;
+    private String department;
+    private Long teacherId;
+    private Boolean hasTeacher;
+    private LocalDate enrolledFrom;
+    private LocalDate enrolledTo;
+    private String name;
+
+    public Specification<Student> toSpecification() {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (gradeLevel != null) {
+                predicates.add(cb.equal(root.get("gradeLevel"), gradeLevel));
+            }
+            if (teacherId != null) {
+                predicates.add(cb.equal(root.get("teacher").get("id"), teacherId));
+            }
+            if (hasTeacher != null) {
+                predicates.add(hasTeacher ? cb.isNotNull(root.get("teacher")) : cb.isNull(root.get("teacher")));
+            }
+            if (enrolledFrom != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("enrollmentDate"), enrolledFrom));
+            }
+            if (enrolledTo != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("enrollmentDate"), enrolledTo));
+            }
+            if (subject != null || department != null) {
+                Join<Student, Teacher> teacher = root.join("teacher", JoinType.INNER);
+                if (subject != null) {
+                    predicates.add(cb.equal(teacher.get("subject"), subject));
+                }
+                if (department != null) {
+                    predicates.add(cb.equal(teacher.get("department"), department));
+                }
+            }
+            if (name != null && !name.isBlank()) {
+                String pattern = "%" + escapeLike(name.trim().toLowerCase()) + "%";
+                predicates.add(cb.or(
+                        cb.like(cb.lower(root.get("firstName")), pattern, '\\'),
+                        cb.like(cb.lower(root.get("lastName")), pattern, '\\')));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public String getGradeLevel() {
+        return gradeLevel;
+    }
+
+    public void setGradeLevel(String gradeLevel) {
+        this.gradeLevel = gradeLevel;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    public Long getTeacherId() {
+        return teacherId;
+    }
+
+    public void setTeacherId(Long teacherId) {
+        this.teacherId = teacherId;
+    }
+
+    public Boolean getHasTeacher() {
+        return hasTeacher;
+    }
+
+    public void setHasTeacher(Boolean hasTeacher) {
+        this.hasTeacher = hasTeacher;
+    }
+
+    public LocalDate getEnrolledFrom() {
+        return enrolledFrom;
+    }
+
+    public void setEnrolledFrom(LocalDate enrolledFrom) {
+        this.enrolledFrom = enrolledFrom;
+    }
+
+    public LocalDate getEnrolledTo() {
+        return enrolledTo;
+    }
+
+    public void setEnrolledTo(LocalDate enrolledTo) {
+        this.enrolledTo = enrolledTo;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
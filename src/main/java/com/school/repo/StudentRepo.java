@@ -1,22 +1,36 @@
 package com.school.repo;
 
+import com.school.db.QueryCategory;
+import com.school.db.StatementTimeout;
 import com.school.entity.Student;
+import com.school.entity.Teacher;
+import com.school.roster.StudentRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface StudentRepo extends JpaRepository<Student,Long> {
+public interface StudentRepo extends JpaRepository<Student,Long>, JpaSpecificationExecutor<Student> {
 
     // Find student by email
+    @StatementTimeout(QueryCategory.POINT_READ)
     Optional<Student> findByEmail(String email);
 
     // Find student by student ID
+    @StatementTimeout(QueryCategory.POINT_READ)
     Optional<Student> findByStudentId(String studentId);
 
     // Find students by grade level
@@ -29,6 +43,7 @@ public interface StudentRepo extends JpaRepository<Student,Long> {
     List<Student> findByFirstNameAndLastName(String firstName, String lastName);
 
     // Find students by first name or last name containing (case insensitive)
+    @StatementTimeout(QueryCategory.SEARCH)
     List<Student> findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(
             String firstName, String lastName);
 
@@ -62,4 +77,76 @@ public interface StudentRepo extends JpaRepository<Student,Long> {
     // Count students by teacher
     @Query("SELECT COUNT(s) FROM Student s WHERE s.teacher.id = :teacherId")
     long countByTeacherId(@Param("teacherId") Long teacherId);
+
+    // Stream every student as a compact row for the roster read model
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.school.roster.StudentRow(s.id, s.firstName, s.lastName, s.email, s.phoneNumber, " +
+            "s.enrollmentDate, s.gradeLevel, s.studentId, t.id, s.schoolCode) FROM Student s LEFT JOIN s.teacher t")
+    Stream<StudentRow> streamRosterRows();
+
+    // Stream the compact rows of one id range, for the parallel roster warm-up
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.school.roster.StudentRow(s.id, s.firstName, s.lastName, s.email, s.phoneNumber, " +
+            "s.enrollmentDate, s.gradeLevel, s.studentId, t.id, s.schoolCode) FROM Student s LEFT JOIN s.teacher t " +
+            "WHERE s.id BETWEEN :fromId AND :toId")
+    Stream<StudentRow> streamRosterRowsBetween(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query("SELECT MIN(s.id) FROM Student s")
+    Long findMinId();
+
+    @Query("SELECT MAX(s.id) FROM Student s")
+    Long findMaxId();
+
+    // Stream the columns of every student, ordered by id, for the streaming JSON writer.
+    // Column order matches the constants in com.school.json.StudentJsonWriter.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT s.id, s.firstName, s.lastName, s.email, s.phoneNumber, s.enrollmentDate, s.gradeLevel, " +
+            "s.studentId, s.schoolCode FROM Student s ORDER BY s.id")
+    Stream<Object[]> streamJsonColumns();
+
+    // Stream id, first name, last name and email of every student for the autocomplete index
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT s.id, s.firstName, s.lastName, s.email FROM Student s")
+    Stream<Object[]> streamNameColumns();
+
+    // Count the students of a grade, optionally only those of one teacher
+    @Query("SELECT COUNT(s) FROM Student s WHERE s.gradeLevel = :gradeLevel " +
+            "AND (:teacherId IS NULL OR s.teacher.id = :teacherId)")
+    long countCohort(@Param("gradeLevel") String gradeLevel, @Param("teacherId") Long teacherId);
+
+    // Next ids of a grade after a given id, lowest first, for the cohort transition chunks
+    @Query("SELECT s.id FROM Student s WHERE s.gradeLevel = :gradeLevel " +
+            "AND (:teacherId IS NULL OR s.teacher.id = :teacherId) AND s.id > :afterId ORDER BY s.id")
+    List<Long> findCohortIdsAfter(@Param("gradeLevel") String gradeLevel, @Param("teacherId") Long teacherId,
+                                  @Param("afterId") long afterId, Limit limit);
+
+    // Set the grade level of a chunk of students
+    @Modifying
+    @Query("UPDATE Student s SET s.gradeLevel = :gradeLevel WHERE s.id IN :ids")
+    int updateGradeLevel(@Param("ids") List<Long> ids, @Param("gradeLevel") String gradeLevel);
+
+    // Graduate a chunk of students: set their grade level and the day they left, and unassign their teacher
+    @Modifying
+    @Query("UPDATE Student s SET s.gradeLevel = :gradeLevel, s.leftOn = :leftOn, s.teacher = NULL " +
+            "WHERE s.id IN :ids")
+    int updateGradeLevelAndClearTeacher(@Param("ids") List<Long> ids, @Param("gradeLevel") String gradeLevel,
+                                        @Param("leftOn") LocalDate leftOn);
+
+    // Assign a chunk of students to a teacher
+    @Modifying
+    @Query("UPDATE Student s SET s.teacher = :teacher WHERE s.id IN :ids")
+    int updateTeacher(@Param("ids") List<Long> ids, @Param("teacher") Teacher teacher);
+
+    // Compact rows of some students, for refreshing the roster read model after bulk updates
+    @Query("SELECT new com.school.roster.StudentRow(s.id, s.firstName, s.lastName, s.email, s.phoneNumber, " +
+            "s.enrollmentDate, s.gradeLevel, s.studentId, t.id, s.schoolCode) FROM Student s LEFT JOIN s.teacher t " +
+            "WHERE s.id IN :ids")
+    List<StudentRow> findRosterRowsByIds(@Param("ids") List<Long> ids);
+
+    // Ids of graduated students who left before a date, lowest ids first, for the archiving job. Students
+    // graduated before leftOn was recorded count as leaving when they enrolled.
+    @Query("SELECT s.id FROM Student s WHERE s.gradeLevel = :gradeLevel " +
+            "AND COALESCE(s.leftOn, s.enrollmentDate) < :date ORDER BY s.id")
+    List<Long> findIdsLeftBefore(@Param("gradeLevel") String gradeLevel, @Param("date") LocalDate date,
+                                 Pageable pageable);
 }
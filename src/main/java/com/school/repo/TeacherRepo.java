@@ -1,18 +1,38 @@
 package com.school.repo;
 
+import com.school.db.QueryCategory;
+import com.school.db.StatementTimeout;
 import com.school.entity.Teacher;
+import com.school.report.DepartmentWorkload;
+import com.school.report.TeacherWorkload;
+import com.school.roster.TeacherRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TeacherRepo extends JpaRepository<Teacher,Long> {
 
+    // Shared by the workload queries: student count per teacher, filtered by count. The department filter is a
+    // query of its own rather than an optional parameter, so it can use the department index.
+    String WORKLOAD_SELECT = "SELECT new com.school.report.TeacherWorkload(t.id, t.firstName, t.lastName, " +
+            "t.subject, t.department, COUNT(s.id)) FROM Teacher t LEFT JOIN t.students s ";
+    String WORKLOAD_GROUP = "GROUP BY t.id, t.firstName, t.lastName, t.subject, t.department " +
+            "HAVING COUNT(s.id) BETWEEN :minStudents AND :maxStudents ";
+    String IN_DEPARTMENT = "WHERE t.department = :department ";
+
     // Find teacher by email
+    @StatementTimeout(QueryCategory.POINT_READ)
     Optional<Teacher> findByEmail(String email);
 
     // Find teachers by department
@@ -25,6 +45,7 @@ public interface TeacherRepo extends JpaRepository<Teacher,Long> {
     List<Teacher> findByFirstNameAndLastName(String firstName, String lastName);
 
     // Find teachers by first name or last name containing (case insensitive)
+    @StatementTimeout(QueryCategory.SEARCH)
     List<Teacher> findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(
             String firstName, String lastName);
 
@@ -36,10 +57,77 @@ public interface TeacherRepo extends JpaRepository<Teacher,Long> {
     @Query("SELECT t FROM Teacher t LEFT JOIN FETCH t.students WHERE t.department = :department")
     List<Teacher> findByDepartmentWithStudents(@Param("department") String department);
 
+    // Load the students of teachers already in the persistence context, in one query
+    @Query("SELECT t FROM Teacher t LEFT JOIN FETCH t.students WHERE t.id IN :ids")
+    List<Teacher> fetchStudents(@Param("ids") Collection<Long> ids);
+
     // Check if teacher exists by email
     boolean existsByEmail(String email);
 
     // Count teachers by department
     @Query("SELECT COUNT(t) FROM Teacher t WHERE t.department = :department")
     long countByDepartment(@Param("department") String department);
+
+    // Stream every teacher as a compact row for the roster read model
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.school.roster.TeacherRow(t.id, t.firstName, t.lastName, t.email, t.phoneNumber, " +
+            "t.subject, t.department, t.schoolCode) FROM Teacher t")
+    Stream<TeacherRow> streamRosterRows();
+
+    // Stream the compact rows of one id range, for the parallel roster warm-up
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.school.roster.TeacherRow(t.id, t.firstName, t.lastName, t.email, t.phoneNumber, " +
+            "t.subject, t.department, t.schoolCode) FROM Teacher t WHERE t.id BETWEEN :fromId AND :toId")
+    Stream<TeacherRow> streamRosterRowsBetween(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query("SELECT MIN(t.id) FROM Teacher t")
+    Long findMinId();
+
+    @Query("SELECT MAX(t.id) FROM Teacher t")
+    Long findMaxId();
+
+    // Student count per teacher, most students first. Teachers without students count 0.
+    @Query(WORKLOAD_SELECT + WORKLOAD_GROUP + "ORDER BY COUNT(s.id) DESC, t.id")
+    List<TeacherWorkload> findWorkloadsMostStudentsFirst(@Param("minStudents") long minStudents,
+                                                         @Param("maxStudents") long maxStudents,
+                                                         Limit limit);
+
+    // Student count per teacher of one department, most students first
+    @Query(WORKLOAD_SELECT + IN_DEPARTMENT + WORKLOAD_GROUP + "ORDER BY COUNT(s.id) DESC, t.id")
+    List<TeacherWorkload> findDepartmentWorkloadsMostStudentsFirst(@Param("department") String department,
+                                                                   @Param("minStudents") long minStudents,
+                                                                   @Param("maxStudents") long maxStudents,
+                                                                   Limit limit);
+
+    // Student count per teacher, fewest students first
+    @Query(WORKLOAD_SELECT + WORKLOAD_GROUP + "ORDER BY COUNT(s.id), t.id")
+    List<TeacherWorkload> findWorkloadsFewestStudentsFirst(@Param("minStudents") long minStudents,
+                                                           @Param("maxStudents") long maxStudents,
+                                                           Limit limit);
+
+    // Student count per teacher of one department, fewest students first
+    @Query(WORKLOAD_SELECT + IN_DEPARTMENT + WORKLOAD_GROUP + "ORDER BY COUNT(s.id), t.id")
+    List<TeacherWorkload> findDepartmentWorkloadsFewestStudentsFirst(@Param("department") String department,
+                                                                     @Param("minStudents") long minStudents,
+                                                                     @Param("maxStudents") long maxStudents,
+                                                                     Limit limit);
+
+    // Teacher and student counts per department
+    @Query("SELECT new com.school.report.DepartmentWorkload(t.department, COUNT(DISTINCT t.id), COUNT(s.id)) " +
+            "FROM Teacher t LEFT JOIN t.students s GROUP BY t.department ORDER BY COUNT(s.id) DESC")
+    List<DepartmentWorkload> findDepartmentWorkloads();
+
+    // Stream every teacher joined with its students, ordered by teacher id and then student id, for the streaming
+    // JSON writer. A teacher without students has one row with null student columns.
+    // Column order matches the teacher constants in com.school.json.StudentJsonWriter.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT t.id, t.firstName, t.lastName, t.email, t.phoneNumber, t.subject, t.department, t.schoolCode, " +
+            "s.id, s.firstName, s.lastName, s.email, s.phoneNumber, s.enrollmentDate, s.gradeLevel, s.studentId, " +
+            "s.schoolCode FROM Teacher t LEFT JOIN t.students s ORDER BY t.id, s.id")
+    Stream<Object[]> streamJsonColumnsWithStudents();
+
+    // Stream id, first name, last name and email of every teacher for the autocomplete index
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT t.id, t.firstName, t.lastName, t.email FROM Teacher t")
+    Stream<Object[]> streamNameColumns();
 }
@@ -0,0 +1,9 @@
+package com.school.report;
+
+// Teacher workload rolled up per department
+public record DepartmentWorkload(String department, long teacherCount, long studentCount) {
+
+    public double getAverageStudentsPerTeacher() {
+        return teacherCount == 0 ? 0 : (double) studentCount / teacherCount;
+    }
+}
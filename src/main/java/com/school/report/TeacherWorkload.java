@@ -0,0 +1,6 @@
+package com.school.report;
+
+// One row of the teacher workload report: a teacher and the number of students assigned to them
+public record TeacherWorkload(Long teacherId, String firstName, String lastName, String subject,
+                              String department, long studentCount) {
+}
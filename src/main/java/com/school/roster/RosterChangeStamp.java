@@ -0,0 +1,225 @@
+package com.school.roster;
+
+import com.school.entity.ChangeStamp;
+import com.school.event.RemoteChangesEvent;
+import com.school.event.StudentChangedEvent;
+import com.school.event.StudentsArchivedEvent;
+import com.school.event.StudentsUpdatedEvent;
+import com.school.event.TeacherChangedEvent;
+import com.school.repo.ChangeStampRepo;
+import com.school.shard.ShardContext;
+import com.school.shard.ShardDirectory;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Change stamp of the students and teacher tables, used to validate roster snapshots.
+// Every change event bumps the stamp just before its transaction commits, so the row lock is held only for
+// the commit and a rolled-back change leaves the stamp alone. Changes made with SQL outside the application
+// do not bump it; snapshots also expire after school.roster.snapshot.max-age for that reason. Each shard has a
+// stamp of its own, bumped by the changes written to it; the roster's stamp is their sum.
+// The stamp is split over school.roster.stamp-stripes rows (roster, roster.1, ...) and a transaction bumps the row
+// of its thread, so concurrent writers rarely wait on the same row lock. Nothing is bumped when neither the roster
+// nor the autocomplete index is enabled; those settings have to be the same on every node.
+// Every school.roster.refresh-interval the stamp is compared with the changes this node made: when it moved by more,
+// another node (or SQL outside the application) changed the tables and a RemoteChangesEvent tells the in-memory
+// views to rebuild. A change is counted as this node's when it bumps the stamp and uncounted if it rolls back, so
+// a remote change is at worst noticed one poll late, and a rollback at worst causes one needless rebuild.
+@Component
+public class RosterChangeStamp {
+
+    private static final Logger log = LoggerFactory.getLogger(RosterChangeStamp.class);
+
+    static final String NAME = "roster";
+
+    @Autowired
+    private ChangeStampRepo changeStampRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${school.roster.enabled:true}")
+    private boolean rosterEnabled;
+
+    @Value("${school.autocomplete.enabled:true}")
+    private boolean autocompleteEnabled;
+
+    @Value("${school.roster.stamp-stripes:8}")
+    private int stripes;
+
+    // Rebuilds run here rather than on the scheduler thread, one at a time
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "roster-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Set while a RemoteChangesEvent waits for the refresh thread; later changes are picked up by that rebuild
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+
+    // Stamp bumps made by this node, less those rolled back
+    private final AtomicLong localChanges = new AtomicLong();
+
+    // Stamp and local change count at the previous check; null until the first check
+    private long[] checked;
+
+    // Current stamp, read from the primary so it is never behind the writes it is compared with.
+    // Creates the stamp rows on first use.
+    public long current() {
+        long stamp = 0;
+        for (String shard : shardDirectory.getShardNames()) {
+            stamp += ShardContext.call(null, shard, this::currentOfShard);
+        }
+        return stamp;
+    }
+
+    private long currentOfShard() {
+        TransactionTemplate primary = new TransactionTemplate(transactionManager);
+        primary.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        List<ChangeStamp> rows = primary.execute(status -> changeStampRepository.findStripes(NAME));
+        long stamp = 0;
+        Set<String> existing = new HashSet<>();
+        for (ChangeStamp row : rows) {
+            stamp += row.getStamp();
+            existing.add(row.getName());
+        }
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            String name = stripeName(stripe);
+            if (existing.contains(name)) {
+                continue;
+            }
+            try {
+                primary.executeWithoutResult(status -> changeStampRepository.saveAndFlush(new ChangeStamp(name, 0L)));
+            } catch (DataIntegrityViolationException e) {
+                // Another node created it first; it may have been bumped since
+                stamp += primary.execute(status -> changeStampRepository.findStamp(name).orElse(0L));
+            }
+        }
+        return stamp;
+    }
+
+    private static String stripeName(int stripe) {
+        return stripe == 0 ? NAME : NAME + "." + stripe;
+    }
+
+    // Whether anything on this node reads the stamp
+    private boolean isNeeded() {
+        return rosterEnabled || autocompleteEnabled;
+    }
+
+    // Take the stamp the first remote-change check compares with, before the in-memory views start loading
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void startChecking() {
+        checkForRemoteChanges();
+    }
+
+    // Publish a RemoteChangesEvent if the stamp moved by more than this node's changes since the previous check
+    @Scheduled(fixedDelayString = "${school.roster.refresh-interval:30s}",
+            initialDelayString = "${school.roster.refresh-interval:30s}")
+    public synchronized void checkForRemoteChanges() {
+        if (!isNeeded()) {
+            return;
+        }
+        long local = localChanges.get();
+        long stamp;
+        try {
+            stamp = current();
+        } catch (RuntimeException e) {
+            log.warn("Could not read the roster change stamp, not checking for remote changes", e);
+            return;
+        }
+        long[] previous = checked;
+        checked = new long[]{stamp, local};
+        if (previous == null) {
+            return;
+        }
+        long remote = (stamp - previous[0]) - (local - previous[1]);
+        if (remote > 0) {
+            log.info("Roster tables changed {} times elsewhere since the last check, rebuilding", remote);
+            if (refreshQueued.compareAndSet(false, true)) {
+                refreshExecutor.execute(() -> {
+                    refreshQueued.set(false);
+                    eventPublisher.publishEvent(new RemoteChangesEvent(remote));
+                });
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onStudentChanged(StudentChangedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onStudentsArchived(StudentsArchivedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onStudentsUpdated(StudentsUpdatedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onTeacherChanged(TeacherChangedEvent event) {
+        bump();
+    }
+
+    private void bump() {
+        if (!isNeeded()) {
+            return;
+        }
+        int stripe = (int) (Thread.currentThread().getId() % stripes);
+        if (changeStampRepository.increment(stripeName(stripe)) == 0) {
+            return;
+        }
+        localChanges.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        localChanges.decrementAndGet();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.school.roster;
+
+import com.school.repo.StudentRepo;
+import com.school.repo.TeacherRepo;
+import com.school.shard.ShardContext;
+import com.school.shard.ShardDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.Stream;
+
+// Compares the roster read model with the database row by row and optionally repairs the differences.
+// Repairs use the database state as of the start of the check, so run them when writes are quiet. With shards
+// every shard is compared in turn.
+@Component
+public class RosterConsistencyChecker {
+
+    private static final Logger log = LoggerFactory.getLogger(RosterConsistencyChecker.class);
+
+    @Autowired
+    private RosterReadModel readModel;
+
+    @Autowired
+    private StudentRepo studentRepository;
+
+    @Autowired
+    private TeacherRepo teacherRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    public RosterConsistencyReport check(boolean repair) {
+        if (!readModel.isReady()) {
+            throw new RuntimeException("Roster read model is not loaded");
+        }
+
+        long[] modelTeacherIds = readModel.teacherIds();
+        long[] modelStudentIds = readModel.studentIds();
+        BitSet teachersSeen = new BitSet(modelTeacherIds.length);
+        BitSet studentsSeen = new BitSet(modelStudentIds.length);
+        long[] counts = new long[5];
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        for (String shard : shardDirectory.getShardNames()) {
+            ShardContext.run(null, shard, () -> readOnly.executeWithoutResult(status -> compare(repair,
+                    modelTeacherIds, modelStudentIds, teachersSeen, studentsSeen, counts)));
+        }
+
+        // Rows the model holds that the database no longer has
+        for (int i = teachersSeen.nextClearBit(0); i < modelTeacherIds.length; i = teachersSeen.nextClearBit(i + 1)) {
+            counts[4]++;
+            if (repair) {
+                readModel.removeTeacher(modelTeacherIds[i]);
+            }
+        }
+        for (int i = studentsSeen.nextClearBit(0); i < modelStudentIds.length; i = studentsSeen.nextClearBit(i + 1)) {
+            counts[4]++;
+            if (repair) {
+                readModel.removeStudent(modelStudentIds[i]);
+            }
+        }
+
+        RosterConsistencyReport report = new RosterConsistencyReport(counts[0], counts[1], counts[2], counts[3],
+                counts[4], repair);
+        if (!report.isConsistent()) {
+            log.warn("Roster read model differs from the database: {}", report);
+        }
+        return report;
+    }
+
+    // Compare one shard's rows with the model, marking the model rows seen
+    private void compare(boolean repair, long[] modelTeacherIds, long[] modelStudentIds, BitSet teachersSeen,
+                         BitSet studentsSeen, long[] counts) {
+        try (Stream<TeacherRow> rows = teacherRepository.streamRosterRows()) {
+            rows.forEach(row -> {
+                counts[0]++;
+                markSeen(modelTeacherIds, teachersSeen, row.id);
+                TeacherRow held = readModel.teacherRow(row.id);
+                if (held == null || !held.sameAs(row)) {
+                    counts[held == null ? 2 : 3]++;
+                    if (repair) {
+                        readModel.putTeacher(row);
+                    }
+                }
+            });
+        }
+        try (Stream<StudentRow> rows = studentRepository.streamRosterRows()) {
+            rows.forEach(row -> {
+                counts[1]++;
+                markSeen(modelStudentIds, studentsSeen, row.id);
+                StudentRow held = readModel.studentRow(row.id);
+                if (held == null || !held.sameAs(row)) {
+                    counts[held == null ? 2 : 3]++;
+                    if (repair) {
+                        readModel.putStudent(row);
+                    }
+                }
+            });
+        }
+    }
+
+    private static void markSeen(long[] sortedIds, BitSet seen, long id) {
+        int position = Arrays.binarySearch(sortedIds, id);
+        if (position >= 0) {
+            seen.set(position);
+        }
+    }
+}
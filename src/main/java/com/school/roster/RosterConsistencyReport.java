@@ -0,0 +1,15 @@
+package com.school.roster;
+
+// Result of comparing the roster read model with the database
+public record RosterConsistencyReport(
+        long teachersChecked,
+        long studentsChecked,
+        long missingRows,
+        long staleRows,
+        long extraRows,
+        boolean repaired) {
+
+    public boolean isConsistent() {
+        return missingRows == 0 && staleRows == 0 && extraRows == 0;
+    }
+}
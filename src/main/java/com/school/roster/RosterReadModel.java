@@ -0,0 +1,644 @@
+package com.school.roster;
+
+import com.school.entity.Student;
+import com.school.entity.Teacher;
+import com.school.event.RemoteChangesEvent;
+import com.school.event.StudentChangedEvent;
+import com.school.event.StudentsArchivedEvent;
+import com.school.event.StudentsUpdatedEvent;
+import com.school.event.TeacherChangedEvent;
+import com.school.repo.StudentRepo;
+import com.school.repo.TeacherRepo;
+import com.school.shard.ShardContext;
+import com.school.shard.ShardDirectory;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// In-memory teacher -> students roster.
+// Loaded once at startup, from a local snapshot file when its change stamp still matches the database or else by
+// scanning both tables in parallel id ranges, then kept current from the change events StudentService and
+// TeacherService publish after commit. Changes made by other nodes are not seen as events; it reloads when
+// RosterChangeStamp notices them, so it can be up to school.roster.refresh-interval behind those.
+// Until the first load finishes isReady() is false and callers use the DB. Reloads build a new roster while the
+// current one keeps serving, and swap it in once loaded.
+// With shards it holds the teachers and students of every shard.
+@Component
+public class RosterReadModel {
+
+    private static final Logger log = LoggerFactory.getLogger(RosterReadModel.class);
+
+    private static final long[] NO_STUDENTS = new long[0];
+    private static final int BATCH_SIZE = 1000;
+    private static final int RANGES_PER_THREAD = 4;
+
+    @Autowired
+    private StudentRepo studentRepository;
+
+    @Autowired
+    private TeacherRepo teacherRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RosterChangeStamp changeStamp;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Value("${school.roster.enabled:true}")
+    private boolean enabled;
+
+    @Value("${school.roster.warmup-threads:4}")
+    private int warmupThreads;
+
+    @Value("${school.roster.snapshot.enabled:false}")
+    private boolean snapshotEnabled;
+
+    @Value("${school.roster.snapshot.path:roster.snapshot}")
+    private String snapshotPath;
+
+    @Value("${school.roster.snapshot.max-age:24h}")
+    private Duration snapshotMaxAge;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Roster roster = new Roster();
+
+    // Changes applied while a new roster is being loaded; replayed onto it before it replaces the current one, as
+    // they are newer than the rows it streamed
+    private List<Consumer<Roster>> changesDuringLoad;
+
+    // Changes applied before the load that is running started
+    private long changesBeforeLoad;
+
+    private volatile boolean ready;
+
+    // Held while the roster is being loaded, so startup and reload requests never load concurrently
+    private final AtomicBoolean loading = new AtomicBoolean();
+
+    // Change stamp the roster was loaded at, and the change events applied since
+    private volatile long loadedStamp;
+    private final AtomicLong appliedChanges = new AtomicLong();
+
+    // Load the roster at startup: from the snapshot file when it is still current, otherwise from the database
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled || !loading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (!snapshotEnabled || !loadSnapshot()) {
+                load();
+            }
+        } finally {
+            loading.set(false);
+        }
+    }
+
+    // Reload the roster from the database; returns false without loading when a load is already running
+    public boolean bootstrap() {
+        if (!enabled) {
+            return false;
+        }
+        if (!loading.compareAndSet(false, true)) {
+            log.info("Roster read model is already loading, not starting another load");
+            return false;
+        }
+        try {
+            load();
+            return true;
+        } finally {
+            loading.set(false);
+        }
+    }
+
+    // Writes by other nodes never reach the change listeners below
+    @EventListener
+    public void onRemoteChanges(RemoteChangesEvent event) {
+        bootstrap();
+    }
+
+    // Load the roster from the database with parallel id-range scans, each on its own connection,
+    // then write a fresh snapshot
+    private void load() {
+        long start = System.currentTimeMillis();
+        Roster loaded = new Roster();
+        try {
+            long stamp = startLoad();
+            ExecutorService executor = Executors.newFixedThreadPool(warmupThreads, runnable -> {
+                Thread thread = new Thread(runnable, "roster-warmup");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<CompletableFuture<Void>> scans = new ArrayList<>();
+                for (String shard : shardDirectory.getShardNames()) {
+                    ShardContext.run(null, shard, () -> {
+                        scans.addAll(scanInRanges(executor, shard, teacherRepository.findMinId(),
+                                teacherRepository.findMaxId(), teacherRepository::streamRosterRowsBetween,
+                                loaded, row -> loaded.teachers.put(row.id, row)));
+                        scans.addAll(scanInRanges(executor, shard, studentRepository.findMinId(),
+                                studentRepository.findMaxId(), studentRepository::streamRosterRowsBetween,
+                                loaded, row -> loaded.students.put(row.id, row)));
+                    });
+                }
+                CompletableFuture.allOf(scans.toArray(CompletableFuture[]::new)).join();
+            } finally {
+                executor.shutdownNow();
+            }
+
+            finishLoad(loaded, stamp);
+            log.info("Roster read model loaded {} teachers and {} students in {} ms",
+                    loaded.teachers.size(), loaded.students.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            abandonLoad();
+            log.error(ready ? "Roster read model reload failed, keeping the roster loaded before"
+                    : "Roster read model bootstrap failed, roster endpoints will keep using the database", e);
+            return;
+        }
+        writeSnapshot();
+    }
+
+    // Split a shard's [minId, maxId] into warmupThreads * RANGES_PER_THREAD ranges and scan each in its own
+    // read-only transaction on the executor
+    private <T> List<CompletableFuture<Void>> scanInRanges(ExecutorService executor, String shard, Long minId,
+                                                           Long maxId, BiFunction<Long, Long, Stream<T>> scan,
+                                                           Roster loaded, Consumer<T> put) {
+        List<CompletableFuture<Void>> scans = new ArrayList<>();
+        if (minId == null) {
+            return scans;
+        }
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        long width = (maxId - minId) / ((long) warmupThreads * RANGES_PER_THREAD) + 1;
+        for (long from = minId; from <= maxId; from += width) {
+            long fromId = from;
+            long toId = Math.min(maxId, from + width - 1);
+            scans.add(CompletableFuture.runAsync(() -> ShardContext.run(null, shard,
+                    () -> readOnly.executeWithoutResult(status -> {
+                        try (Stream<T> rows = scan.apply(fromId, toId)) {
+                            loadInBatches(rows, loaded, put);
+                        }
+                    })), executor));
+        }
+        return scans;
+    }
+
+    // Load the snapshot file if it is recent and its change stamp matches the database; returns whether it did
+    private boolean loadSnapshot() {
+        Path path = Path.of(snapshotPath);
+        if (!Files.exists(path)) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            RosterSnapshot snapshot = RosterSnapshot.open(path);
+            if (snapshot.getCreatedAt().isBefore(Instant.now().minus(snapshotMaxAge))) {
+                log.info("Roster snapshot {} is older than {}, loading from the database", path, snapshotMaxAge);
+                return false;
+            }
+            long stamp = startLoad();
+            if (snapshot.getChangeStamp() != stamp) {
+                abandonLoad();
+                log.info("Roster snapshot {} is stale (change stamp {}, database {}), loading from the database",
+                        path, snapshot.getChangeStamp(), stamp);
+                return false;
+            }
+
+            Roster loaded = new Roster();
+            snapshot.read(row -> loaded.teachers.put(row.id, row), row -> loaded.students.put(row.id, row));
+            finishLoad(loaded, stamp);
+            log.info("Roster read model loaded {} teachers and {} students from snapshot {} in {} ms",
+                    snapshot.getTeacherCount(), snapshot.getStudentCount(), path,
+                    System.currentTimeMillis() - start);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            abandonLoad();
+            log.warn("Could not load roster snapshot {}, loading from the database", path, e);
+            return false;
+        }
+    }
+
+    // Write the roster to the snapshot file, if every change to the database since it was loaded has been
+    // applied here (the change stamp moved exactly by the changes this node applied)
+    @PreDestroy
+    public void writeSnapshot() {
+        if (!enabled || !snapshotEnabled || !ready) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<TeacherRow> teacherRows;
+        List<StudentRow> studentRows;
+        long expectedStamp;
+        lock.readLock().lock();
+        try {
+            expectedStamp = loadedStamp + appliedChanges.get();
+            teacherRows = new ArrayList<>(roster.teachers.size());
+            roster.teachers.forEach((id, row) -> teacherRows.add(row));
+            studentRows = new ArrayList<>(roster.students.size());
+            roster.students.forEach((id, row) -> studentRows.add(row));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Path path = Path.of(snapshotPath);
+        try {
+            long stamp = changeStamp.current();
+            if (stamp != expectedStamp) {
+                log.info("Roster changed elsewhere since it was loaded (change stamp {}, expected {}), " +
+                        "not writing snapshot {}", stamp, expectedStamp, path);
+                return;
+            }
+            RosterSnapshot.write(path, stamp, teacherRows, studentRows);
+            log.info("Wrote roster snapshot {} ({} teachers, {} students) in {} ms",
+                    path, teacherRows.size(), studentRows.size(), System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write roster snapshot {}", path, e);
+        }
+    }
+
+    // Start recording the changes applied while loading; returns the change stamp the load reads at
+    private long startLoad() {
+        lock.writeLock().lock();
+        try {
+            changesDuringLoad = new ArrayList<>();
+            changesBeforeLoad = appliedChanges.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return changeStamp.current();
+    }
+
+    // Replay the changes applied while loading onto the loaded roster and serve it from now on
+    private void finishLoad(Roster loaded, long stamp) {
+        loaded.rebuildTeacherIndex();
+        lock.writeLock().lock();
+        try {
+            for (Consumer<Roster> change : changesDuringLoad) {
+                change.accept(loaded);
+            }
+            changesDuringLoad = null;
+            roster = loaded;
+            loadedStamp = stamp;
+            appliedChanges.addAndGet(-changesBeforeLoad);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void abandonLoad() {
+        lock.writeLock().lock();
+        try {
+            changesDuringLoad = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The roster being loaded is not served yet, so its scans only exclude each other
+    private <T> void loadInBatches(Stream<T> rows, Roster loaded, Consumer<T> put) {
+        List<T> batch = new ArrayList<>(BATCH_SIZE);
+        Consumer<List<T>> flush = b -> {
+            synchronized (loaded) {
+                b.forEach(put);
+            }
+            b.clear();
+        };
+        rows.forEach(row -> {
+            batch.add(row);
+            if (batch.size() == BATCH_SIZE) {
+                flush.accept(batch);
+            }
+        });
+        flush.accept(batch);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // All teachers with their students, ordered by teacher id
+    public List<Teacher> getTeachersWithStudents() {
+        return getTeachersWithStudents(null);
+    }
+
+    // Teachers of a department (or all when null) with their students
+    public List<Teacher> getTeachersWithStudents(String department) {
+        lock.readLock().lock();
+        try {
+            List<Teacher> result = new ArrayList<>();
+            for (long teacherId : roster.teachers.sortedKeys()) {
+                TeacherRow row = roster.teachers.get(teacherId);
+                if (department == null || department.equals(row.department)) {
+                    result.add(roster.withStudents(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // A teacher with their students
+    public Optional<Teacher> getTeacher(long teacherId) {
+        lock.readLock().lock();
+        try {
+            TeacherRow row = roster.teachers.get(teacherId);
+            return row != null ? Optional.of(roster.withStudents(row)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // A student; archived students are not held here
+    public Optional<Student> getStudent(long studentId) {
+        lock.readLock().lock();
+        try {
+            StudentRow row = roster.students.get(studentId);
+            return row != null ? Optional.of(row.toStudent()) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Students of a teacher, ordered by student id
+    public List<Student> getStudentsByTeacherId(long teacherId) {
+        lock.readLock().lock();
+        try {
+            long[] studentIds = roster.studentIdsOf(teacherId);
+            List<Student> result = new ArrayList<>(studentIds.length);
+            TeacherRow teacherRow = roster.teachers.get(teacherId);
+            Teacher teacher = teacherRow != null ? teacherRow.toTeacher() : null;
+            for (long studentId : studentIds) {
+                Student student = roster.students.get(studentId).toStudent();
+                student.setTeacher(teacher);
+                result.add(student);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentChanged(StudentChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Student student = event.getStudent();
+        if (event.isDeleted()) {
+            removeStudent(student.getId());
+        } else {
+            putStudent(StudentRow.of(student));
+        }
+        appliedChanges.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentsArchived(StudentsArchivedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        for (Long studentId : event.getStudentIds()) {
+            removeStudent(studentId);
+        }
+        appliedChanges.incrementAndGet();
+    }
+
+    // Bulk updates carry only ids; reload their rows
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentsUpdated(StudentsUpdatedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        for (StudentRow row : studentRepository.findRosterRowsByIds(event.getStudentIds())) {
+            putStudent(row);
+        }
+        appliedChanges.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeacherChanged(TeacherChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Teacher teacher = event.getTeacher();
+        if (event.isDeleted()) {
+            removeTeacher(teacher.getId());
+        } else {
+            putTeacher(TeacherRow.of(teacher));
+        }
+        appliedChanges.incrementAndGet();
+    }
+
+    void putStudent(StudentRow row) {
+        apply(roster -> roster.putStudent(row));
+    }
+
+    void removeStudent(long studentId) {
+        apply(roster -> roster.removeStudent(studentId));
+    }
+
+    void putTeacher(TeacherRow row) {
+        apply(roster -> roster.putTeacher(row));
+    }
+
+    void removeTeacher(long teacherId) {
+        apply(roster -> roster.removeTeacher(teacherId));
+    }
+
+    // Rows held for the consistency checker
+    TeacherRow teacherRow(long teacherId) {
+        lock.readLock().lock();
+        try {
+            return roster.teachers.get(teacherId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    StudentRow studentRow(long studentId) {
+        lock.readLock().lock();
+        try {
+            return roster.students.get(studentId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long[] teacherIds() {
+        lock.readLock().lock();
+        try {
+            return roster.teachers.sortedKeys();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long[] studentIds() {
+        lock.readLock().lock();
+        try {
+            return roster.students.sortedKeys();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Apply a change to the roster served, and to the one being loaded once it is done
+    private void apply(Consumer<Roster> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(roster);
+            if (changesDuringLoad != null) {
+                changesDuringLoad.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Teachers and students by id, with each teacher's student ids sorted
+    private static class Roster {
+
+        private final LongObjectMap<TeacherRow> teachers = new LongObjectMap<>();
+        private final LongObjectMap<StudentRow> students = new LongObjectMap<>();
+        private final LongObjectMap<long[]> studentIdsByTeacher = new LongObjectMap<>();
+
+        void putStudent(StudentRow row) {
+            StudentRow previous = students.put(row.id, row);
+            if (previous != null && previous.teacherId != row.teacherId) {
+                unlinkStudent(previous.teacherId, row.id);
+            }
+            if (row.teacherId != 0 && (previous == null || previous.teacherId != row.teacherId)) {
+                linkStudent(row.teacherId, row.id);
+            }
+        }
+
+        void removeStudent(long studentId) {
+            StudentRow previous = students.remove(studentId);
+            if (previous != null) {
+                unlinkStudent(previous.teacherId, studentId);
+            }
+        }
+
+        void putTeacher(TeacherRow row) {
+            teachers.put(row.id, row);
+        }
+
+        void removeTeacher(long teacherId) {
+            teachers.remove(teacherId);
+
+            // Deleting a teacher unassigns their students
+            long[] studentIds = studentIdsByTeacher.remove(teacherId);
+            if (studentIds != null) {
+                for (long studentId : studentIds) {
+                    students.put(studentId, students.get(studentId).withoutTeacher());
+                }
+            }
+        }
+
+        Teacher withStudents(TeacherRow row) {
+            Teacher teacher = row.toTeacher();
+            for (long studentId : studentIdsOf(row.id)) {
+                teacher.addStudent(students.get(studentId).toStudent());
+            }
+            return teacher;
+        }
+
+        long[] studentIdsOf(long teacherId) {
+            long[] studentIds = studentIdsByTeacher.get(teacherId);
+            return studentIds != null ? studentIds : NO_STUDENTS;
+        }
+
+        private void linkStudent(long teacherId, long studentId) {
+            long[] current = studentIdsOf(teacherId);
+            int position = Arrays.binarySearch(current, studentId);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            long[] updated = new long[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, position);
+            updated[position] = studentId;
+            System.arraycopy(current, position, updated, position + 1, current.length - position);
+            studentIdsByTeacher.put(teacherId, updated);
+        }
+
+        private void unlinkStudent(long teacherId, long studentId) {
+            long[] current = studentIdsByTeacher.get(teacherId);
+            if (current == null) {
+                return;
+            }
+            int position = Arrays.binarySearch(current, studentId);
+            if (position < 0) {
+                return;
+            }
+            if (current.length == 1) {
+                studentIdsByTeacher.remove(teacherId);
+                return;
+            }
+            long[] updated = new long[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, position);
+            System.arraycopy(current, position + 1, updated, position, current.length - position - 1);
+            studentIdsByTeacher.put(teacherId, updated);
+        }
+
+        // Builds the teacher -> sorted student id arrays from the student rows in two passes
+        void rebuildTeacherIndex() {
+            studentIdsByTeacher.clear();
+            LongObjectMap<int[]> counts = new LongObjectMap<>(teachers.size());
+            students.forEach((id, row) -> {
+                if (row.teacherId != 0 && teachers.containsKey(row.teacherId)) {
+                    int[] count = counts.get(row.teacherId);
+                    if (count == null) {
+                        counts.put(row.teacherId, new int[]{1});
+                    } else {
+                        count[0]++;
+                    }
+                }
+            });
+            counts.forEach((teacherId, count) -> {
+                studentIdsByTeacher.put(teacherId, new long[count[0]]);
+                count[0] = 0;
+            });
+            students.forEach((id, row) -> {
+                if (row.teacherId != 0 && teachers.containsKey(row.teacherId)) {
+                    int[] count = counts.get(row.teacherId);
+                    studentIdsByTeacher.get(row.teacherId)[count[0]++] = id;
+                }
+            });
+            studentIdsByTeacher.forEach((teacherId, ids) -> Arrays.sort(ids));
+        }
+    }
+}
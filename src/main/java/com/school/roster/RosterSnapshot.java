@@ -0,0 +1,178 @@
+package com.school.roster;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Local file holding a copy of the roster rows, so a restarted node can load the roster from disk instead of
+// scanning the database. The file is memory-mapped when read.
+//
+// Layout (big-endian): header, then every teacher row, then every student row.
+//   header:  int magic, int version, long change stamp, long created (epoch ms),
+//            int teacher count, int student count, long CRC32 of everything after the header
+//   teacher: long id, firstName, lastName, email, phoneNumber, subject, department, schoolCode
+//   student: long id, firstName, lastName, email, phoneNumber, int enrollment epoch day, gradeLevel,
+//            studentId, long teacher id (0 = none), schoolCode
+//   strings: int UTF-8 length (-1 = null), then the bytes
+final class RosterSnapshot {
+
+    private static final int MAGIC = 0x52535450;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 40;
+
+    private final long changeStamp;
+    private final Instant createdAt;
+    private final int teacherCount;
+    private final int studentCount;
+    private final ByteBuffer body;
+
+    private RosterSnapshot(long changeStamp, Instant createdAt, int teacherCount, int studentCount, ByteBuffer body) {
+        this.changeStamp = changeStamp;
+        this.createdAt = createdAt;
+        this.teacherCount = teacherCount;
+        this.studentCount = studentCount;
+        this.body = body;
+    }
+
+    // Map a snapshot file and check its header and checksum
+    static RosterSnapshot open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Roster snapshot " + path + " has an invalid size: " + size);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Roster snapshot " + path + " has an unknown format");
+        }
+        long changeStamp = buffer.getLong();
+        Instant createdAt = Instant.ofEpochMilli(buffer.getLong());
+        int teacherCount = buffer.getInt();
+        int studentCount = buffer.getInt();
+        long checksum = buffer.getLong();
+
+        ByteBuffer body = buffer.slice();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if (crc.getValue() != checksum) {
+            throw new IOException("Roster snapshot " + path + " is corrupt");
+        }
+        return new RosterSnapshot(changeStamp, createdAt, teacherCount, studentCount, body);
+    }
+
+    long getChangeStamp() {
+        return changeStamp;
+    }
+
+    Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    int getTeacherCount() {
+        return teacherCount;
+    }
+
+    int getStudentCount() {
+        return studentCount;
+    }
+
+    // Read every row, teachers first
+    void read(Consumer<TeacherRow> teachers, Consumer<StudentRow> students) {
+        ByteBuffer in = body.duplicate();
+        for (int i = 0; i < teacherCount; i++) {
+            teachers.accept(new TeacherRow(in.getLong(), readString(in), readString(in), readString(in),
+                    readString(in), readString(in), readString(in), readString(in)));
+        }
+        for (int i = 0; i < studentCount; i++) {
+            students.accept(new StudentRow(in.getLong(), readString(in), readString(in), readString(in),
+                    readString(in), in.getInt(), readString(in), readString(in), in.getLong(), readString(in)));
+        }
+    }
+
+    // Write a snapshot next to path and move it into place, so readers never see a partial file
+    static void write(Path path, long changeStamp, List<TeacherRow> teachers, List<StudentRow> students)
+            throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream file = Files.newOutputStream(temp)) {
+                file.write(new byte[HEADER_SIZE]);
+                DataOutputStream out = new DataOutputStream(
+                        new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc));
+                for (TeacherRow row : teachers) {
+                    out.writeLong(row.id);
+                    writeString(out, row.firstName);
+                    writeString(out, row.lastName);
+                    writeString(out, row.email);
+                    writeString(out, row.phoneNumber);
+                    writeString(out, row.subject);
+                    writeString(out, row.department);
+                    writeString(out, row.schoolCode);
+                }
+                for (StudentRow row : students) {
+                    out.writeLong(row.id);
+                    writeString(out, row.firstName);
+                    writeString(out, row.lastName);
+                    writeString(out, row.email);
+                    writeString(out, row.phoneNumber);
+                    out.writeInt(row.enrollmentEpochDay);
+                    writeString(out, row.gradeLevel);
+                    writeString(out, row.studentId);
+                    out.writeLong(row.teacherId);
+                    writeString(out, row.schoolCode);
+                }
+                out.flush();
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(changeStamp).putLong(System.currentTimeMillis())
+                    .putInt(teachers.size()).putInt(students.size()).putLong(crc.getValue()).flip();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.write(header, 0);
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
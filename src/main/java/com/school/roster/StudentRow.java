@@ -0,0 +1,104 @@
+package com.school.roster;
+
+import com.school.entity.Student;
+import com.school.entity.Teacher;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+// Compact, immutable copy of a student row held by the roster read model
+public final class StudentRow {
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    final long id;
+    final String firstName;
+    final String lastName;
+    final String email;
+    final String phoneNumber;
+    final int enrollmentEpochDay;
+    final String gradeLevel;
+    final String studentId;
+    final long teacherId;
+    final String schoolCode;
+
+    // Used as a JPQL constructor expression when streaming the students table
+    public StudentRow(Long id, String firstName, String lastName, String email, String phoneNumber,
+                      LocalDate enrollmentDate, String gradeLevel, String studentId, Long teacherId,
+                      String schoolCode) {
+        this.id = id;
+        this.firstName = intern(firstName);
+        this.lastName = lastName;
+        this.email = email;
+        this.phoneNumber = phoneNumber;
+        this.enrollmentEpochDay = enrollmentDate != null ? (int) enrollmentDate.toEpochDay() : NO_DATE;
+        this.gradeLevel = intern(gradeLevel);
+        this.studentId = studentId;
+        this.teacherId = teacherId != null ? teacherId : 0;
+        this.schoolCode = intern(schoolCode);
+    }
+
+    // Used when reading a roster snapshot
+    StudentRow(long id, String firstName, String lastName, String email, String phoneNumber,
+               int enrollmentEpochDay, String gradeLevel, String studentId, long teacherId, String schoolCode) {
+        this.id = id;
+        this.firstName = intern(firstName);
+        this.lastName = lastName;
+        this.email = email;
+        this.phoneNumber = phoneNumber;
+        this.enrollmentEpochDay = enrollmentEpochDay;
+        this.gradeLevel = intern(gradeLevel);
+        this.studentId = studentId;
+        this.teacherId = teacherId;
+        this.schoolCode = intern(schoolCode);
+    }
+
+    private StudentRow(StudentRow row, long teacherId) {
+        this.id = row.id;
+        this.firstName = row.firstName;
+        this.lastName = row.lastName;
+        this.email = row.email;
+        this.phoneNumber = row.phoneNumber;
+        this.enrollmentEpochDay = row.enrollmentEpochDay;
+        this.gradeLevel = row.gradeLevel;
+        this.studentId = row.studentId;
+        this.teacherId = teacherId;
+        this.schoolCode = row.schoolCode;
+    }
+
+    static StudentRow of(Student student) {
+        Teacher teacher = student.getTeacher();
+        return new StudentRow(student.getId(), student.getFirstName(), student.getLastName(), student.getEmail(),
+                student.getPhoneNumber(), student.getEnrollmentDate(), student.getGradeLevel(),
+                student.getStudentId(), teacher != null ? teacher.getId() : null, student.getSchoolCode());
+    }
+
+    StudentRow withoutTeacher() {
+        return new StudentRow(this, 0);
+    }
+
+    Student toStudent() {
+        Student student = new Student(firstName, lastName, email, phoneNumber,
+                enrollmentEpochDay != NO_DATE ? LocalDate.ofEpochDay(enrollmentEpochDay) : null,
+                gradeLevel, studentId);
+        student.setId(id);
+        student.setSchoolCode(schoolCode);
+        return student;
+    }
+
+    boolean sameAs(StudentRow other) {
+        return other != null && id == other.id && teacherId == other.teacherId
+                && enrollmentEpochDay == other.enrollmentEpochDay
+                && Objects.equals(firstName, other.firstName)
+                && Objects.equals(lastName, other.lastName)
+                && Objects.equals(email, other.email)
+                && Objects.equals(phoneNumber, other.phoneNumber)
+                && Objects.equals(gradeLevel, other.gradeLevel)
+                && Objects.equals(studentId, other.studentId)
+                && Objects.equals(schoolCode, other.schoolCode);
+    }
+
+    static String intern(String value) {
+        return value != null ? value.intern() : null;
+    }
+}
@@ -0,0 +1,54 @@
+package com.school.roster;
+
+import com.school.entity.Teacher;
+
+import java.util.Objects;
+
+// Compact, immutable copy of a teacher row held by the roster read model
+public final class TeacherRow {
+
+    final long id;
+    final String firstName;
+    final String lastName;
+    final String email;
+    final String phoneNumber;
+    final String subject;
+    final String department;
+    final String schoolCode;
+
+    // Used as a JPQL constructor expression when streaming the teacher table
+    public TeacherRow(Long id, String firstName, String lastName, String email, String phoneNumber,
+                      String subject, String department, String schoolCode) {
+        this.id = id;
+        this.firstName = StudentRow.intern(firstName);
+        this.lastName = lastName;
+        this.email = email;
+        this.phoneNumber = phoneNumber;
+        this.subject = StudentRow.intern(subject);
+        this.department = StudentRow.intern(department);
+        this.schoolCode = StudentRow.intern(schoolCode);
+    }
+
+    static TeacherRow of(Teacher teacher) {
+        return new TeacherRow(teacher.getId(), teacher.getFirstName(), teacher.getLastName(), teacher.getEmail(),
+                teacher.getPhoneNumber(), teacher.getSubject(), teacher.getDepartment(), teacher.getSchoolCode());
+    }
+
+    Teacher toTeacher() {
+        Teacher teacher = new Teacher(firstName, lastName, email, phoneNumber, subject, department);
+        teacher.setId(id);
+        teacher.setSchoolCode(schoolCode);
+        return teacher;
+    }
+
+    boolean sameAs(TeacherRow other) {
+        return other != null && id == other.id
+                && Objects.equals(firstName, other.firstName)
+                && Objects.equals(lastName, other.lastName)
+                && Objects.equals(email, other.email)
+                && Objects.equals(phoneNumber, other.phoneNumber)
+                && Objects.equals(subject, other.subject)
+                && Objects.equals(department, other.department)
+                && Objects.equals(schoolCode, other.schoolCode);
+    }
+}
@@ -0,0 +1,172 @@
+package com.school.service;
+
+import com.school.entity.JobLease;
+import com.school.event.StudentsArchivedEvent;
+import com.school.repo.ArchivedStudentRepo;
+import com.school.repo.JobLeaseRepo;
+import com.school.repo.StudentRepo;
+import com.school.shard.ShardContext;
+import com.school.shard.ShardDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Moves students who have left from students to students_archive.
+// Students in the graduated grade whose graduation is more than retainYears ago are archived in batches, each
+// batch copied and deleted in its own short transaction so the students table is never locked for long.
+// Students still enrolled are never archived, however long ago they enrolled. Only one node archives at a time:
+// the run holds the job_leases row "student-archive" on the main shard and renews it before every batch.
+@Service
+public class StudentArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentArchiveService.class);
+
+    private static final String LEASE_NAME = "student-archive";
+
+    @Autowired
+    private StudentRepo studentRepository;
+
+    @Autowired
+    private ArchivedStudentRepo archivedStudentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private JobLeaseRepo jobLeaseRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${school.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${school.archive.retain-years:1}")
+    private int retainYears;
+
+    @Value("${school.archive.batch-size:500}")
+    private int batchSize;
+
+    // How long a node may archive without renewing its lease before another node may take over
+    @Value("${school.archive.lease:10m}")
+    private Duration leaseDuration;
+
+    @Value("${school.cohort.graduated-grade:Graduated}")
+    private String graduatedGrade;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // Identifies this node as the holder of the archiving lease
+    private final String leaseHolder = UUID.randomUUID().toString();
+
+    // Students who graduated before this date belong in the archive
+    public LocalDate getArchiveCutoff() {
+        return LocalDate.now().minusYears(retainYears);
+    }
+
+    @Scheduled(cron = "${school.archive.cron:0 0 3 * * *}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archiveInactiveCohorts();
+        }
+    }
+
+    // Archive every student who graduated before the cutoff; returns the number of students moved
+    public int archiveInactiveCohorts() {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Archiving is already running");
+        }
+        try {
+            if (!renewLease()) {
+                throw new RuntimeException("Archiving is already running on another node");
+            }
+            LocalDate cutoff = getArchiveCutoff();
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            int archived = 0;
+            try {
+                for (String shard : shardDirectory.getShardNames()) {
+                    archived += archiveShard(shard, cutoff, transaction);
+                }
+            } finally {
+                releaseLease();
+            }
+            log.info("Archived {} students who graduated before {}", archived, cutoff);
+            return archived;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int archiveShard(String shard, LocalDate cutoff, TransactionTemplate transaction) {
+        int archived = 0;
+        while (true) {
+            if (!renewLease()) {
+                log.warn("Lost the archiving lease to another node, stopping after {} students", archived);
+                return archived;
+            }
+            // The batches take students of any school; the next run archives the shard once the move is done
+            if (shardDirectory.hasMovingSchool(shard)) {
+                log.info("A school is being moved off shard {}, archiving it on the next run", shard);
+                return archived;
+            }
+            Integer moved = ShardContext.call(null, shard, () -> transaction.execute(status -> archiveBatch(cutoff)));
+            if (moved == null || moved == 0) {
+                return archived;
+            }
+            archived += moved;
+        }
+    }
+
+    // Take the archiving lease, or extend it if this node holds it; false while another node holds it
+    private boolean renewLease() {
+        return ShardContext.call(null, ShardDirectory.MAIN_SHARD, () -> {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            if (!jobLeaseRepository.existsById(LEASE_NAME)) {
+                try {
+                    transaction.executeWithoutResult(status ->
+                            jobLeaseRepository.save(new JobLease(LEASE_NAME, null, Instant.EPOCH)));
+                } catch (DataIntegrityViolationException e) {
+                    // Another node created it first
+                }
+            }
+            Instant now = Instant.now();
+            Integer acquired = transaction.execute(status ->
+                    jobLeaseRepository.acquire(LEASE_NAME, leaseHolder, now, now.plus(leaseDuration)));
+            return acquired != null && acquired == 1;
+        });
+    }
+
+    private void releaseLease() {
+        ShardContext.run(null, ShardDirectory.MAIN_SHARD, () -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> jobLeaseRepository.release(LEASE_NAME, leaseHolder)));
+    }
+
+    private int archiveBatch(LocalDate cutoff) {
+        List<Long> ids = studentRepository.findIdsLeftBefore(graduatedGrade, cutoff, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        archivedStudentRepository.copyFromStudents(ids, LocalDate.now());
+        studentRepository.deleteAllByIdInBatch(ids);
+        eventPublisher.publishEvent(new StudentsArchivedEvent(ids));
+        return ids.size();
+    }
+}
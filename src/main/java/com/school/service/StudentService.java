@@ -1,21 +1,54 @@
 package com.school.service;
 
+import com.school.entity.ArchivedStudent;
 import com.school.entity.Student;
 import com.school.entity.Teacher;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.school.event.StudentChangedEvent;
+import com.school.json.StudentJsonWriter;
+import com.school.projection.FieldWhitelist;
+import com.school.projection.SparseFieldQuery;
+import com.school.repo.ArchivedStudentRepo;
+import com.school.repo.StudentFilter;
 import com.school.repo.StudentRepo;
 import com.school.repo.TeacherRepo;
-import jakarta.transaction.Transactional;
+import com.school.roster.RosterReadModel;
+import com.school.shard.SchoolFilter;
+import com.school.shard.ShardDirectory;
+import com.school.shard.ShardExecutor;
+import com.school.studentid.StudentIdGenerator;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Transactional
 @Service
 public class StudentService {
 
+    private static final Comparator<Student> BY_ID = Comparator.comparing(Student::getId);
+
+    // Properties the filter endpoint may sort by
+    private static final Set<String> SORTABLE_PROPERTIES =
+            Set.of("id", "firstName", "lastName", "email", "enrollmentDate", "studentId");
 
     @Autowired
     private StudentRepo studentRepository;
@@ -23,98 +56,305 @@ public class StudentService {
     @Autowired
     private TeacherRepo teacherRepository;
 
+    @Autowired
+    private ArchivedStudentRepo archivedStudentRepository;
+
+    @Autowired
+    private StudentIdGenerator studentIdGenerator;
+
+    @Autowired
+    private SparseFieldQuery sparseFieldQuery;
+
+    @Autowired
+    private StudentJsonWriter studentJsonWriter;
+
+    @Autowired
+    private RosterReadModel rosterReadModel;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // Create a new student
     public Student createStudent(Student student) {
+        // A student belongs to the school of the request, whose shard it is written to
+        String school = shardDirectory.currentSchool();
+        if (student.getSchoolCode() == null) {
+            student.setSchoolCode(school);
+        } else if (shardDirectory.isSharded() && !student.getSchoolCode().equals(school)) {
+            throw new RuntimeException("Student of school " + student.getSchoolCode() +
+                    " must be created with the X-School header of that school");
+        }
+        if (student.getTeacher() != null && student.getTeacher().getSchoolCode() != null &&
+                !student.getTeacher().getSchoolCode().equals(student.getSchoolCode())) {
+            throw new RuntimeException("Teacher " + student.getTeacher().getId() + " is not a teacher of school " +
+                    student.getSchoolCode());
+        }
+        shardDirectory.checkNotMoving(student.getSchoolCode());
+
         // Check if email already exists
-        if (studentRepository.existsByEmail(student.getEmail())) {
+        if (existsByEmail(student.getEmail())) {
             throw new RuntimeException("Student with email " + student.getEmail() + " already exists");
         }
 
-        // Check if student ID already exists
-        if (student.getStudentId() != null && studentRepository.existsByStudentId(student.getStudentId())) {
+        // Check if a client-supplied student ID already exists
+        if (student.getStudentId() != null && existsByStudentId(student.getStudentId())) {
             throw new RuntimeException("Student with ID " + student.getStudentId() + " already exists");
         }
+        checkNotGeneratedFormat(student.getSchoolCode(), student.getStudentId());
 
         // Set enrollment date if not provided
         if (student.getEnrollmentDate() == null) {
             student.setEnrollmentDate(LocalDate.now());
         }
 
-        return studentRepository.save(student);
+        // Generated student IDs skip the existence check: a scope's sequence starts above the IDs of its format
+        // already stored, and clients cannot supply IDs of that format (checked above)
+        if (student.getStudentId() == null && studentIdGenerator.isEnabled()) {
+            student.setStudentId(studentIdGenerator.nextId(student.getSchoolCode(),
+                    student.getEnrollmentDate().getYear()));
+        }
+
+        Student savedStudent = studentRepository.save(student);
+        eventPublisher.publishEvent(new StudentChangedEvent(savedStudent, false));
+        return savedStudent;
+    }
+
+    // Create several students in one transaction; none are created if any fails
+    public List<Student> createStudents(List<Student> students) {
+        List<Student> savedStudents = new ArrayList<>(students.size());
+        for (Student student : students) {
+            savedStudents.add(createStudent(student));
+        }
+        return savedStudents;
     }
 
     // Get all students
+    @Transactional(readOnly = true)
     public List<Student> getAllStudents() {
-        return studentRepository.findAll();
+        return onEveryShard(studentRepository::findAll);
     }
 
-    // Get all students with their teacher information
-    public List<Student> getAllStudentsWithTeacher() {
-        return studentRepository.findAllWithTeacher();
+    // Write all students as a JSON array while they are read from the database, without building a list.
+    // Called while the response is written, so the read-only transaction spans the whole stream. Without a school
+    // the students of every shard are merged by id.
+    @Transactional(readOnly = true)
+    public void writeAllStudents(JsonGenerator generator) throws IOException {
+        try (Stream<Object[]> rows = shardExecutor.isScatterRead()
+                ? shardExecutor.merge(shard -> studentRepository.streamJsonColumns(),
+                        Comparator.comparing(row -> (Long) row[StudentJsonWriter.ID]))
+                : studentRepository.streamJsonColumns()) {
+            studentJsonWriter.writeArray(generator, rows);
+        }
     }
 
-    // Get student by ID
+    // Get only the requested fields (e.g. "id,firstName,lastName") of all students
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllStudentFields(String fields) {
+        return sparseFieldQuery.findAll(FieldWhitelist.STUDENT, FieldWhitelist.STUDENT.parse(fields));
+    }
+
+    // Get student by ID from the roster read model when it holds it, else the database (including archived students)
+    @Transactional(readOnly = true)
     public Optional<Student> getStudentById(Long id) {
-        return studentRepository.findById(id);
+        if (rosterReadModel.isReady()) {
+            Optional<Student> held = rosterReadModel.getStudent(id);
+            if (held.isPresent()) {
+                // The roster holds the students of every school
+                return held.filter(student -> SchoolFilter.matches(student.getSchoolCode()));
+            }
+        }
+        if (shardExecutor.isScatterRead()) {
+            return shardExecutor.findAny(shard -> findStudentById(id));
+        }
+        return findStudentById(id);
+    }
+
+    private Optional<Student> findStudentById(Long id) {
+        Optional<Student> student = studentRepository.findById(id);
+        if (student.isPresent()) {
+            return student;
+        }
+        return archivedStudentRepository.findById(id).map(ArchivedStudent::toStudent);
     }
 
-    // Get student by email
+    // Get only the requested fields of a student by ID, including archived students
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> getStudentFieldsById(Long id, String fields) {
+        List<String> fieldNames = FieldWhitelist.STUDENT.parse(fields);
+        if (shardExecutor.isScatterRead()) {
+            return shardExecutor.findAny(shard -> findStudentFieldsById(id, fieldNames));
+        }
+        return findStudentFieldsById(id, fieldNames);
+    }
+
+    private Optional<Map<String, Object>> findStudentFieldsById(Long id, List<String> fieldNames) {
+        Optional<Map<String, Object>> student = sparseFieldQuery.findById(FieldWhitelist.STUDENT, fieldNames, id);
+        if (student.isPresent()) {
+            return student;
+        }
+        return sparseFieldQuery.findById(FieldWhitelist.ARCHIVED_STUDENT, fieldNames, id);
+    }
+
+    // Get student by email, including archived students
+    @Transactional(readOnly = true)
     public Optional<Student> getStudentByEmail(String email) {
-        return studentRepository.findByEmail(email);
+        if (shardExecutor.isScatterRead()) {
+            return shardExecutor.findAny(shard -> findStudentByEmail(email));
+        }
+        return findStudentByEmail(email);
     }
 
-    // Get student by student ID
+    private Optional<Student> findStudentByEmail(String email) {
+        Optional<Student> student = studentRepository.findByEmail(email);
+        if (student.isPresent()) {
+            return student;
+        }
+        return archivedStudentRepository.findByEmail(email).map(ArchivedStudent::toStudent);
+    }
+
+    // Get student by student ID, including archived students
+    @Transactional(readOnly = true)
     public Optional<Student> getStudentByStudentId(String studentId) {
-        return studentRepository.findByStudentId(studentId);
+        if (shardExecutor.isScatterRead()) {
+            return shardExecutor.findAny(shard -> findStudentByStudentId(studentId));
+        }
+        return findStudentByStudentId(studentId);
+    }
+
+    private Optional<Student> findStudentByStudentId(String studentId) {
+        Optional<Student> student = studentRepository.findByStudentId(studentId);
+        if (student.isPresent()) {
+            return student;
+        }
+        return archivedStudentRepository.findByStudentId(studentId).map(ArchivedStudent::toStudent);
     }
 
     // Get students by grade level
+    @Transactional(readOnly = true)
     public List<Student> getStudentsByGradeLevel(String gradeLevel) {
-        return studentRepository.findByGradeLevel(gradeLevel);
+        return onEveryShard(() -> studentRepository.findByGradeLevel(gradeLevel));
     }
 
     // Get students by teacher ID
+    @Transactional(readOnly = true)
     public List<Student> getStudentsByTeacherId(Long teacherId) {
-        return studentRepository.findByTeacherId(teacherId);
+        if (rosterReadModel.isReady()) {
+            return rosterReadModel.getStudentsByTeacherId(teacherId).stream()
+                    .filter(student -> SchoolFilter.matches(student.getSchoolCode()))
+                    .toList();
+        }
+        return onEveryShard(() -> studentRepository.findByTeacherId(teacherId));
     }
 
     // Get students without teacher assigned
+    @Transactional(readOnly = true)
     public List<Student> getStudentsWithoutTeacher() {
-        return studentRepository.findByTeacherIsNull();
+        return onEveryShard(studentRepository::findByTeacherIsNull);
     }
 
     // Search students by name
+    @Transactional(readOnly = true)
     public List<Student> searchStudentsByName(String name) {
-        return studentRepository.findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(name, name);
+        return onEveryShard(() ->
+                studentRepository.findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(name, name));
     }
 
     // Get students by teacher's subject
+    @Transactional(readOnly = true)
     public List<Student> getStudentsByTeacherSubject(String subject) {
-        return studentRepository.findByTeacherSubject(subject);
+        return onEveryShard(() -> studentRepository.findByTeacherSubject(subject));
     }
 
     // Get students enrolled between dates
+    @Transactional(readOnly = true)
     public List<Student> getStudentsEnrolledBetween(LocalDate startDate, LocalDate endDate) {
-        return studentRepository.findByEnrollmentDateBetween(startDate, endDate);
+        // Graduates are archived by when they left, so any enrollment range can have archived students
+        return onEveryShard(() -> {
+            List<Student> students = new ArrayList<>(studentRepository.findByEnrollmentDateBetween(startDate,
+                    endDate));
+            for (ArchivedStudent archived : archivedStudentRepository.findByEnrollmentDateBetween(startDate,
+                    endDate)) {
+                students.add(archived.toStudent());
+            }
+            return students;
+        });
+    }
+
+    // Get one page of the students matching every given criterion, in a single query. The page is a slice: it says
+    // whether a next page exists by reading one row past it, and skips the COUNT(*) of all matches
+    @Transactional(readOnly = true)
+    public Slice<Student> filterStudents(StudentFilter filter, Pageable pageable) {
+        for (Sort.Order order : pageable.getSort()) {
+            if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+                throw new RuntimeException("Cannot sort students by " + order.getProperty());
+            }
+        }
+        // Break ties by id so rows do not move between pages
+        Sort sort = pageable.getSort();
+        if (sort.getOrderFor("id") == null) {
+            sort = sort.and(Sort.by("id"));
+        }
+        Pageable page = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+        if (!shardExecutor.isScatterRead()) {
+            return studentRepository.findBy(filter.toSpecification(), query -> query.slice(page));
+        }
+        // Every shard reads its rows up to the end of the page and one past it; the page is cut from their merge
+        int rows = (int) Math.min(page.getOffset() + page.getPageSize() + 1, Integer.MAX_VALUE);
+        Pageable upToPage = PageRequest.of(0, rows, sort);
+        List<Student> merged = shardExecutor.gather(shard -> studentRepository.findBy(filter.toSpecification(),
+                query -> query.slice(upToPage)).getContent(), comparator(sort));
+        int from = (int) Math.min(page.getOffset(), merged.size());
+        int to = Math.min(from + page.getPageSize(), merged.size());
+        return new SliceImpl<>(new ArrayList<>(merged.subList(from, to)), page, merged.size() > to);
+    }
+
+    // The order a sort puts students in, as the database does: strings ignoring case, nulls lowest
+    private static Comparator<Student> comparator(Sort sort) {
+        Comparator<Student> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Student> byProperty = Comparator.comparing(
+                    student -> sortKey(student, order.getProperty()), Comparator.nullsFirst(Comparator.naturalOrder()));
+            if (order.isDescending()) {
+                byProperty = byProperty.reversed();
+            }
+            comparator = comparator == null ? byProperty : comparator.thenComparing(byProperty);
+        }
+        return comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> sortKey(Student student, String property) {
+        Object value = new BeanWrapperImpl(student).getPropertyValue(property);
+        return (Comparable<Object>) (value instanceof String text ? text.toLowerCase(Locale.ROOT) : value);
     }
 
     // Update student
     public Student updateStudent(Long id, Student studentDetails) {
         Student student = studentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Student not found with id: " + id));
+        shardDirectory.checkNotMoving(student.getSchoolCode());
 
         // Check if email is being changed and if new email already exists
         if (!student.getEmail().equals(studentDetails.getEmail()) &&
-                studentRepository.existsByEmail(studentDetails.getEmail())) {
+                existsByEmail(studentDetails.getEmail())) {
             throw new RuntimeException("Student with email " + studentDetails.getEmail() + " already exists");
         }
 
         // Check if student ID is being changed and if new student ID already exists
         if (studentDetails.getStudentId() != null &&
                 !studentDetails.getStudentId().equals(student.getStudentId()) &&
-                studentRepository.existsByStudentId(studentDetails.getStudentId())) {
+                existsByStudentId(studentDetails.getStudentId())) {
             throw new RuntimeException("Student with ID " + studentDetails.getStudentId() + " already exists");
         }
+        if (studentDetails.getStudentId() != null && !studentDetails.getStudentId().equals(student.getStudentId())) {
+            checkNotGeneratedFormat(student.getSchoolCode(), studentDetails.getStudentId());
+        }
 
         student.setFirstName(studentDetails.getFirstName());
         student.setLastName(studentDetails.getLastName());
@@ -124,60 +364,108 @@ public class StudentService {
         student.setGradeLevel(studentDetails.getGradeLevel());
         student.setStudentId(studentDetails.getStudentId());
 
-        return studentRepository.save(student);
+        Student savedStudent = studentRepository.save(student);
+        eventPublisher.publishEvent(new StudentChangedEvent(savedStudent, false));
+        return savedStudent;
     }
 
     // Assign teacher to student
     public Student assignTeacherToStudent(Long studentId, Long teacherId) {
         Student student = studentRepository.findById(studentId)
                 .orElseThrow(() -> new RuntimeException("Student not found with id: " + studentId));
+        shardDirectory.checkNotMoving(student.getSchoolCode());
 
         Teacher teacher = teacherRepository.findById(teacherId)
                 .orElseThrow(() -> new RuntimeException("Teacher not found with id: " + teacherId));
 
+        // Teachers and students of a school share its shard
+        if (student.getSchoolCode() != null && teacher.getSchoolCode() != null &&
+                !student.getSchoolCode().equals(teacher.getSchoolCode())) {
+            throw new RuntimeException("Teacher " + teacherId + " is not a teacher of school " +
+                    student.getSchoolCode());
+        }
+
         student.setTeacher(teacher);
-        return studentRepository.save(student);
+        Student savedStudent = studentRepository.save(student);
+        eventPublisher.publishEvent(new StudentChangedEvent(savedStudent, false));
+        return savedStudent;
     }
 
     // Remove teacher from student
     public Student removeTeacherFromStudent(Long studentId) {
         Student student = studentRepository.findById(studentId)
                 .orElseThrow(() -> new RuntimeException("Student not found with id: " + studentId));
+        shardDirectory.checkNotMoving(student.getSchoolCode());
 
         student.setTeacher(null);
-        return studentRepository.save(student);
+        Student savedStudent = studentRepository.save(student);
+        eventPublisher.publishEvent(new StudentChangedEvent(savedStudent, false));
+        return savedStudent;
     }
 
     // Delete student
     public void deleteStudent(Long id) {
         Student student = studentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Student not found with id: " + id));
+        shardDirectory.checkNotMoving(student.getSchoolCode());
 
         studentRepository.delete(student);
+        eventPublisher.publishEvent(new StudentChangedEvent(student, true));
     }
 
-    // Check if student exists
+    // Check if student exists, including archived students
+    @Transactional(readOnly = true)
     public boolean existsById(Long id) {
-        return studentRepository.existsById(id);
+        return studentRepository.existsById(id) || archivedStudentRepository.existsById(id);
     }
 
-    // Check if student exists by email
+    // Check if student exists by email, including archived students. Emails are unique across schools and shards,
+    // which each shard's unique index cannot enforce, so every shard is asked, this one in the caller's transaction;
+    // a student created on another shard at the same moment can still slip through.
+    @Transactional(readOnly = true)
     public boolean existsByEmail(String email) {
-        return studentRepository.existsByEmail(email);
+        return shardExecutor.anyShard(shard -> studentRepository.existsByEmail(email) ||
+                archivedStudentRepository.existsByEmail(email));
     }
 
-    // Check if student exists by student ID
+    // Check if student exists by student ID, including archived students, on every shard like existsByEmail
+    @Transactional(readOnly = true)
     public boolean existsByStudentId(String studentId) {
-        return studentRepository.existsByStudentId(studentId);
+        return shardExecutor.anyShard(shard -> studentRepository.existsByStudentId(studentId) ||
+                archivedStudentRepository.existsByStudentId(studentId));
+    }
+
+    // IDs of the school's generated format are only handed out by the generator, which never checks for duplicates
+    private void checkNotGeneratedFormat(String schoolCode, String studentId) {
+        if (studentIdGenerator.isGeneratedFormat(schoolCode, studentId)) {
+            throw new RuntimeException("Student ID " + studentId
+                    + " has the format of generated IDs; leave studentId empty to have one generated");
+        }
     }
 
     // Get student count by grade level
+    @Transactional(readOnly = true)
     public long getStudentCountByGradeLevel(String gradeLevel) {
+        if (shardExecutor.isScatterRead()) {
+            return shardExecutor.sum(shard -> studentRepository.countByGradeLevel(gradeLevel));
+        }
         return studentRepository.countByGradeLevel(gradeLevel);
     }
 
     // Get student count by teacher
+    @Transactional(readOnly = true)
     public long getStudentCountByTeacher(Long teacherId) {
+        if (shardExecutor.isScatterRead()) {
+            return shardExecutor.sum(shard -> studentRepository.countByTeacherId(teacherId));
+        }
         return studentRepository.countByTeacherId(teacherId);
     }
+
+    // Students of every shard when the request names no school, ordered by id, else of the request's shard
+    private List<Student> onEveryShard(Supplier<List<Student>> read) {
+        if (!shardExecutor.isScatterRead()) {
+            return read.get();
+        }
+        return shardExecutor.gather(shard -> read.get(), BY_ID);
+    }
 }
@@ -1,72 +1,188 @@
 package com.school.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.school.entity.Teacher;
+import com.school.event.TeacherChangedEvent;
+import com.school.json.StudentJsonWriter;
+import com.school.projection.FieldWhitelist;
+import com.school.projection.SparseFieldQuery;
 import com.school.repo.TeacherRepo;
-import jakarta.transaction.Transactional;
+import com.school.report.DepartmentWorkload;
+import com.school.report.TeacherWorkload;
+import com.school.roster.RosterReadModel;
+import com.school.shard.SchoolFilter;
+import com.school.shard.ShardDirectory;
+import com.school.shard.ShardExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 @Transactional
 @Service
 public class TeacherService {
 
+    private static final Comparator<Teacher> BY_ID = Comparator.comparing(Teacher::getId);
+
+    // Order of the rows of TeacherRepo.streamJsonColumnsWithStudents
+    private static final Comparator<Object[]> TEACHER_ROW_ORDER = Comparator
+            .comparing((Object[] row) -> (Long) row[StudentJsonWriter.TEACHER_ID])
+            .thenComparing(row -> (Long) row[StudentJsonWriter.TEACHER_STUDENT + StudentJsonWriter.ID],
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+
     @Autowired
     private TeacherRepo teacherRepository;
 
+    @Autowired
+    private SparseFieldQuery sparseFieldQuery;
+
+    @Autowired
+    private RosterReadModel rosterReadModel;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private ShardExecutor shardExecutor;
+
+    @Autowired
+    private StudentJsonWriter studentJsonWriter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // Create a new teacher
     public Teacher createTeacher(Teacher teacher) {
+        // A teacher belongs to the school of the request, whose shard it is written to
+        String school = shardDirectory.currentSchool();
+        if (teacher.getSchoolCode() == null) {
+            teacher.setSchoolCode(school);
+        } else if (shardDirectory.isSharded() && !teacher.getSchoolCode().equals(school)) {
+            throw new RuntimeException("Teacher of school " + teacher.getSchoolCode() +
+                    " must be created with the X-School header of that school");
+        }
+        shardDirectory.checkNotMoving(teacher.getSchoolCode());
+
         // Check if email already exists
-        if (teacherRepository.existsByEmail(teacher.getEmail())) {
+        if (existsByEmail(teacher.getEmail())) {
             throw new RuntimeException("Teacher with email " + teacher.getEmail() + " already exists");
         }
-        return teacherRepository.save(teacher);
+        Teacher savedTeacher = teacherRepository.save(teacher);
+        eventPublisher.publishEvent(new TeacherChangedEvent(savedTeacher, false));
+        return savedTeacher;
+    }
+
+    // Create several teachers in one transaction; none are created if any fails
+    public List<Teacher> createTeachers(List<Teacher> teachers) {
+        List<Teacher> savedTeachers = new ArrayList<>(teachers.size());
+        for (Teacher teacher : teachers) {
+            savedTeachers.add(createTeacher(teacher));
+        }
+        return savedTeachers;
     }
 
-    // Get all teachers
+    // Get all teachers (with their students), from the roster read model once it is loaded
+    @Transactional(readOnly = true)
     public List<Teacher> getAllTeachers() {
-        return teacherRepository.findAll();
+        if (rosterReadModel.isReady()) {
+            return rosterReadModel.getTeachersWithStudents().stream()
+                    .filter(teacher -> SchoolFilter.matches(teacher.getSchoolCode()))
+                    .toList();
+        }
+        return onEveryShard(teacherRepository::findAll);
+    }
+
+    // Get only the requested fields (e.g. "id,firstName,lastName") of all teachers
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllTeacherFields(String fields) {
+        return sparseFieldQuery.findAll(FieldWhitelist.TEACHER, FieldWhitelist.TEACHER.parse(fields));
     }
 
-    // Get all teachers with their students
-    public List<Teacher> getAllTeachersWithStudents() {
-        return teacherRepository.findAllWithStudents();
+    // Write all teachers with their students as a JSON array while they are read from the database, in the same
+    // way as StudentService.writeAllStudents. Without a school the rows of every shard are merged by teacher id; a
+    // teacher's students are on the teacher's shard, so its rows stay together.
+    @Transactional(readOnly = true)
+    public void writeAllTeachersWithStudents(JsonGenerator generator) throws IOException {
+        try (Stream<Object[]> rows = shardExecutor.isScatterRead()
+                ? shardExecutor.merge(shard -> teacherRepository.streamJsonColumnsWithStudents(), TEACHER_ROW_ORDER)
+                : teacherRepository.streamJsonColumnsWithStudents()) {
+            studentJsonWriter.writeTeachersWithStudents(generator, rows);
+        }
     }
 
-    // Get teacher by ID
+    // Get teacher by ID, from the roster read model when it holds it
+    @Transactional(readOnly = true)
     public Optional<Teacher> getTeacherById(Long id) {
+        if (rosterReadModel.isReady()) {
+            Optional<Teacher> held = rosterReadModel.getTeacher(id);
+            if (held.isPresent()) {
+                // The roster holds the teachers of every school
+                return held.filter(teacher -> SchoolFilter.matches(teacher.getSchoolCode()));
+            }
+        }
+        if (shardExecutor.isScatterRead()) {
+            return shardExecutor.findAny(shard -> teacherRepository.findById(id).map(this::withStudents));
+        }
         return teacherRepository.findById(id);
     }
 
+    // Get only the requested fields of a teacher by ID
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> getTeacherFieldsById(Long id, String fields) {
+        List<String> fieldNames = FieldWhitelist.TEACHER.parse(fields);
+        if (shardExecutor.isScatterRead()) {
+            return shardExecutor.findAny(shard -> sparseFieldQuery.findById(FieldWhitelist.TEACHER, fieldNames, id));
+        }
+        return sparseFieldQuery.findById(FieldWhitelist.TEACHER, fieldNames, id);
+    }
+
     // Get teacher by email
+    @Transactional(readOnly = true)
     public Optional<Teacher> getTeacherByEmail(String email) {
+        if (shardExecutor.isScatterRead()) {
+            return shardExecutor.findAny(shard -> teacherRepository.findByEmail(email).map(this::withStudents));
+        }
         return teacherRepository.findByEmail(email);
     }
 
     // Get teachers by department
+    @Transactional(readOnly = true)
     public List<Teacher> getTeachersByDepartment(String department) {
-        return teacherRepository.findByDepartment(department);
+        return onEveryShard(() -> teacherRepository.findByDepartment(department));
     }
 
     // Get teachers by subject
+    @Transactional(readOnly = true)
     public List<Teacher> getTeachersBySubject(String subject) {
-        return teacherRepository.findBySubject(subject);
+        return onEveryShard(() -> teacherRepository.findBySubject(subject));
     }
 
     // Search teachers by name
+    @Transactional(readOnly = true)
     public List<Teacher> searchTeachersByName(String name) {
-        return teacherRepository.findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(name, name);
+        return onEveryShard(() ->
+                teacherRepository.findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(name, name));
     }
 
     // Update teacher
     public Teacher updateTeacher(Long id, Teacher teacherDetails) {
         Teacher teacher = teacherRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Teacher not found with id: " + id));
+        shardDirectory.checkNotMoving(teacher.getSchoolCode());
 
         // Check if email is being changed and if new email already exists
         if (!teacher.getEmail().equals(teacherDetails.getEmail()) &&
-                teacherRepository.existsByEmail(teacherDetails.getEmail())) {
+                existsByEmail(teacherDetails.getEmail())) {
             throw new RuntimeException("Teacher with email " + teacherDetails.getEmail() + " already exists");
         }
 
@@ -77,37 +193,129 @@ public class TeacherService {
         teacher.setSubject(teacherDetails.getSubject());
         teacher.setDepartment(teacherDetails.getDepartment());
 
-        return teacherRepository.save(teacher);
+        Teacher savedTeacher = teacherRepository.save(teacher);
+        eventPublisher.publishEvent(new TeacherChangedEvent(savedTeacher, false));
+        return savedTeacher;
     }
 
     // Delete teacher
     public void deleteTeacher(Long id) {
         Teacher teacher = teacherRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Teacher not found with id: " + id));
+        shardDirectory.checkNotMoving(teacher.getSchoolCode());
 
         // Remove teacher reference from all students
         teacher.getStudents().forEach(student -> student.setTeacher(null));
 
         teacherRepository.delete(teacher);
+        eventPublisher.publishEvent(new TeacherChangedEvent(teacher, true));
     }
 
     // Check if teacher exists
+    @Transactional(readOnly = true)
     public boolean existsById(Long id) {
         return teacherRepository.existsById(id);
     }
 
-    // Check if teacher exists by email
+    // Check if teacher exists by email, in every school and on every shard, see StudentService.existsByEmail
+    @Transactional(readOnly = true)
     public boolean existsByEmail(String email) {
-        return teacherRepository.existsByEmail(email);
+        return shardExecutor.anyShard(shard -> teacherRepository.existsByEmail(email));
     }
 
     // Get teacher count by department
+    @Transactional(readOnly = true)
     public long getTeacherCountByDepartment(String department) {
+        if (shardExecutor.isScatterRead()) {
+            return shardExecutor.sum(shard -> teacherRepository.countByDepartment(department));
+        }
         return teacherRepository.countByDepartment(department);
     }
 
     // Get teachers by department with students
+    @Transactional(readOnly = true)
     public List<Teacher> getTeachersByDepartmentWithStudents(String department) {
+        if (rosterReadModel.isReady()) {
+            return rosterReadModel.getTeachersWithStudents(department).stream()
+                    .filter(teacher -> SchoolFilter.matches(teacher.getSchoolCode()))
+                    .toList();
+        }
+        if (shardExecutor.isScatterRead()) {
+            return shardExecutor.gather(shard -> teacherRepository.findByDepartmentWithStudents(department), BY_ID);
+        }
         return teacherRepository.findByDepartmentWithStudents(department);
     }
+
+    // Teachers ranked by number of students: the top (most students) or bottom (fewest) limit rows,
+    // optionally for one department and only teachers with minStudents to maxStudents students
+    @Transactional(readOnly = true)
+    public List<TeacherWorkload> getTeacherWorkloads(boolean mostStudentsFirst, int limit, String department,
+                                                     Long minStudents, Long maxStudents) {
+        long min = minStudents != null ? minStudents : 0;
+        long max = maxStudents != null ? maxStudents : Long.MAX_VALUE;
+        if (shardExecutor.isScatterRead()) {
+            // A teacher's students share its shard, so each shard's top rows are complete; the overall top rows are
+            // among them
+            Comparator<TeacherWorkload> byStudents = Comparator.comparingLong(TeacherWorkload::studentCount);
+            Comparator<TeacherWorkload> order = (mostStudentsFirst ? byStudents.reversed() : byStudents)
+                    .thenComparing(TeacherWorkload::teacherId);
+            List<TeacherWorkload> merged = shardExecutor.gather(shard -> findTeacherWorkloads(mostStudentsFirst,
+                    limit, department, min, max), order);
+            return merged.subList(0, Math.min(limit, merged.size()));
+        }
+        return findTeacherWorkloads(mostStudentsFirst, limit, department, min, max);
+    }
+
+    private List<TeacherWorkload> findTeacherWorkloads(boolean mostStudentsFirst, int limit, String department,
+                                                       long min, long max) {
+        if (department == null) {
+            return mostStudentsFirst
+                    ? teacherRepository.findWorkloadsMostStudentsFirst(min, max, Limit.of(limit))
+                    : teacherRepository.findWorkloadsFewestStudentsFirst(min, max, Limit.of(limit));
+        }
+        return mostStudentsFirst
+                ? teacherRepository.findDepartmentWorkloadsMostStudentsFirst(department, min, max, Limit.of(limit))
+                : teacherRepository.findDepartmentWorkloadsFewestStudentsFirst(department, min, max, Limit.of(limit));
+    }
+
+    // Teacher and student counts per department
+    @Transactional(readOnly = true)
+    public List<DepartmentWorkload> getDepartmentWorkloads() {
+        if (!shardExecutor.isScatterRead()) {
+            return teacherRepository.findDepartmentWorkloads();
+        }
+        // Each shard's counts per department, added up
+        Map<String, DepartmentWorkload> totals = new HashMap<>();
+        for (List<DepartmentWorkload> shardWorkloads : shardExecutor.onEveryShard(
+                shard -> teacherRepository.findDepartmentWorkloads())) {
+            for (DepartmentWorkload workload : shardWorkloads) {
+                totals.merge(workload.department(), workload, (a, b) -> new DepartmentWorkload(a.department(),
+                        a.teacherCount() + b.teacherCount(), a.studentCount() + b.studentCount()));
+            }
+        }
+        List<DepartmentWorkload> workloads = new ArrayList<>(totals.values());
+        workloads.sort(Comparator.comparingLong(DepartmentWorkload::studentCount).reversed());
+        return workloads;
+    }
+
+    // Teachers of every shard when the request names no school, ordered by id, else of the request's shard.
+    // Teachers read on other shards get their students loaded there, as those sessions are closed by the time the
+    // list is written.
+    private List<Teacher> onEveryShard(Supplier<List<Teacher>> read) {
+        if (!shardExecutor.isScatterRead()) {
+            return read.get();
+        }
+        return shardExecutor.gather(shard -> {
+            List<Teacher> teachers = read.get();
+            if (!teachers.isEmpty()) {
+                teacherRepository.fetchStudents(teachers.stream().map(Teacher::getId).toList());
+            }
+            return teachers;
+        }, BY_ID);
+    }
+
+    private Teacher withStudents(Teacher teacher) {
+        teacherRepository.fetchStudents(List.of(teacher.getId()));
+        return teacher;
+    }
 }
@@ -0,0 +1,75 @@
+package com.school.shard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+// Rows written before schools existed got a NULL school_code when ddl-auto added the column, which SchoolFilter
+// hides from every request naming a school. They belong to school.sharding.default-school, so once the context is
+// up (and ShardSchemaInitializer has brought every shard's schema up to date) this sets it on every shard, in
+// batches of school.sharding.move-batch-size rows per transaction. Once done, each start only finds no NULLs on
+// the school_code indexes.
+@Component
+public class SchoolCodeBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(SchoolCodeBackfill.class);
+
+    static final List<String> TABLES = List.of("teacher", "students", "students_archive");
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private ShardingProperties properties;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public SchoolCodeBackfill() {
+    }
+
+    public SchoolCodeBackfill(ShardDirectory shardDirectory, ShardingProperties properties, DataSource dataSource,
+                              PlatformTransactionManager transactionManager) {
+        this.shardDirectory = shardDirectory;
+        this.properties = properties;
+        this.dataSource = dataSource;
+        this.transactionManager = transactionManager;
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void backfill() {
+        String school = shardDirectory.getDefaultSchool();
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (String shard : shardDirectory.getShardNames()) {
+            for (String table : TABLES) {
+                long updated = 0;
+                while (true) {
+                    Integer rows = ShardContext.call(null, shard, () -> transaction.execute(status -> jdbc.update(
+                            "UPDATE " + table + " SET school_code = ? WHERE school_code IS NULL LIMIT " +
+                                    properties.getMoveBatchSize(), school)));
+                    if (rows == null || rows == 0) {
+                        break;
+                    }
+                    updated += rows;
+                }
+                if (updated > 0) {
+                    log.info("Assigned {} rows of {} on shard {} to the default school {}", updated, table, shard,
+                            school);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.school.shard;
+
+import java.util.function.Supplier;
+
+// Hibernate filter that limits students, teachers and archived students to the school a request names with
+// X-School, so rows of another school sharing the shard are neither read nor, through them, written. It is enabled
+// on every session and reads the school from ShardContext whenever a query is built; work done without a school
+// (requests that name none, scatter reads, the roster and autocomplete loads, background jobs) sees every school.
+// Declared on Student and applied by the @Filter of each entity. It covers JPQL, criteria and find by id, not
+// native SQL. Rows written before schools existed are given the default school at startup, see SchoolCodeBackfill.
+public final class SchoolFilter {
+
+    public static final String NAME = "school";
+
+    public static final String PARAMETER = "code";
+
+    // '' stands for "no school": blank X-School headers are refused, so no school has that code. The column comes
+    // first so that databases typing parameters from their first use (H2) see a string
+    public static final String CONDITION = "(school_code = :code OR :code = '')";
+
+    private SchoolFilter() {
+    }
+
+    // Whether a row of the given school passes the filter on the current thread, for reads served from memory
+    public static boolean matches(String schoolCode) {
+        String school = ShardContext.currentSchool();
+        return school == null || school.equals(schoolCode);
+    }
+
+    // The filter's parameter: the school of the current thread, or '' when it names none
+    public static class CurrentSchool implements Supplier<String> {
+
+        @Override
+        public String get() {
+            String school = ShardContext.currentSchool();
+            return school != null ? school : "";
+        }
+    }
+}
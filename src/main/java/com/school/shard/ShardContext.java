@@ -0,0 +1,64 @@
+package com.school.shard;
+
+import java.util.function.Supplier;
+
+// School and shard the current thread works on. Set per request by ShardRoutingFilter and per task by
+// ShardExecutor; ShardRoutingDataSource reads the shard whenever a connection is fetched, so it must be set
+// before a transaction starts. Threads without one use the main shard.
+public final class ShardContext {
+
+    private static final ThreadLocal<Scope> current = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    // School of the current request, or null when the request did not name one
+    public static String currentSchool() {
+        Scope scope = current.get();
+        return scope != null ? scope.school : null;
+    }
+
+    // Shard of the current thread, or null for the main shard
+    public static String currentShard() {
+        Scope scope = current.get();
+        return scope != null ? scope.shard : null;
+    }
+
+    // Run work against a shard, restoring the previous shard afterwards
+    public static <T> T call(String school, String shard, Supplier<T> work) {
+        Scope previous = current.get();
+        current.set(new Scope(school, shard));
+        try {
+            return work.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public static void run(String school, String shard, Runnable work) {
+        call(school, shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // For ShardRoutingFilter, which sets the shard for the whole request
+    static void set(String school, String shard) {
+        current.set(new Scope(school, shard));
+    }
+
+    static void clear() {
+        current.remove();
+    }
+
+    private static void restore(Scope previous) {
+        if (previous != null) {
+            current.set(previous);
+        } else {
+            current.remove();
+        }
+    }
+
+    private record Scope(String school, String shard) {
+    }
+}
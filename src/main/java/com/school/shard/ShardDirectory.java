@@ -0,0 +1,145 @@
+package com.school.shard;
+
+import com.school.entity.SchoolShard;
+import com.school.repo.SchoolShardRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Which shard each school's rows live on: the school_shards table on the main shard, then
+// school.sharding.schools, then the main shard. Each node keeps a copy of school_shards and re-reads it every
+// school.sharding.directory-refresh. Without configured shards every school lives on the main shard.
+@Component
+public class ShardDirectory {
+
+    public static final String MAIN_SHARD = "main";
+
+    private static final Logger log = LoggerFactory.getLogger(ShardDirectory.class);
+
+    @Autowired
+    private ShardingProperties properties;
+
+    @Autowired
+    private SchoolShardRepo schoolShardRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private volatile Map<String, SchoolShard> stored = Map.of();
+
+    public ShardDirectory() {
+    }
+
+    // Without school_shards, for tests
+    public ShardDirectory(ShardingProperties properties) {
+        this.properties = properties;
+    }
+
+    public boolean isSharded() {
+        return !properties.getShards().isEmpty();
+    }
+
+    // Shard names, the main shard first
+    public List<String> getShardNames() {
+        List<String> names = new ArrayList<>();
+        names.add(MAIN_SHARD);
+        for (ShardingProperties.Shard shard : properties.getShards()) {
+            names.add(shard.getName());
+        }
+        return names;
+    }
+
+    public String getDefaultSchool() {
+        return properties.getDefaultSchool();
+    }
+
+    // School of the current request: the one it names, else the default school
+    public String currentSchool() {
+        String school = ShardContext.currentSchool();
+        return school != null ? school : getDefaultSchool();
+    }
+
+    public String shardOf(String school) {
+        if (school == null || !isSharded()) {
+            return MAIN_SHARD;
+        }
+        SchoolShard assignment = stored.get(school);
+        if (assignment != null) {
+            return assignment.getShardName();
+        }
+        return properties.getSchools().getOrDefault(school, MAIN_SHARD);
+    }
+
+    // Whether the school's rows are being moved to another shard, when its writes are refused
+    public boolean isMoving(String school) {
+        SchoolShard assignment = stored.get(school);
+        return assignment != null && assignment.isMoving();
+    }
+
+    // Refuse a write to rows of a school that is being moved, which the move would leave behind on the old shard.
+    // Called by the services with the school of the rows they write, rows without one being the default school's;
+    // ShardRoutingFilter already turns most such requests away by their X-School header.
+    public void checkNotMoving(String school) {
+        String owner = school != null ? school : getDefaultSchool();
+        if (isMoving(owner)) {
+            throw new RuntimeException("School " + owner + " is being moved to another shard, please retry later");
+        }
+    }
+
+    // Whether a school is being moved off the shard, for background jobs that write rows of any school
+    public boolean hasMovingSchool(String shard) {
+        return stored.values().stream()
+                .anyMatch(assignment -> assignment.isMoving() && assignment.getShardName().equals(shard));
+    }
+
+    // Every school assigned to a shard other than by default, with its shard
+    public Map<String, String> getAssignments() {
+        Map<String, String> assignments = new TreeMap<>(properties.getSchools());
+        stored.forEach((school, assignment) -> assignments.put(school, assignment.getShardName()));
+        return assignments;
+    }
+
+    @Scheduled(fixedDelayString = "${school.sharding.directory-refresh:30s}")
+    public void refresh() {
+        if (!isSharded()) {
+            return;
+        }
+        try {
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            List<SchoolShard> rows = ShardContext.call(null, MAIN_SHARD,
+                    () -> readOnly.execute(status -> schoolShardRepository.findAll()));
+            Map<String, SchoolShard> loaded = new HashMap<>();
+            for (SchoolShard row : rows) {
+                loaded.put(row.getSchoolCode(), row);
+            }
+            stored = loaded;
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the shard directory, keeping the current one", e);
+        }
+    }
+
+    // Store a school's shard on the main shard and use it on this node right away
+    public void assign(String school, String shard, boolean moving) {
+        if (!getShardNames().contains(shard)) {
+            throw new RuntimeException("Unknown shard: " + shard);
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        SchoolShard saved = ShardContext.call(null, MAIN_SHARD, () -> transaction.execute(
+                status -> schoolShardRepository.save(new SchoolShard(school, shard, moving))));
+        Map<String, SchoolShard> updated = new LinkedHashMap<>(stored);
+        updated.put(school, saved);
+        stored = updated;
+    }
+}
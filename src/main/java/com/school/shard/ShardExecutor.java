@@ -0,0 +1,312 @@
+package com.school.shard;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Scatter-gather for reads that span every shard (counts, exports, lookups by id).
+// The per-shard parts run in parallel, each on a pool thread with ShardContext set to its shard and in its own
+// read-only transaction, and their results are merged on the calling thread. Without configured shards the
+// single part runs on the calling thread, in the caller's transaction.
+@Component
+public class ShardExecutor {
+
+    // Rows buffered per shard while a merged stream waits for the slowest shard
+    private static final int MERGE_BUFFER = 1000;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardingProperties properties;
+
+    private volatile ExecutorService executor;
+
+    // Merged streams hold a thread per shard until the consumer has read their rows, so they get threads of their
+    // own rather than waiting behind each other in the fixed pool
+    private final ExecutorService streamExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "shard-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ShardExecutor() {
+    }
+
+    public ShardExecutor(ShardDirectory shardDirectory, PlatformTransactionManager transactionManager,
+                         ShardingProperties properties) {
+        this.shardDirectory = shardDirectory;
+        this.transactionManager = transactionManager;
+        this.properties = properties;
+    }
+
+    // Whether a read should cover every shard: the shards are configured and the request names no school
+    public boolean isScatterRead() {
+        return shardDirectory.isSharded() && ShardContext.currentSchool() == null;
+    }
+
+    // Result of work on every shard, in shard order. The work runs without a school, so it sees every school's rows
+    // (see SchoolFilter).
+    public <T> List<T> onEveryShard(Function<String, T> work) {
+        if (!shardDirectory.isSharded()) {
+            return List.of(ShardContext.call(null, ShardContext.currentShard(),
+                    () -> work.apply(ShardDirectory.MAIN_SHARD)));
+        }
+        return scatter(shardDirectory.getShardNames(), work);
+    }
+
+    // Whether a check holds on any shard, asked without a school like onEveryShard; for values unique across
+    // schools and shards. The current shard is asked first on the calling thread, in the caller's transaction, so a
+    // writer that already holds a connection never waits for a second one from the same pool; the other shards are
+    // asked in parallel only when it answers false.
+    public boolean anyShard(Predicate<String> check) {
+        String current = ShardContext.currentShard() != null ? ShardContext.currentShard() : ShardDirectory.MAIN_SHARD;
+        if (ShardContext.call(null, ShardContext.currentShard(), () -> check.test(current))) {
+            return true;
+        }
+        if (!shardDirectory.isSharded()) {
+            return false;
+        }
+        List<String> others = new ArrayList<>(shardDirectory.getShardNames());
+        others.remove(current);
+        return scatter(others, check::test).contains(true);
+    }
+
+    // Sum of a count over every shard
+    public long sum(ToLongFunction<String> count) {
+        return onEveryShard(shard -> count.applyAsLong(shard)).stream().mapToLong(Long::longValue).sum();
+    }
+
+    // The rows of every shard as one list in the given order
+    public <T> List<T> gather(Function<String, List<T>> rows, Comparator<? super T> order) {
+        List<T> all = new ArrayList<>();
+        onEveryShard(rows).forEach(all::addAll);
+        all.sort(order);
+        return all;
+    }
+
+    // First result found, in shard order; for lookups of a row whose shard is not known
+    public <T> Optional<T> findAny(Function<String, Optional<T>> lookup) {
+        return onEveryShard(lookup).stream().flatMap(Optional::stream).findFirst();
+    }
+
+    // The rows of every shard as one stream in the given order; each shard's rows must already be in that order.
+    // Every shard streams in parallel into a bounded buffer, so memory stays flat however many rows there are.
+    // The returned stream must be closed, which stops shards that are still streaming.
+    public <T> Stream<T> merge(Function<String, Stream<T>> rows, Comparator<? super T> order) {
+        if (!shardDirectory.isSharded()) {
+            return rows.apply(ShardDirectory.MAIN_SHARD);
+        }
+        List<ShardFeed<T>> feeds = new ArrayList<>();
+        for (String shard : shardDirectory.getShardNames()) {
+            ShardFeed<T> feed = new ShardFeed<>(shard);
+            feed.task = streamExecutor.submit(() -> feed.fill(() -> inShard(shard, () -> {
+                try (Stream<T> shardRows = rows.apply(shard)) {
+                    shardRows.forEach(feed::put);
+                }
+                return null;
+            })));
+            feeds.add(feed);
+        }
+        Iterator<T> merged = new MergingIterator<>(feeds, order);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> feeds.forEach(ShardFeed::close));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        streamExecutor.shutdownNow();
+    }
+
+    // Result of work on each of the shards, in their order, each on a pool thread in its own read-only transaction
+    private <T> List<T> scatter(List<String> shards, Function<String, T> work) {
+        List<Future<T>> parts = new ArrayList<>();
+        for (String shard : shards) {
+            parts.add(executor().submit(() -> inShard(shard, () -> work.apply(shard))));
+        }
+        List<T> results = new ArrayList<>(parts.size());
+        try {
+            for (Future<T> part : parts) {
+                results.add(part.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for the shards", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause
+                    : new RuntimeException("Cross-shard read failed", e.getCause());
+        } finally {
+            parts.forEach(part -> part.cancel(true));
+        }
+        return results;
+    }
+
+    private <T> T inShard(String shard, Supplier<T> work) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return ShardContext.call(null, shard, () -> readOnly.execute(status -> work.get()));
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    executor = Executors.newFixedThreadPool(properties.getScatterThreads(), runnable -> {
+                        Thread thread = new Thread(runnable, "shard-scatter");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return executor;
+    }
+
+    // One shard's rows on their way from its pool thread to the merging thread
+    private static final class ShardFeed<T> {
+
+        private static final Object END = new Object();
+
+        private final String shard;
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(MERGE_BUFFER);
+        private volatile boolean closed;
+        private Future<?> task;
+        private T head;
+
+        private ShardFeed(String shard) {
+            this.shard = shard;
+        }
+
+        private void fill(Supplier<Void> read) {
+            Object last = END;
+            try {
+                read.get();
+            } catch (RuntimeException e) {
+                last = new Failure(e);
+            }
+            offer(last);
+        }
+
+        private void put(T row) {
+            if (!offer(row)) {
+                throw new RuntimeException("Reading shard " + shard + " was cancelled");
+            }
+        }
+
+        // Wait for room in the buffer until the feed is closed; returns whether the item was queued
+        private boolean offer(Object item) {
+            try {
+                while (!closed) {
+                    if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        // Stop the shard's read, e.g. when the client went away before the end of the stream
+        private void close() {
+            closed = true;
+            task.cancel(true);
+            queue.clear();
+        }
+
+        // Move to the next row; false at the end of the shard's rows
+        @SuppressWarnings("unchecked")
+        private boolean advance() {
+            Object next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted reading shard " + shard, e);
+            }
+            if (next == END) {
+                return false;
+            }
+            if (next instanceof Failure failure) {
+                throw new RuntimeException("Reading shard " + shard + " failed", failure.cause);
+            }
+            head = (T) next;
+            return true;
+        }
+    }
+
+    private record Failure(RuntimeException cause) {
+    }
+
+    // k-way merge over the feeds' heads
+    private static final class MergingIterator<T> implements Iterator<T> {
+
+        private final List<ShardFeed<T>> feeds;
+        private final PriorityQueue<ShardFeed<T>> heads;
+        private boolean started;
+
+        private MergingIterator(List<ShardFeed<T>> feeds, Comparator<? super T> order) {
+            this.feeds = feeds;
+            this.heads = new PriorityQueue<>(Math.max(1, feeds.size()),
+                    (a, b) -> order.compare(a.head, b.head));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!started) {
+                started = true;
+                for (ShardFeed<T> feed : feeds) {
+                    if (feed.advance()) {
+                        heads.add(feed);
+                    }
+                }
+            }
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ShardFeed<T> feed = heads.poll();
+            T row = feed.head;
+            if (feed.advance()) {
+                heads.add(feed);
+            }
+            return row;
+        }
+    }
+}
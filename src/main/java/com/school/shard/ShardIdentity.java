@@ -0,0 +1,72 @@
+package com.school.shard;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+// Keeps the ids the shards hand out apart, so rows keep their id when a school moves and an id names one row
+// across all shards: shard n (the main shard is 0) hands out ids equal to n + 1 modulo school.sharding.id-stride,
+// and shards other than main only ids above school.sharding.id-base, i.e. above every id handed out before
+// sharding was enabled.
+// MySQL does the modulo itself through auto_increment_increment/offset, set on every connection of a shard's
+// pool; its tables only need their counter raised to id-base once. H2 has no such setting, so the identity's
+// increment is set to the stride and its next value moved into the shard's residue; H2 in MySQL mode moves the
+// identity past explicitly inserted ids, so this is repeated after rows are copied in.
+final class ShardIdentity {
+
+    // Tables whose ids are generated and kept when rows move
+    static final List<String> TABLES = List.of("teacher", "students");
+
+    private ShardIdentity() {
+    }
+
+    // Session settings for the MySQL connections of a shard
+    static String mysqlSessionInit(int shardIndex, int stride) {
+        return "SET SESSION auto_increment_increment = " + stride + ", auto_increment_offset = " + (shardIndex + 1);
+    }
+
+    static boolean isMySql(String driverClassName) {
+        return driverClassName != null
+                && (driverClassName.contains("mysql") || driverClassName.contains("mariadb"));
+    }
+
+    // Align the id generation of every table in TABLES on the shard jdbc is connected to
+    static void align(JdbcTemplate jdbc, int shardIndex, int stride, long idBase) {
+        if (shardIndex + 1 > stride) {
+            throw new IllegalStateException("At most " + stride + " shards fit school.sharding.id-stride=" + stride);
+        }
+        String product = jdbc.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        long floor = shardIndex == 0 ? 1 : idBase;
+        for (String table : TABLES) {
+            if (product.contains("MySQL") || product.contains("MariaDB")) {
+                Long next = jdbc.queryForObject("SELECT AUTO_INCREMENT FROM information_schema.TABLES " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?", Long.class, table);
+                if (next != null && next < floor) {
+                    jdbc.execute("ALTER TABLE " + table + " AUTO_INCREMENT = " + floor);
+                }
+            } else if (product.contains("H2")) {
+                alignH2(jdbc, table, shardIndex + 1, stride, floor);
+            } else {
+                throw new IllegalStateException("Cannot keep shard ids apart on " + product);
+            }
+        }
+    }
+
+    private static void alignH2(JdbcTemplate jdbc, String table, int residue, int stride, long floor) {
+        Map<String, Object> identity = jdbc.queryForMap("SELECT IDENTITY_INCREMENT, IDENTITY_BASE " +
+                "FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = SCHEMA() " +
+                "AND UPPER(TABLE_NAME) = UPPER(?) AND UPPER(COLUMN_NAME) = 'ID'", table);
+        long increment = ((Number) identity.get("IDENTITY_INCREMENT")).longValue();
+        long next = ((Number) identity.get("IDENTITY_BASE")).longValue();
+        Long maxId = jdbc.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        long lowest = Math.max(floor, maxId != null ? maxId + 1 : 1);
+        if (increment != stride || Math.floorMod(next - residue, stride) != 0 || next < lowest) {
+            long start = lowest + Math.floorMod(residue - lowest, stride);
+            jdbc.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + start +
+                    " SET INCREMENT BY " + stride);
+        }
+    }
+}
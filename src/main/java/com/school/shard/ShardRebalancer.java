@@ -0,0 +1,361 @@
+package com.school.shard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+// Moves a school's rows (teachers, students, archived students and student ID blocks) to another shard:
+//  1. marks the school as moving, so every node refuses its writes once it has re-read the directory,
+//  2. copies its rows to the target in keyset-ordered batches, one transaction per batch, keeping their ids,
+//  3. checks that every table's copy matches the source by row count and checksum, switches the school to the
+//     target shard and deletes the rows from the source.
+// A failed copy leaves the school on its source shard and can simply be run again; the target's partial copy is
+// removed first. Rows keep their ids, which are unique across shards, see ShardIdentity.
+@Service
+public class ShardRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    // In copy order; deleted in reverse order because students reference teacher
+    static final List<Table> TABLES = List.of(
+            new Table("teacher", "id", "school_code = ?"),
+            new Table("students", "id", "school_code = ?"),
+            new Table("students_archive", "id", "school_code = ?"),
+            new Table("student_id_blocks", "scope", "(scope = ? OR LEFT(scope, LENGTH(?) + 1) = CONCAT(?, '.'))"));
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private ShardingProperties properties;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ShardRebalancer() {
+    }
+
+    public ShardRebalancer(ShardDirectory shardDirectory, ShardingProperties properties, DataSource dataSource,
+                           PlatformTransactionManager transactionManager) {
+        this.shardDirectory = shardDirectory;
+        this.properties = properties;
+        this.dataSource = dataSource;
+        this.transactionManager = transactionManager;
+    }
+
+    public MoveReport move(String school, String target) {
+        if (!shardDirectory.getShardNames().contains(target)) {
+            throw new RuntimeException("Unknown shard: " + target);
+        }
+        String source = shardDirectory.shardOf(school);
+        if (source.equals(target)) {
+            throw new RuntimeException("School " + school + " is already on shard " + target);
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Another school is being moved");
+        }
+        try {
+            long start = System.currentTimeMillis();
+            claimRowsWithoutSchool(school, source);
+            checkTeachersStayWithinSchool(school, source);
+
+            shardDirectory.assign(school, source, true);
+            Map<String, Long> copied;
+            try {
+                waitForOtherNodes();
+                copied = copySchool(school, source, target);
+                alignIds(target);
+            } catch (RuntimeException e) {
+                shardDirectory.assign(school, source, false);
+                throw e;
+            }
+            shardDirectory.assign(school, target, false);
+            try {
+                removeSchool(school, source);
+            } catch (RuntimeException e) {
+                throw new RuntimeException("School " + school + " was moved to shard " + target +
+                        " but its rows could not all be removed from shard " + source, e);
+            }
+
+            MoveReport report = new MoveReport(school, source, target, copied, System.currentTimeMillis() - start);
+            log.info("Moved school {} from shard {} to shard {} in {} ms: {}", school, source, target,
+                    report.millis(), copied);
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Copy a school's rows from source to target after removing any earlier partial copy; returns rows per table
+    Map<String, Long> copySchool(String school, String source, String target) {
+        removeSchool(school, target);
+        for (Table table : TABLES) {
+            copy(table, school, source, target);
+        }
+        return verifyCopy(school, source, target);
+    }
+
+    // Compare every table's copy with the source by row count and a checksum of every column, once all tables were
+    // copied, so that a write to a table copied earlier is caught too; returns rows per table
+    Map<String, Long> verifyCopy(String school, String source, String target) {
+        Map<String, Long> rows = new LinkedHashMap<>();
+        for (Table table : TABLES) {
+            Digest expected = digest(table, school, source);
+            Digest copied = digest(table, school, target);
+            if (!copied.equals(expected)) {
+                throw new RuntimeException("The copy of " + table.name() + " of school " + school + " on shard " +
+                        target + " (" + copied.rows() + " rows) does not match shard " + source + " (" +
+                        expected.rows() + " rows); the source changed during the move");
+            }
+            rows.put(table.name(), expected.rows());
+        }
+        return rows;
+    }
+
+    // Delete a school's rows from a shard, in batches
+    void removeSchool(String school, String shard) {
+        List<Table> reversed = new ArrayList<>(TABLES);
+        Collections.reverse(reversed);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (Table table : reversed) {
+            while (true) {
+                Integer deleted = ShardContext.call(null, shard, () -> transaction.execute(status -> {
+                    List<Object> keys = jdbc.queryForList("SELECT " + table.key() + " FROM " + table.name() +
+                            " WHERE " + table.filter() + " ORDER BY " + table.key() + " LIMIT " + batchSize(),
+                            Object.class, table.filterArgs(school));
+                    if (!keys.isEmpty()) {
+                        jdbc.batchUpdate("DELETE FROM " + table.name() + " WHERE " + table.key() + " = ?",
+                                keys.stream().map(key -> new Object[]{key}).toList());
+                    }
+                    return keys.size();
+                }));
+                if (deleted == null || deleted == 0) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // Rows per table a school has on a shard
+    Map<String, Long> countSchool(String school, String shard) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Table table : TABLES) {
+            counts.put(table.name(), count(table, school, shard));
+        }
+        return counts;
+    }
+
+    // Rows per table on every shard, for the shard overview
+    public Map<String, Map<String, Long>> countRows() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+        for (String shard : shardDirectory.getShardNames()) {
+            Map<String, Long> shardCounts = new LinkedHashMap<>();
+            ShardContext.run(null, shard, () -> {
+                for (Table table : TABLES) {
+                    shardCounts.put(table.name(),
+                            jdbc.queryForObject("SELECT COUNT(*) FROM " + table.name(), Long.class));
+                }
+            });
+            counts.put(shard, shardCounts);
+        }
+        return counts;
+    }
+
+    private long copy(Table table, String school, String source, String target) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        long copied = 0;
+        Object after = null;
+        while (true) {
+            Batch batch = read(table, school, source, after);
+            if (batch == null || batch.rows().isEmpty()) {
+                return copied;
+            }
+
+            String insert = "INSERT INTO " + table.name() + " (" + String.join(", ", batch.columns()) +
+                    ") VALUES (" + String.join(", ", Collections.nCopies(batch.columns().size(), "?")) + ")";
+            ShardContext.run(null, target, () -> transaction.executeWithoutResult(
+                    status -> jdbc.batchUpdate(insert, batch.rows())));
+            copied += batch.rows().size();
+            after = batch.lastKey(table.key());
+        }
+    }
+
+    // Row count and CRC32 of a school's rows of a table on a shard, read in key order with the columns in name order
+    private Digest digest(Table table, String school, String shard) {
+        CRC32 checksum = new CRC32();
+        long rows = 0;
+        Object after = null;
+        while (true) {
+            Batch batch = read(table, school, shard, after);
+            if (batch == null || batch.rows().isEmpty()) {
+                return new Digest(rows, checksum.getValue());
+            }
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < batch.columns().size(); i++) {
+                order.add(i);
+            }
+            order.sort(Comparator.comparing(i -> batch.columns().get(i).toLowerCase(Locale.ROOT)));
+            for (Object[] row : batch.rows()) {
+                for (int i : order) {
+                    update(checksum, row[i]);
+                }
+            }
+            rows += batch.rows().size();
+            after = batch.lastKey(table.key());
+        }
+    }
+
+    // Each value is prefixed with its length, -1 for null, so that shifted or missing values change the checksum
+    private static void update(CRC32 checksum, Object value) {
+        byte[] bytes = value == null ? null
+                : value instanceof byte[] raw ? raw : String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        checksum.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes != null ? bytes.length : -1).array());
+        if (bytes != null) {
+            checksum.update(bytes);
+        }
+    }
+
+    // Next batch of a school's rows of a table on a shard, after the given key (null for the first batch)
+    private Batch read(Table table, String school, String shard, Object after) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return ShardContext.call(null, shard, () -> readOnly.execute(status -> {
+            List<Object> args = new ArrayList<>(List.of(table.filterArgs(school)));
+            String sql = "SELECT * FROM " + table.name() + " WHERE " + table.filter();
+            if (after != null) {
+                sql += " AND " + table.key() + " > ?";
+                args.add(after);
+            }
+            sql += " ORDER BY " + table.key() + " LIMIT " + batchSize();
+            return jdbc.query(sql, resultSet -> {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                List<String> columns = new ArrayList<>();
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    columns.add(metaData.getColumnLabel(i));
+                }
+                List<Object[]> rows = new ArrayList<>();
+                while (resultSet.next()) {
+                    Object[] row = new Object[columns.size()];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = resultSet.getObject(i + 1);
+                    }
+                    rows.add(row);
+                }
+                return new Batch(columns, rows);
+            }, args.toArray());
+        }));
+    }
+
+    private long count(Table table, String school, String shard) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        Long count = ShardContext.call(null, shard, () -> jdbc.queryForObject(
+                "SELECT COUNT(*) FROM " + table.name() + " WHERE " + table.filter(), Long.class,
+                table.filterArgs(school)));
+        return count != null ? count : 0;
+    }
+
+    // Rows written before schools existed belong to the default school; SchoolCodeBackfill assigns them at startup,
+    // any inserted since without one are claimed here
+    private void claimRowsWithoutSchool(String school, String shard) {
+        if (!school.equals(shardDirectory.getDefaultSchool())) {
+            return;
+        }
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (String table : List.of("teacher", "students", "students_archive")) {
+            ShardContext.run(null, shard, () -> transaction.executeWithoutResult(status -> jdbc.update(
+                    "UPDATE " + table + " SET school_code = ? WHERE school_code IS NULL", school)));
+        }
+    }
+
+    // Students reference their teacher, so a school can only move when none of its students has a teacher of
+    // another school and none of its teachers has students of another school
+    private void checkTeachersStayWithinSchool(String school, String shard) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        Long crossing = ShardContext.call(null, shard, () -> jdbc.queryForObject(
+                "SELECT COUNT(*) FROM students s JOIN teacher t ON s.teacher_id = t.id " +
+                        "WHERE (s.school_code = ? OR t.school_code = ?) " +
+                        "AND (s.school_code IS NULL OR t.school_code IS NULL OR s.school_code <> t.school_code)",
+                Long.class, school, school));
+        if (crossing != null && crossing > 0) {
+            throw new RuntimeException(crossing + " students of or taught in school " + school +
+                    " are assigned to a teacher of another school; reassign them before moving the school");
+        }
+    }
+
+    private void alignIds(String shard) {
+        int index = shardDirectory.getShardNames().indexOf(shard);
+        ShardContext.run(null, shard, () -> ShardIdentity.align(new JdbcTemplate(dataSource), index,
+                properties.getIdStride(), properties.getIdBase()));
+    }
+
+    private void waitForOtherNodes() {
+        try {
+            Thread.sleep(properties.getDirectoryRefresh().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the other nodes to see the move", e);
+        }
+    }
+
+    private int batchSize() {
+        return properties.getMoveBatchSize();
+    }
+
+    public record MoveReport(String school, String fromShard, String toShard, Map<String, Long> rows, long millis) {
+    }
+
+    record Table(String name, String key, String filter) {
+
+        Object[] filterArgs(String school) {
+            int parameters = (int) filter.chars().filter(c -> c == '?').count();
+            Object[] args = new Object[parameters];
+            Arrays.fill(args, school);
+            return args;
+        }
+    }
+
+    private record Batch(List<String> columns, List<Object[]> rows) {
+
+        Object lastKey(String key) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).equalsIgnoreCase(key)) {
+                    return rows.get(rows.size() - 1)[i];
+                }
+            }
+            throw new IllegalStateException("No " + key + " column");
+        }
+    }
+
+    private record Digest(long rows, long checksum) {
+    }
+}
@@ -0,0 +1,41 @@
+package com.school.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Hands out connections of the shard named by ShardContext, or of the main shard when none is set.
+// An unknown shard name fails rather than silently using the main shard.
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final Map<String, DataSource> shards;
+
+    // shards in order, the main shard first
+    public ShardRoutingDataSource(Map<String, DataSource> shards) {
+        this.shards = new LinkedHashMap<>(shards);
+        setTargetDataSources(new LinkedHashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(ShardDirectory.MAIN_SHARD));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    public Map<String, DataSource> getShards() {
+        return shards;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.currentShard();
+    }
+
+    // Close the shard pools on shutdown
+    public void close() throws Exception {
+        for (DataSource dataSource : shards.values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.school.shard;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Sends each request to the shard of its school, named by "X-School: <code>"; requests without the header go to
+// the shard of school.sharding.default-school, except cross-shard reads (counts, the student export, lookups by
+// id), which then cover every shard. Writes for a school that is being moved are refused until the move is done.
+@Component
+public class ShardRoutingFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-School";
+
+    private static final int MAX_SCHOOL_LENGTH = 16;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private ShardingProperties properties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String school = request.getHeader(HEADER);
+        if (school != null && (school.isBlank() || school.length() > MAX_SCHOOL_LENGTH)) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            response.setContentType("text/plain");
+            response.getWriter().write(HEADER + " must be a school code of at most " + MAX_SCHOOL_LENGTH +
+                    " characters");
+            return;
+        }
+
+        String routedSchool = school != null ? school : shardDirectory.getDefaultSchool();
+        if (shardDirectory.isMoving(routedSchool) && isWrite(request)
+                && !request.getRequestURI().startsWith("/shards")) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(properties.getDirectoryRefresh().toSeconds()));
+            response.setContentType("text/plain");
+            response.getWriter().write("School " + routedSchool + " is being moved to another shard, " +
+                    "please retry later");
+            return;
+        }
+
+        ShardContext.set(school, shardDirectory.shardOf(routedSchool));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ShardContext.clear();
+        }
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method);
+    }
+}
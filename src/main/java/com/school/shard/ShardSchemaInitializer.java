@@ -0,0 +1,97 @@
+package com.school.shard;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.jpa.boot.spi.JpaSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Hibernate only manages the schema of the main shard. This applies the same schema action
+// (spring.jpa.hibernate.ddl-auto: update, validate, ...) to every other shard once the context is up, using the
+// mapping metadata it captures as a Hibernate Integrator, and then keeps the shards' ids apart (see ShardIdentity)
+// unless the action is validate. Registered by ShardingDataSourceConfig.
+// It also has Hibernate release its connection after every transaction instead of holding it for the life of
+// the EntityManager (Spring's default), because with open-in-view a request's EntityManager would otherwise keep
+// using the shard it connected to first when later transactions switch ShardContext.
+public class ShardSchemaInitializer implements HibernatePropertiesCustomizer, Integrator {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardSchemaInitializer.class);
+
+    private final ShardingProperties properties;
+    private final DataSource dataSource;
+    private final AtomicBoolean initialized = new AtomicBoolean();
+
+    private volatile Metadata metadata;
+    private volatile ServiceRegistry serviceRegistry;
+
+    public ShardSchemaInitializer(ShardingProperties properties, DataSource dataSource) {
+        this.properties = properties;
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(JpaSettings.INTEGRATOR_PROVIDER, (IntegratorProvider) () -> List.of(this));
+        hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                          SessionFactoryImplementor sessionFactory) {
+        this.metadata = metadata;
+        this.serviceRegistry = bootstrapContext.getServiceRegistry();
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void initializeShards() {
+        if (metadata == null || !initialized.compareAndSet(false, true)) {
+            return;
+        }
+        Map<String, Object> settings = new HashMap<>(
+                serviceRegistry.requireService(ConfigurationService.class).getSettings());
+        String action = String.valueOf(settings.getOrDefault(AvailableSettings.HBM2DDL_AUTO, "none"));
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        List<ShardingProperties.Shard> shards = properties.getShards();
+        for (int index = 0; index <= shards.size(); index++) {
+            String shard = index == 0 ? ShardDirectory.MAIN_SHARD : shards.get(index - 1).getName();
+            int shardIndex = index;
+            long start = System.currentTimeMillis();
+            ShardContext.run(null, shard, () -> {
+                // The main shard's schema was handled while the EntityManagerFactory was built
+                if (shardIndex > 0) {
+                    SchemaManagementToolCoordinator.process(metadata, serviceRegistry, settings, dropAction -> {
+                    });
+                }
+                if (!"validate".equalsIgnoreCase(action)) {
+                    ShardIdentity.align(jdbc, shardIndex, properties.getIdStride(), properties.getIdBase());
+                }
+            });
+            log.info("Shard {} ready (schema action {}) in {} ms", shard, action, System.currentTimeMillis() - start);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.school.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Routes every connection to the shard of the current school, see ShardContext.
+// Only active when at least one shard is configured under school.sharding.shards; cannot be combined with
+// read replicas (school.datasource.replicas), which also replace the dataSource bean.
+// With AOT (the fast-startup mode) the condition is evaluated when the jar is built, see AotConditionCheck.
+@Configuration
+@ConditionalOnProperty(prefix = "school.sharding.shards[0]", name = "url")
+public class ShardingDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource mainShardDataSource(DataSourceProperties properties, ShardingProperties sharding) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("shard-" + ShardDirectory.MAIN_SHARD);
+        if (ShardIdentity.isMySql(properties.determineDriverClassName())) {
+            dataSource.setConnectionInitSql(ShardIdentity.mysqlSessionInit(0, sharding.getIdStride()));
+        }
+        return dataSource;
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(ShardingProperties properties,
+                                                         DataSourceProperties mainProperties,
+                                                         HikariDataSource mainShardDataSource) {
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        shards.put(ShardDirectory.MAIN_SHARD, mainShardDataSource);
+        boolean mySql = ShardIdentity.isMySql(mainProperties.determineDriverClassName());
+        for (ShardingProperties.Shard shard : properties.getShards()) {
+            if (shard.getName() == null || shards.containsKey(shard.getName())) {
+                throw new IllegalStateException("Each shard needs a unique name other than \"" +
+                        ShardDirectory.MAIN_SHARD + "\", got " + shard.getName());
+            }
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(mainProperties.determineDriverClassName())
+                    .url(shard.getUrl())
+                    .username(shard.getUsername() != null ? shard.getUsername() : mainProperties.determineUsername())
+                    .password(shard.getPassword() != null ? shard.getPassword() : mainProperties.determinePassword())
+                    .build();
+            dataSource.setPoolName("shard-" + shard.getName());
+            dataSource.setMaximumPoolSize(shard.getPoolSize());
+            if (mySql) {
+                dataSource.setConnectionInitSql(
+                        ShardIdentity.mysqlSessionInit(shards.size(), properties.getIdStride()));
+            }
+            shards.put(shard.getName(), dataSource);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    // Defers fetching the physical connection until the first statement, when the shard is certainly known
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    // Applies the schema and id settings to the shards other than main
+    @Bean
+    public ShardSchemaInitializer shardSchemaInitializer(ShardingProperties properties, DataSource dataSource) {
+        return new ShardSchemaInitializer(properties, dataSource);
+    }
+}
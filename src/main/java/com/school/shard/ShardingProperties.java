@@ -0,0 +1,157 @@
+package com.school.shard;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "school.sharding")
+public class ShardingProperties {
+
+    // Shards besides spring.datasource, which is the "main" shard and also holds the shard directory and the
+    // value dictionary; when empty everything lives on spring.datasource
+    private List<Shard> shards = new ArrayList<>();
+
+    // Initial school -> shard assignments, e.g. school.sharding.schools[NTH]=north; unlisted schools live on
+    // the main shard. Moves made with ShardRebalancer are stored in school_shards and take precedence.
+    private Map<String, String> schools = new LinkedHashMap<>();
+
+    // School of requests without an X-School header and of students created without a schoolCode
+    private String defaultSchool = "SCH";
+
+    // Threads running the per-shard parts of cross-shard reads
+    private int scatterThreads = 8;
+
+    // How often each node re-reads school_shards, i.e. how long a move takes to reach every node
+    private Duration directoryRefresh = Duration.ofSeconds(30);
+
+    // Shard n (main = 0) hands out ids equal to n + 1 modulo idStride, so at most idStride shards; see ShardIdentity
+    private int idStride = 16;
+
+    // Shards other than main hand out ids above this, which must be above every id the main shard handed out
+    // before sharding was enabled
+    private long idBase = 1_000_000_000L;
+
+    // Rows copied per transaction when a school is moved
+    private int moveBatchSize = 500;
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<Shard> shards) {
+        this.shards = shards;
+    }
+
+    public Map<String, String> getSchools() {
+        return schools;
+    }
+
+    public void setSchools(Map<String, String> schools) {
+        this.schools = schools;
+    }
+
+    public String getDefaultSchool() {
+        return defaultSchool;
+    }
+
+    public void setDefaultSchool(String defaultSchool) {
+        this.defaultSchool = defaultSchool;
+    }
+
+    public int getScatterThreads() {
+        return scatterThreads;
+    }
+
+    public void setScatterThreads(int scatterThreads) {
+        this.scatterThreads = scatterThreads;
+    }
+
+    public Duration getDirectoryRefresh() {
+        return directoryRefresh;
+    }
+
+    public void setDirectoryRefresh(Duration directoryRefresh) {
+        this.directoryRefresh = directoryRefresh;
+    }
+
+    public int getIdStride() {
+        return idStride;
+    }
+
+    public void setIdStride(int idStride) {
+        this.idStride = idStride;
+    }
+
+    public long getIdBase() {
+        return idBase;
+    }
+
+    public void setIdBase(long idBase) {
+        this.idBase = idBase;
+    }
+
+    public int getMoveBatchSize() {
+        return moveBatchSize;
+    }
+
+    public void setMoveBatchSize(int moveBatchSize) {
+        this.moveBatchSize = moveBatchSize;
+    }
+
+    public static class Shard {
+
+        private String name;
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int poolSize = 10;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+    }
+}
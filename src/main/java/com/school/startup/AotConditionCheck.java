@@ -0,0 +1,45 @@
+package com.school.startup;
+
+import com.school.db.ReadWriteDataSourceConfig;
+import com.school.shard.ShardingDataSourceConfig;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+// With spring.aot.enabled (the fast-startup mode) the bean definitions were fixed when the jar was built, so
+// @ConditionalOnProperty on ReadWriteDataSourceConfig and ShardingDataSourceConfig was evaluated with the build's
+// properties, not the ones the instance is started with. Replicas or shards configured only at runtime would be
+// silently ignored and every query sent to the primary, so startup fails instead, before any bean is created.
+// It fails the other way round too: a build with replicas or shards started without them.
+@Component
+public class AotConditionCheck implements BeanFactoryPostProcessor, EnvironmentAware {
+
+    static final String REPLICA_URL = "school.datasource.replicas[0].url";
+    static final String SHARD_URL = "school.sharding.shards[0].url";
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        check(beanFactory, REPLICA_URL, ReadWriteDataSourceConfig.class);
+        check(beanFactory, SHARD_URL, ShardingDataSourceConfig.class);
+    }
+
+    private void check(ConfigurableListableBeanFactory beanFactory, String property, Class<?> configuration) {
+        boolean configured = environment.containsProperty(property);
+        boolean registered = beanFactory.getBeanNamesForType(configuration, true, false).length > 0;
+        if (configured != registered) {
+            throw new IllegalStateException(configuration.getSimpleName() + (registered ? " is" : " is not")
+                    + " part of this build but " + property + (configured ? " is" : " is not") + " set; the AOT "
+                    + "bean definitions were generated with different properties, rebuild with "
+                    + "`mvn -Pfast-startup package` using the properties the instance runs with");
+        }
+    }
+}
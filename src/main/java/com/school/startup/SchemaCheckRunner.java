@@ -0,0 +1,29 @@
+package com.school.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+// Ends a schema-check run once the context has started, i.e. once Hibernate has checked the schema.
+// A mismatch fails the startup itself, so the process exits 0 only when the schema matches the mappings.
+@Component
+@Profile("schema-check")
+public class SchemaCheckRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaCheckRunner.class);
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info("Database schema matches the entity mappings");
+        System.exit(SpringApplication.exit(applicationContext, () -> 0));
+    }
+}
@@ -0,0 +1,105 @@
+package com.school.studentid;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.regex.Pattern;
+
+// Reserves blocks of sequence values from student_id_blocks.
+// Each reservation is one UPDATE on the scope's row in its own short transaction, so a block is never
+// handed out twice across threads or nodes and never rolls back with the transaction that asked for it.
+// StudentIdGenerator reserves ahead, off the request thread, so requests rarely wait for a reservation.
+// A new scope starts above the highest ID of its format already in students or students_archive, so IDs
+// stored before the scope existed are never generated again.
+@Component
+public class StudentIdBlockAllocator {
+
+    @Autowired
+    private DataSource dataSource;
+
+    public StudentIdBlockAllocator() {
+    }
+
+    public StudentIdBlockAllocator(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    // Reserve size values of a scope whose IDs a format renders for a school and year; returns the first,
+    // the block is [first, first + size)
+    public long reserve(String scope, int size, StudentIdFormat format, String school, int year) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                long first = reserve(connection, scope, size, format, school, year);
+                connection.commit();
+                return first;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Could not reserve student IDs for " + scope, e);
+        }
+    }
+
+    private long reserve(Connection connection, String scope, int size, StudentIdFormat format, String school,
+                         int year) throws SQLException {
+        // The UPDATE locks the row until commit, so the SELECT reads our own increment
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE student_id_blocks SET next_value = next_value + ? WHERE scope = ?")) {
+            update.setLong(1, size);
+            update.setString(2, scope);
+            if (update.executeUpdate() == 1) {
+                try (PreparedStatement select = connection.prepareStatement(
+                        "SELECT next_value FROM student_id_blocks WHERE scope = ?")) {
+                    select.setString(1, scope);
+                    try (ResultSet resultSet = select.executeQuery()) {
+                        resultSet.next();
+                        return resultSet.getLong(1) - size;
+                    }
+                }
+            }
+        }
+
+        // First block of a new scope
+        long first = highestIssued(connection, format, school, year) + 1;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO student_id_blocks (scope, next_value) VALUES (?, ?)")) {
+            insert.setString(1, scope);
+            insert.setLong(2, first + size);
+            insert.executeUpdate();
+            return first;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // Another node or thread created the scope first
+            connection.rollback();
+            return reserve(connection, scope, size, format, school, year);
+        }
+    }
+
+    // Highest sequence value among the stored IDs of a format for a school and year, 0 if there are none
+    private long highestIssued(Connection connection, StudentIdFormat format, String school, int year)
+            throws SQLException {
+        Pattern pattern = format.pattern(school, year);
+        long highest = 0;
+        for (String table : new String[]{"students", "students_archive"}) {
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT student_id FROM " + table + " WHERE student_id LIKE ? ESCAPE '!'")) {
+                select.setString(1, format.likePattern(school, year));
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        highest = Math.max(highest, format.sequenceOf(pattern, resultSet.getString(1)));
+                    }
+                }
+            }
+        }
+        return highest;
+    }
+}
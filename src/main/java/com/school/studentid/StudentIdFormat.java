@@ -0,0 +1,161 @@
+package com.school.studentid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// A parsed student ID format such as "{school}-{year}-{seq:5}".
+// Parsed once per format string so rendering an ID is a single pass over the parts.
+public class StudentIdFormat {
+
+    private static final int LITERAL = 0;
+    private static final int SCHOOL = 1;
+    private static final int YEAR = 2;
+    private static final int SHORT_YEAR = 3;
+    private static final int SEQUENCE = 4;
+
+    private final int[] kinds;
+    private final String[] literals;
+    private final int[] widths;
+    private final boolean usesYear;
+
+    public StudentIdFormat(String pattern) {
+        List<Integer> kindList = new ArrayList<>();
+        List<String> literalList = new ArrayList<>();
+        List<Integer> widthList = new ArrayList<>();
+        boolean hasSequence = false;
+
+        int position = 0;
+        while (position < pattern.length()) {
+            int open = pattern.indexOf('{', position);
+            if (open < 0) {
+                open = pattern.length();
+            }
+            if (open > position) {
+                kindList.add(LITERAL);
+                literalList.add(pattern.substring(position, open));
+                widthList.add(0);
+            }
+            if (open == pattern.length()) {
+                break;
+            }
+            int close = pattern.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder in student ID format: " + pattern);
+            }
+            String placeholder = pattern.substring(open + 1, close);
+            int width = 0;
+            int colon = placeholder.indexOf(':');
+            if (colon >= 0) {
+                width = Integer.parseInt(placeholder.substring(colon + 1));
+                placeholder = placeholder.substring(0, colon);
+            }
+            switch (placeholder) {
+                case "school" -> kindList.add(SCHOOL);
+                case "year" -> kindList.add(YEAR);
+                case "yy" -> kindList.add(SHORT_YEAR);
+                case "seq" -> {
+                    kindList.add(SEQUENCE);
+                    hasSequence = true;
+                }
+                default -> throw new IllegalArgumentException(
+                        "Unknown placeholder {" + placeholder + "} in student ID format: " + pattern);
+            }
+            literalList.add(null);
+            widthList.add(width);
+            position = close + 1;
+        }
+
+        if (!hasSequence) {
+            throw new IllegalArgumentException("Student ID format needs a {seq} placeholder: " + pattern);
+        }
+        this.kinds = kindList.stream().mapToInt(Integer::intValue).toArray();
+        this.literals = literalList.toArray(new String[0]);
+        this.widths = widthList.stream().mapToInt(Integer::intValue).toArray();
+        this.usesYear = kindList.contains(YEAR) || kindList.contains(SHORT_YEAR);
+    }
+
+    // Whether IDs differ by enrollment year, in which case each year gets its own sequence
+    public boolean usesYear() {
+        return usesYear;
+    }
+
+    public String render(String school, int year, long sequence) {
+        StringBuilder id = new StringBuilder(32);
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case LITERAL -> id.append(literals[i]);
+                case SCHOOL -> id.append(school);
+                case YEAR -> id.append(year);
+                case SHORT_YEAR -> pad(id, year % 100, 2);
+                default -> pad(id, sequence, widths[i]);
+            }
+        }
+        return id.toString();
+    }
+
+    // Pattern matching the IDs this format renders for a school; of one enrollment year, or any when year is null
+    public Pattern pattern(String school, Integer year) {
+        StringBuilder regex = new StringBuilder();
+        boolean sequenceGroup = false;
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case LITERAL -> regex.append(Pattern.quote(literals[i]));
+                case SCHOOL -> regex.append(Pattern.quote(school));
+                case YEAR -> regex.append(year != null ? String.valueOf(year) : "\\d{4}");
+                case SHORT_YEAR -> regex.append(year != null ? String.format("%02d", year % 100) : "\\d{2}");
+                default -> {
+                    // The first {seq} is the one numbered by the sequence
+                    regex.append(sequenceGroup ? "(" : "(?<seq>");
+                    regex.append("\\d{").append(Math.max(1, widths[i])).append(",})");
+                    sequenceGroup = true;
+                }
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    // SQL LIKE pattern (with ! as the escape character) covering the IDs this format renders for a school and year
+    public String likePattern(String school, int year) {
+        StringBuilder like = new StringBuilder(32);
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case LITERAL -> escapeLike(like, literals[i]);
+                case SCHOOL -> escapeLike(like, school);
+                case YEAR -> like.append(year);
+                case SHORT_YEAR -> pad(like, year % 100, 2);
+                default -> like.append('%');
+            }
+        }
+        return like.toString();
+    }
+
+    // Sequence value of an ID rendered by this format for a school and year, or -1 if it is not one
+    // (or its sequence is beyond any value a block can reach)
+    public long sequenceOf(Pattern pattern, String id) {
+        Matcher matcher = pattern.matcher(id);
+        if (!matcher.matches()) {
+            return -1;
+        }
+        String digits = matcher.group("seq");
+        return digits.length() < 18 ? Long.parseLong(digits) : -1;
+    }
+
+    private static void escapeLike(StringBuilder like, String text) {
+        for (char c : text.toCharArray()) {
+            if (c == '%' || c == '_' || c == '!') {
+                like.append('!');
+            }
+            like.append(c);
+        }
+    }
+
+    private static void pad(StringBuilder id, long value, int width) {
+        String digits = Long.toString(value);
+        for (int i = digits.length(); i < width; i++) {
+            id.append('0');
+        }
+        id.append(digits);
+    }
+}
@@ -0,0 +1,179 @@
+package com.school.studentid;
+
+import com.school.shard.ShardContext;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+// Generates human-readable student IDs from hi/lo blocks.
+// A block of sequence values is reserved from the database once per block-size IDs; IDs inside a block are
+// handed out with a single atomic increment. Once half of a block is used the next one is reserved on a
+// background thread, so a request inside a transaction does not also wait for a connection of its own to
+// reserve one; only the first ID of a scope, or a block used up before its successor arrives, waits.
+// Generated IDs need no uniqueness check: a new scope starts above the IDs of its format already stored (see
+// StudentIdBlockAllocator) and clients may not supply IDs of a generated format (see isGeneratedFormat).
+// Values of a block that is not used up before a restart are skipped, so sequences can have gaps.
+@Component
+public class StudentIdGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentIdGenerator.class);
+
+    @Autowired
+    private StudentIdProperties properties;
+
+    @Autowired
+    private StudentIdBlockAllocator allocator;
+
+    private final Map<String, StudentIdFormat> formats = new ConcurrentHashMap<>();
+    private final Map<String, Sequence> sequences = new ConcurrentHashMap<>();
+    private final Map<String, Pattern> schoolPatterns = new ConcurrentHashMap<>();
+
+    private final ExecutorService prefetcher = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "student-id-blocks");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StudentIdGenerator() {
+    }
+
+    public StudentIdGenerator(StudentIdProperties properties, StudentIdBlockAllocator allocator) {
+        this.properties = properties;
+        this.allocator = allocator;
+    }
+
+    public boolean isEnabled() {
+        return properties.isGenerate();
+    }
+
+    // Next student ID for the configured school and an enrollment year
+    public String nextId(int enrollmentYear) {
+        return nextId(properties.getSchool(), enrollmentYear);
+    }
+
+    // Next student ID for a school and an enrollment year; the school's blocks are reserved on its own shard
+    public String nextId(String school, int enrollmentYear) {
+        StudentIdFormat format = formatFor(school, enrollmentYear);
+        String scope = format.usesYear() ? school + "." + enrollmentYear : school;
+        return format.render(school, enrollmentYear, nextValue(scope, format, school, enrollmentYear));
+    }
+
+    // Whether an ID has the form of the school's generated IDs, of any year; such IDs are only handed out here
+    public boolean isGeneratedFormat(String school, String studentId) {
+        if (!isEnabled() || studentId == null) {
+            return false;
+        }
+        List<String> patterns = new ArrayList<>();
+        patterns.add(properties.getDefaultFormat());
+        properties.getFormats().forEach((key, pattern) -> {
+            if (key.equals(school) || key.startsWith(school + ".")) {
+                patterns.add(pattern);
+            }
+        });
+        for (String pattern : patterns) {
+            Pattern ids = schoolPatterns.computeIfAbsent(school + "|" + pattern,
+                    key -> formats.computeIfAbsent(pattern, StudentIdFormat::new).pattern(school, null));
+            if (ids.matcher(studentId).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetcher.shutdownNow();
+    }
+
+    private StudentIdFormat formatFor(String school, int enrollmentYear) {
+        return formats.computeIfAbsent(properties.formatFor(school, enrollmentYear), StudentIdFormat::new);
+    }
+
+    private long nextValue(String scope, StudentIdFormat format, String school, int year) {
+        Sequence sequence = sequences.computeIfAbsent(scope, key -> new Sequence());
+        while (true) {
+            Block block = sequence.block;
+            if (block != null) {
+                long value = block.next.getAndIncrement();
+                if (value < block.limit) {
+                    if (value == block.prefetchAt) {
+                        prefetch(sequence, scope, format, school, year);
+                    }
+                    return value;
+                }
+            }
+            // Only the thread that finds the block used up installs the next one
+            synchronized (sequence) {
+                if (sequence.block == block) {
+                    sequence.block = takeNextBlock(sequence, scope, format, school, year);
+                }
+            }
+        }
+    }
+
+    // Start reserving the block after the current one, in the shard of the calling thread
+    private void prefetch(Sequence sequence, String scope, StudentIdFormat format, String school, int year) {
+        String contextSchool = ShardContext.currentSchool();
+        String shard = ShardContext.currentShard();
+        synchronized (sequence) {
+            if (sequence.next == null) {
+                sequence.next = CompletableFuture.supplyAsync(() -> ShardContext.call(contextSchool, shard,
+                        () -> reserveBlock(scope, format, school, year)), prefetcher);
+            }
+        }
+    }
+
+    // The prefetched block if there is one, otherwise a block reserved now; called holding the sequence's lock
+    private Block takeNextBlock(Sequence sequence, String scope, StudentIdFormat format, String school, int year) {
+        CompletableFuture<Block> next = sequence.next;
+        sequence.next = null;
+        if (next != null) {
+            try {
+                return next.join();
+            } catch (CompletionException e) {
+                log.warn("Reserving the next block of student IDs for {} failed, retrying", scope, e.getCause());
+            }
+        }
+        return reserveBlock(scope, format, school, year);
+    }
+
+    private Block reserveBlock(String scope, StudentIdFormat format, String school, int year) {
+        int size = properties.getBlockSize();
+        long first = allocator.reserve(scope, size, format, school, year);
+        return new Block(first, first + size);
+    }
+
+    private static final class Sequence {
+
+        private volatile Block block;
+
+        // Block reserved ahead of time, guarded by the sequence's lock
+        private CompletableFuture<Block> next;
+    }
+
+    private static final class Block {
+
+        private final AtomicLong next;
+        private final long limit;
+        private final long prefetchAt;
+
+        private Block(long first, long limit) {
+            this.next = new AtomicLong(first);
+            this.limit = limit;
+            this.prefetchAt = first + (limit - first) / 2;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.school.studentid;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "school.student-id")
+public class StudentIdProperties {
+
+    // Generate student IDs for new students that do not bring one
+    private boolean generate = true;
+
+    // School code used in the {school} placeholder and to pick a format
+    private String school = "SCH";
+
+    // Sequence values reserved from the database at a time
+    private int blockSize = 100;
+
+    // Format used when no format is configured for the school or the school and year.
+    // Placeholders: {school}, {year}, {yy}, {seq} and {seq:N} for a sequence zero-padded to N digits
+    private String defaultFormat = "{school}-{year}-{seq:5}";
+
+    // Formats keyed by school code ("SCH") or school code and enrollment year ("SCH.2026")
+    private Map<String, String> formats = new HashMap<>();
+
+    // Format for a school and enrollment year
+    public String formatFor(String school, int year) {
+        String format = formats.get(school + "." + year);
+        if (format == null) {
+            format = formats.get(school);
+        }
+        return format != null ? format : defaultFormat;
+    }
+
+    public boolean isGenerate() {
+        return generate;
+    }
+
+    public void setGenerate(boolean generate) {
+        this.generate = generate;
+    }
+
+    public String getSchool() {
+        return school;
+    }
+
+    public void setSchool(String school) {
+        this.school = school;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    public String getDefaultFormat() {
+        return defaultFormat;
+    }
+
+    public void setDefaultFormat(String defaultFormat) {
+        this.defaultFormat = defaultFormat;
+    }
+
+    public Map<String, String> getFormats() {
+        return formats;
+    }
+
+    public void setFormats(Map<String, String> formats) {
+        this.formats = formats;
+    }
+}
@@ -0,0 +1,45 @@
+-- Moves students.grade_level, teacher.subject and teacher.department into dictionary_values
+-- and replaces them with SMALLINT codes (MySQL).
+-- Run once against the existing schema (every shard) before deploying the version that maps the *_code columns;
+-- until it has run, startup fails in com.school.dictionary.DictionaryMigrationCheck.
+
+CREATE TABLE IF NOT EXISTS dictionary_values (
+    id       SMALLINT     NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    category VARCHAR(32)  NOT NULL,
+    label    VARCHAR(100) NOT NULL,
+    CONSTRAINT uk_dictionary_values UNIQUE (category, label)
+);
+
+INSERT IGNORE INTO dictionary_values (category, label)
+SELECT DISTINCT 'GRADE_LEVEL', grade_level FROM students WHERE grade_level IS NOT NULL;
+
+INSERT IGNORE INTO dictionary_values (category, label)
+SELECT DISTINCT 'SUBJECT', subject FROM teacher WHERE subject IS NOT NULL;
+
+INSERT IGNORE INTO dictionary_values (category, label)
+SELECT DISTINCT 'DEPARTMENT', department FROM teacher WHERE department IS NOT NULL;
+
+-- students.grade_level -> students.grade_level_code
+ALTER TABLE students ADD COLUMN grade_level_code SMALLINT NULL;
+
+UPDATE students s
+JOIN dictionary_values d ON d.category = 'GRADE_LEVEL' AND d.label = s.grade_level
+SET s.grade_level_code = d.id;
+
+ALTER TABLE students DROP COLUMN grade_level;
+CREATE INDEX idx_students_grade_level_code ON students (grade_level_code);
+
+-- teacher.subject / teacher.department -> teacher.subject_code / teacher.department_code
+ALTER TABLE teacher ADD COLUMN subject_code SMALLINT NULL, ADD COLUMN department_code SMALLINT NULL;
+
+UPDATE teacher t
+JOIN dictionary_values d ON d.category = 'SUBJECT' AND d.label = t.subject
+SET t.subject_code = d.id;
+
+UPDATE teacher t
+JOIN dictionary_values d ON d.category = 'DEPARTMENT' AND d.label = t.department
+SET t.department_code = d.id;
+
+ALTER TABLE teacher DROP COLUMN subject, DROP COLUMN department;
+CREATE INDEX idx_teacher_subject_code ON teacher (subject_code);
+CREATE INDEX idx_teacher_department_code ON teacher (department_code);
@@ -0,0 +1,129 @@
+package com.school.autocomplete;
+
+import com.school.entity.Student;
+import com.school.entity.Teacher;
+import com.school.event.RemoteChangesEvent;
+import com.school.event.StudentChangedEvent;
+import com.school.event.StudentsArchivedEvent;
+import com.school.event.TeacherChangedEvent;
+import com.school.repo.StudentRepo;
+import com.school.repo.TeacherRepo;
+import com.school.shard.ShardDirectory;
+import com.school.shard.ShardingProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class AutocompleteIndexTest {
+
+    private AutocompleteIndex index;
+    private StudentRepo studentRepository;
+    private TeacherRepo teacherRepository;
+
+    // Rows the mocked repositories stream when the index is built
+    private final List<Object[]> studentRows = new ArrayList<>();
+    private final List<Object[]> teacherRows = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        index = new AutocompleteIndex();
+        studentRepository = Mockito.mock(StudentRepo.class);
+        teacherRepository = Mockito.mock(TeacherRepo.class);
+        when(studentRepository.streamNameColumns()).thenAnswer(invocation -> studentRows.stream());
+        when(teacherRepository.streamNameColumns()).thenAnswer(invocation -> teacherRows.stream());
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "studentRepository", studentRepository);
+        ReflectionTestUtils.setField(index, "teacherRepository", teacherRepository);
+        ReflectionTestUtils.setField(index, "transactionManager", Mockito.mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(index, "shardDirectory", new ShardDirectory(new ShardingProperties()));
+    }
+
+    @Test
+    void foldsCaseAndAccents() {
+        index.put(PersonType.STUDENT, 1, "Zoë", "Ångström", "ZOE@school.test");
+
+        assertEquals(List.of(1L), ids("zoe"));
+        assertEquals(List.of(1L), ids("ZOË"));
+        assertEquals(List.of(1L), ids("angs"));
+        assertEquals(List.of(1L), ids("  Zoe@Sch "));
+        assertEquals(List.of(), ids("zoo"));
+        assertEquals(List.of(), ids("   "));
+    }
+
+    @Test
+    void updatesReplaceAndDeletesDropTheOldKeys() {
+        Student student = student(1, "Alice", "Smith", "alice@school.test");
+        index.onStudentChanged(new StudentChangedEvent(student, false));
+        assertEquals(List.of(1L), ids("smi"));
+
+        student.setLastName("Jones");
+        student.setEmail("aj@school.test");
+        index.onStudentChanged(new StudentChangedEvent(student, false));
+        assertEquals(List.of(), ids("smi"));
+        assertEquals(List.of(), ids("alice@"));
+        assertEquals(List.of(1L), ids("jon"));
+        assertEquals(List.of(1L), ids("ali"));
+
+        index.onStudentChanged(new StudentChangedEvent(student, true));
+        assertEquals(List.of(), ids("ali"));
+
+        index.onStudentChanged(new StudentChangedEvent(student(2, "Bob", "Brown", "bob@school.test"), false));
+        index.onStudentChanged(new StudentChangedEvent(student(3, "Bea", "Black", "bea@school.test"), false));
+        index.onStudentsArchived(new StudentsArchivedEvent(List.of(2L)));
+        assertEquals(List.of(3L), ids("b"));
+    }
+
+    @Test
+    void filtersByTypeAndListsEachPersonOnce() {
+        index.onStudentChanged(new StudentChangedEvent(student(7, "Sam", "Samson", "sam@school.test"), false));
+        Teacher teacher = new Teacher("Sara", "Smith", "sara@school.test", null, "Math", "Science");
+        teacher.setId(7L);
+        index.onTeacherChanged(new TeacherChangedEvent(teacher, false));
+
+        List<AutocompleteMatch> all = index.complete("sa", null, 10);
+        assertEquals(2, all.size());
+        assertEquals(List.of(new AutocompleteMatch(PersonType.STUDENT, 7L, "Sam", "Samson", "sam@school.test")),
+                index.complete("sa", PersonType.STUDENT, 10));
+        assertEquals(List.of(new AutocompleteMatch(PersonType.TEACHER, 7L, "Sara", "Smith", "sara@school.test")),
+                index.complete("sa", PersonType.TEACHER, 10));
+        assertEquals(1, index.complete("sa", null, 1).size());
+    }
+
+    @Test
+    void rebuildsOnChangesMadeByOtherNodes() {
+        studentRows.add(new Object[]{1L, "Alice", "Smith", "alice@school.test"});
+        teacherRows.add(new Object[]{1L, "Ada", "Lovelace", "ada@school.test"});
+        index.build();
+        assertTrue(index.isReady());
+        assertEquals(List.of(1L, 1L), ids("a"));
+
+        // Another node renamed the student and added a teacher; no local event says so
+        studentRows.set(0, new Object[]{1L, "Alicia", "Smith", "alicia@school.test"});
+        teacherRows.add(new Object[]{2L, "Alan", "Turing", "alan@school.test"});
+        index.onRemoteChanges(new RemoteChangesEvent(2));
+
+        assertEquals(List.of(1L), ids("alicia"));
+        assertEquals(List.of(), ids("alice"));
+        assertEquals(List.of(2L), index.complete("tur", PersonType.TEACHER, 10).stream()
+                .map(AutocompleteMatch::id).toList());
+    }
+
+    private List<Long> ids(String text) {
+        return index.complete(text, null, 10).stream().map(AutocompleteMatch::id).toList();
+    }
+
+    private static Student student(long id, String firstName, String lastName, String email) {
+        Student student = new Student(firstName, lastName, email, null, null, "9", null);
+        student.setId(id);
+        return student;
+    }
+}
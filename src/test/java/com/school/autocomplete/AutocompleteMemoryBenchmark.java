@@ -0,0 +1,81 @@
+package com.school.autocomplete;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Heap used by the autocomplete index for 1M people (3M first name, last name and email keys)
+// and the latency of top-10 lookups. Not a unit test; run it after `mvn test-compile`, e.g.
+//   java -Xmx2g -cp target/test-classes:target/classes:$(cat cp.txt) com.school.autocomplete.AutocompleteMemoryBenchmark
+public class AutocompleteMemoryBenchmark {
+
+    private static final int PEOPLE = 1_000_000;
+    private static final int LOOKUPS = 100_000;
+
+    public static void main(String[] args) {
+        int people = args.length > 0 ? Integer.parseInt(args[0]) : PEOPLE;
+        Random random = new Random(1);
+        String[] firstNames = names(random, 5_000);
+        String[] lastNames = names(random, 50_000);
+
+        // The names are shared with the rows they came from, so only the index itself is measured
+        String[][] rows = new String[people][];
+        for (int i = 0; i < people; i++) {
+            String firstName = firstNames[random.nextInt(firstNames.length)];
+            String lastName = lastNames[random.nextInt(lastNames.length)];
+            rows[i] = new String[]{firstName, lastName,
+                    (firstName + "." + lastName + i + "@school.test").toLowerCase()};
+        }
+
+        long before = usedHeap();
+        long start = System.nanoTime();
+        AutocompleteIndex index = new AutocompleteIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        for (int i = 0; i < people; i++) {
+            index.put(PersonType.STUDENT, i + 1, rows[i][0], rows[i][1], rows[i][2]);
+        }
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        long used = usedHeap() - before;
+
+        long[] nanos = new long[LOOKUPS];
+        int found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            String[] row = rows[random.nextInt(people)];
+            String value = row[random.nextInt(3)];
+            String prefix = value.substring(0, Math.min(value.length(), 1 + random.nextInt(4)));
+            long lookupStart = System.nanoTime();
+            found += index.complete(prefix, null, 10).size();
+            nanos[i] = System.nanoTime() - lookupStart;
+        }
+        Arrays.sort(nanos);
+
+        System.out.printf("%,d people, %,d keys built in %,d ms%n", people, people * 3L, buildMillis);
+        System.out.printf("index heap: %,d MB (%,d bytes per person)%n", used >> 20, used / people);
+        System.out.printf("top-10 lookups: p50 %.1f us, p99 %.1f us, max %.1f us (%,d matches)%n",
+                nanos[LOOKUPS / 2] / 1000.0, nanos[LOOKUPS * 99 / 100] / 1000.0, nanos[LOOKUPS - 1] / 1000.0, found);
+        // Keep the index reachable until after the lookups
+        System.out.println(index.isReady() ? "" : " ");
+    }
+
+    private static String[] names(Random random, int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            char[] name = new char[4 + random.nextInt(6)];
+            name[0] = (char) ('A' + random.nextInt(26));
+            for (int j = 1; j < name.length; j++) {
+                name[j] = (char) ('a' + random.nextInt(26));
+            }
+            names[i] = new String(name);
+        }
+        return names;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
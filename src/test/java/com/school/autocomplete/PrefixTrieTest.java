@@ -0,0 +1,85 @@
+package com.school.autocomplete;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrefixTrieTest {
+
+    @Test
+    void completionsMatchSortedMapAfterRandomAddsAndRemoves() {
+        Random random = new Random(42);
+        PrefixTrie trie = new PrefixTrie();
+        TreeMap<String, TreeSet<Long>> expected = new TreeMap<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            String key = randomKey(random);
+            long ref = random.nextInt(50) + 1;
+            if (random.nextInt(3) == 0) {
+                trie.remove(key, ref);
+                TreeSet<Long> refs = expected.get(key);
+                if (refs != null && refs.remove(ref) && refs.isEmpty()) {
+                    expected.remove(key);
+                }
+            } else {
+                trie.add(key, ref);
+                expected.computeIfAbsent(key, k -> new TreeSet<>()).add(ref);
+            }
+        }
+
+        for (int i = 0; i < 2_000; i++) {
+            String key = randomKey(random);
+            String prefix = key.substring(0, Math.min(key.length(), 1 + random.nextInt(3)));
+            assertEquals(expectedRefs(expected, prefix), visit(trie, prefix), prefix);
+        }
+        assertEquals(expectedRefs(expected, ""), visit(trie, ""));
+    }
+
+    @Test
+    void stopsAfterVisitorDeclines() {
+        PrefixTrie trie = new PrefixTrie();
+        trie.add("smith", 1);
+        trie.add("smyth", 2);
+        trie.add("smit", 3);
+        trie.add("sm", 4);
+
+        List<Long> refs = new ArrayList<>();
+        trie.visit("sm", ref -> {
+            refs.add(ref);
+            return refs.size() < 3;
+        });
+        assertEquals(List.of(4L, 3L, 1L), refs);
+    }
+
+    private static List<Long> visit(PrefixTrie trie, String prefix) {
+        List<Long> refs = new ArrayList<>();
+        trie.visit(prefix, ref -> refs.add(ref));
+        return refs;
+    }
+
+    private static List<Long> expectedRefs(TreeMap<String, TreeSet<Long>> expected, String prefix) {
+        List<Long> refs = new ArrayList<>();
+        for (Map.Entry<String, TreeSet<Long>> entry : expected.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            refs.addAll(entry.getValue());
+        }
+        return refs;
+    }
+
+    private static String randomKey(Random random) {
+        char[] key = new char[1 + random.nextInt(6)];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (char) ('a' + random.nextInt(4));
+        }
+        return new String(key);
+    }
+}
@@ -0,0 +1,219 @@
+package com.school.cohort;
+
+import com.school.dictionary.ValueDictionary;
+import com.school.entity.CohortJob;
+import com.school.entity.Student;
+import com.school.entity.Teacher;
+import com.school.event.StudentsUpdatedEvent;
+import com.school.repo.CohortJobRepo;
+import com.school.repo.StudentRepo;
+import com.school.repo.TeacherRepo;
+import com.school.shard.ShardDirectory;
+import com.school.shard.ShardingProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "school.cohort.chunk-pause=0ms"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CohortTransitionServiceTest {
+
+    @Autowired
+    private CohortTransitionService cohortTransitionService;
+
+    @Autowired
+    private CohortJobRepo cohortJobRepo;
+
+    @Autowired
+    private StudentRepo studentRepo;
+
+    @Autowired
+    private TeacherRepo teacherRepo;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private ChunkRecorder chunks;
+
+    @BeforeEach
+    void setUp() {
+        studentRepo.deleteAll();
+        teacherRepo.deleteAll();
+        cohortJobRepo.deleteAll();
+        chunks.committed.clear();
+        chunks.failOnChunk.set(0);
+        chunks.seen.set(0);
+    }
+
+    @Test
+    void resumedJobContinuesAfterTheLastCommittedChunk() throws InterruptedException {
+        List<Long> cohort = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            cohort.add(save("9"));
+        }
+        long senior = save("10");
+
+        // The second chunk fails before it commits
+        chunks.failOnChunk.set(2);
+        CohortJob job = cohortTransitionService.submit(promote("9", "10"));
+        CohortJob failed = await(job.getId(), CohortJobStatus.FAILED);
+        assertEquals(2, failed.getProcessedCount());
+        assertEquals(cohort.get(1), failed.getLastStudentId());
+        assertEquals(List.of(cohort.subList(0, 2)), chunks.committed);
+        assertEquals(List.of("10", "10", "9", "9", "9", "9", "9"), grades(cohort));
+
+        cohortTransitionService.resume(job.getId());
+        CohortJob completed = await(job.getId(), CohortJobStatus.COMPLETED);
+
+        // Every student was moved by exactly one committed chunk, in id order
+        assertEquals(List.of(cohort.subList(0, 2), cohort.subList(2, 4), cohort.subList(4, 6), cohort.subList(6, 7)),
+                chunks.committed);
+        assertEquals(7, completed.getProcessedCount());
+        assertEquals(7, completed.getTotalCount());
+        assertTrue(grades(cohort).stream().allMatch("10"::equals));
+        assertEquals("10", studentRepo.findById(senior).orElseThrow().getGradeLevel());
+    }
+
+    @Test
+    void rejectsJobsThatWouldMoveTheSameStudentsTwice() throws InterruptedException {
+        save("9");
+        chunks.failOnChunk.set(1);
+        CohortJob failed = cohortTransitionService.submit(promote("9", "10"));
+        await(failed.getId(), CohortJobStatus.FAILED);
+
+        // 10->11 would also take the students 9->10 still has to move; 8->9 would refill the failed job's grade
+        assertThrows(RuntimeException.class, () -> cohortTransitionService.submit(promote("10", "11")));
+        assertThrows(RuntimeException.class, () -> cohortTransitionService.submit(promote("8", "9")));
+
+        // Top-down is fine
+        CohortJob upper = cohortTransitionService.submit(promote("11", "12"));
+        await(upper.getId(), CohortJobStatus.COMPLETED);
+    }
+
+    @Test
+    void reassignsOnlyToTeachersOfTheJobsSchool() throws InterruptedException {
+        long own = saveTeacher(shardDirectory.getDefaultSchool());
+        long other = saveTeacher("NTH");
+        long student = save("9");
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> cohortTransitionService.submit(reassign("9", other)));
+        assertTrue(e.getMessage().contains("not a teacher of school"), e.getMessage());
+
+        CohortJob job = cohortTransitionService.submit(reassign("9", own));
+        await(job.getId(), CohortJobStatus.COMPLETED);
+        assertEquals(own, studentRepo.findById(student).orElseThrow().getTeacher().getId());
+    }
+
+    private CohortJob await(Long jobId, CohortJobStatus status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            CohortJob job = cohortJobRepo.findById(jobId).orElseThrow();
+            if (job.getStatus() == status || System.currentTimeMillis() > deadline) {
+                assertEquals(status, job.getStatus());
+                return job;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private List<String> grades(List<Long> ids) {
+        return ids.stream().map(id -> studentRepo.findById(id).orElseThrow().getGradeLevel()).toList();
+    }
+
+    private long save(String gradeLevel) {
+        long n = studentRepo.count();
+        Student student = new Student("Student", "Name", "student" + n + "@school.test", null,
+                LocalDate.of(2025, 9, 1), gradeLevel, "S-" + n);
+        return studentRepo.save(student).getId();
+    }
+
+    private long saveTeacher(String school) {
+        long n = teacherRepo.count();
+        Teacher teacher = new Teacher("Teacher", "Name", "teacher" + n + "@school.test", null, "Math", "Science");
+        teacher.setSchoolCode(school);
+        return teacherRepo.save(teacher).getId();
+    }
+
+    private static CohortJobRequest reassign(String fromGrade, long teacherId) {
+        CohortJobRequest request = new CohortJobRequest();
+        request.setType(CohortJobType.REASSIGN_TEACHER);
+        request.setFromGrade(fromGrade);
+        request.setTeacherId(teacherId);
+        return request;
+    }
+
+    private static CohortJobRequest promote(String fromGrade, String toGrade) {
+        CohortJobRequest request = new CohortJobRequest();
+        request.setType(CohortJobType.PROMOTE);
+        request.setFromGrade(fromGrade);
+        request.setToGrade(toGrade);
+        request.setChunkSize(2);
+        return request;
+    }
+
+    // Records the chunks that committed and fails one chunk inside its transaction
+    static class ChunkRecorder {
+
+        final List<List<Long>> committed = new CopyOnWriteArrayList<>();
+        final AtomicInteger failOnChunk = new AtomicInteger();
+        final AtomicInteger seen = new AtomicInteger();
+
+        @EventListener
+        public void onChunk(StudentsUpdatedEvent event) {
+            if (seen.incrementAndGet() == failOnChunk.get()) {
+                throw new IllegalStateException("Connection lost");
+            }
+        }
+
+        @TransactionalEventListener
+        public void onCommit(StudentsUpdatedEvent event) {
+            committed.add(event.getStudentIds());
+        }
+    }
+
+    @TestConfiguration
+    @EnableConfigurationProperties(ShardingProperties.class)
+    @Import({CohortTransitionService.class, ShardDirectory.class, ValueDictionary.class})
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        }
+
+        @Bean
+        ChunkRecorder chunkRecorder() {
+            return new ChunkRecorder();
+        }
+    }
+}
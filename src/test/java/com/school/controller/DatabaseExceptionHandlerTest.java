@@ -0,0 +1,74 @@
+package com.school.controller;
+
+import com.school.db.CircuitBreakerProperties;
+import com.school.db.ReadConsistencyFilter;
+import com.school.limiter.ConcurrencyLimitFilter;
+import com.school.service.StudentArchiveService;
+import com.school.service.StudentService;
+import com.school.shard.ShardRoutingFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Write handlers answer their own failures with a 4xx, but an unavailable database still gets a 503 with Retry-After
+@WebMvcTest(controllers = StudentController.class,
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = {
+                ConcurrencyLimitFilter.class, ShardRoutingFilter.class, ReadConsistencyFilter.class}))
+@Import(CircuitBreakerProperties.class)
+class DatabaseExceptionHandlerTest {
+
+    private static final String STUDENT = "{\"firstName\":\"Alice\",\"lastName\":\"Smith\"," +
+            "\"email\":\"alice@school.test\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private StudentService studentService;
+
+    @MockitoBean
+    private StudentArchiveService studentArchiveService;
+
+    @Test
+    void unavailableDatabaseIsNotAnsweredAsABadRequest() throws Exception {
+        when(studentService.createStudent(any())).thenThrow(new QueryTimeoutException("timed out"));
+        mockMvc.perform(post("/student").contentType(MediaType.APPLICATION_JSON).content(STUDENT))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "10"));
+
+        when(studentService.removeTeacherFromStudent(anyLong()))
+                .thenThrow(new CannotCreateTransactionException("circuit breaker is open"));
+        mockMvc.perform(put("/student/1/remove-teacher"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void otherFailuresKeepTheirStatus() throws Exception {
+        when(studentService.createStudent(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        mockMvc.perform(post("/student").contentType(MediaType.APPLICATION_JSON).content(STUDENT))
+                .andExpect(status().isBadRequest());
+
+        when(studentService.removeTeacherFromStudent(anyLong()))
+                .thenThrow(new RuntimeException("Student not found with id: 1"));
+        mockMvc.perform(put("/student/1/remove-teacher"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,166 @@
+package com.school.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatabaseCircuitBreakerTest {
+
+    private EmbeddedDatabase database;
+    private LatencyInjectingDataSource slowDatabase;
+    private MutableClock clock;
+    private DatabaseCircuitBreaker circuitBreaker;
+    private CircuitBreakingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        slowDatabase = new LatencyInjectingDataSource(database);
+
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setWindowSize(10);
+        properties.setMinimumFailures(3);
+        properties.setFailureRateThreshold(50);
+        properties.setOpenDuration(Duration.ofSeconds(10));
+        properties.setHalfOpenProbes(2);
+
+        clock = new MutableClock();
+        circuitBreaker = new DatabaseCircuitBreaker(properties, clock);
+        dataSource = new CircuitBreakingDataSource(slowDatabase, circuitBreaker);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void statementTimeoutCutsSlowQueryShort() throws SQLException {
+        slowDatabase.setLatencyMillis(5000);
+
+        long start = System.nanoTime();
+        assertThrows(SQLTimeoutException.class, () -> query(1));
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertTrue(elapsedMillis < 3000, "query should give up after its 1s timeout, took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void timeoutsOpenTheBreakerAndItFailsFast() {
+        slowDatabase.setLatencyMillis(1500);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(SQLTimeoutException.class, () -> query(1));
+        }
+        assertEquals(DatabaseCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        long start = System.nanoTime();
+        assertThrows(SQLTransientConnectionException.class, () -> query(1));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 100);
+    }
+
+    @Test
+    void breakerClosesAfterSuccessfulProbes() throws SQLException {
+        slowDatabase.setDown(true);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(SQLTransientConnectionException.class, () -> query(1));
+        }
+        assertEquals(DatabaseCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        slowDatabase.setDown(false);
+        clock.advance(Duration.ofSeconds(11));
+
+        query(1);
+        assertEquals(DatabaseCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        query(1);
+        assertEquals(DatabaseCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void failedProbeReopensTheBreaker() {
+        slowDatabase.setDown(true);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(SQLTransientConnectionException.class, () -> query(1));
+        }
+        clock.advance(Duration.ofSeconds(11));
+
+        assertThrows(SQLTransientConnectionException.class, () -> query(1));
+        assertEquals(DatabaseCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void connectionFailuresOfALazyConnectionCount() {
+        CircuitBreakingDataSource lazyDataSource = new CircuitBreakingDataSource(
+                new LazyConnectionDataSourceProxy(slowDatabase), circuitBreaker);
+        slowDatabase.setDown(true);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(SQLTransientConnectionException.class, () -> {
+                try (Connection connection = lazyDataSource.getConnection()) {
+                    connection.prepareStatement("SELECT 1");
+                }
+            });
+        }
+        assertEquals(DatabaseCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void constraintViolationsDoNotCountAsFailures() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE t (id INT PRIMARY KEY)");
+            statement.execute("INSERT INTO t VALUES (1)");
+            for (int i = 0; i < 5; i++) {
+                assertThrows(SQLException.class, () -> statement.execute("INSERT INTO t VALUES (1)"));
+            }
+        }
+        assertEquals(DatabaseCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    private void query(int timeoutSeconds) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(timeoutSeconds);
+            statement.executeQuery("SELECT 1").close();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
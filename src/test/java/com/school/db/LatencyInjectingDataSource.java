@@ -0,0 +1,76 @@
+package com.school.db;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+
+// Local stand-in for a slow database proxy: delays every statement by the configured latency and,
+// like a real driver, gives up with SQLTimeoutException once the statement's query timeout is exceeded
+class LatencyInjectingDataSource extends DelegatingDataSource {
+
+    private volatile long latencyMillis;
+    private volatile boolean down;
+
+    LatencyInjectingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    void setDown(boolean down) {
+        this.down = down;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (down) {
+            throw new SQLTransientConnectionException("Connection refused", "08001");
+        }
+        Connection target = super.getConnection();
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    if (result instanceof Statement statement) {
+                        return wrap(statement, method.getReturnType());
+                    }
+                    return result;
+                });
+    }
+
+    private Object wrap(Statement target, Class<?> type) {
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute")) {
+                        delay(target.getQueryTimeout());
+                    }
+                    return invoke(target, method, args);
+                });
+    }
+
+    private void delay(int timeoutSeconds) throws SQLException, InterruptedException {
+        long latency = latencyMillis;
+        if (timeoutSeconds > 0 && latency > timeoutSeconds * 1000L) {
+            Thread.sleep(timeoutSeconds * 1000L);
+            throw new SQLTimeoutException("Statement cancelled due to timeout", "HYT00");
+        }
+        Thread.sleep(latency);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
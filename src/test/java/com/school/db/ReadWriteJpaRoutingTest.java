@@ -0,0 +1,143 @@
+package com.school.db;
+
+import com.school.dictionary.ValueDictionary;
+import com.school.entity.ChangeStamp;
+import com.school.repo.ChangeStampRepo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The routing as the services see it: @Transactional(readOnly = true) through JpaTransactionManager and Hibernate
+// must reach the replica, every other transaction the primary
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReadWriteJpaRoutingTest {
+
+    @Autowired
+    private ChangeStampRepo changeStampRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EmbeddedDatabase primary;
+
+    @Autowired
+    private EmbeddedDatabase replica;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void readOnlyJpaTransactionsReadFromTheReplica() {
+        // The replica has the table but not the primary's row, as if it lagged behind
+        new JdbcTemplate(replica).execute(
+                "CREATE TABLE IF NOT EXISTS change_stamps (name VARCHAR(32) PRIMARY KEY, stamp BIGINT NOT NULL)");
+        new JdbcTemplate(replica).update("MERGE INTO change_stamps (name, stamp) VALUES ('routing', 2)");
+
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        readWrite.executeWithoutResult(status -> changeStampRepo.save(new ChangeStamp("routing", 1L)));
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        assertEquals(2L, stamp(readOnly));
+        assertEquals(1L, stamp(readWrite));
+
+        ReplicaPoolDataSource.forcePrimaryReads(true);
+        try {
+            assertEquals(1L, stamp(readOnly));
+        } finally {
+            ReplicaPoolDataSource.forcePrimaryReads(false);
+        }
+    }
+
+    @Test
+    void writesAfterReadsInOneOpenEntityManagerGoToThePrimary() {
+        new JdbcTemplate(replica).execute(
+                "CREATE TABLE IF NOT EXISTS change_stamps (name VARCHAR(32) PRIMARY KEY, stamp BIGINT NOT NULL)");
+        new JdbcTemplate(replica).update("MERGE INTO change_stamps (name, stamp) VALUES ('in-view', 2)");
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        readWrite.executeWithoutResult(status -> changeStampRepo.save(new ChangeStamp("in-view", 1L)));
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        // As spring.jpa.open-in-view does, one EntityManager serves every transaction of the request
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            assertEquals(2L, stamp(readOnly, "in-view"));
+            readWrite.executeWithoutResult(status -> changeStampRepo.save(new ChangeStamp("written", 3L)));
+            assertEquals(1L, stamp(readWrite, "in-view"));
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+        assertEquals(List.of(3L), new JdbcTemplate(primary).queryForList(
+                "SELECT stamp FROM change_stamps WHERE name = 'written'", Long.class));
+    }
+
+    private long stamp(TransactionTemplate transaction) {
+        return stamp(transaction, "routing");
+    }
+
+    private long stamp(TransactionTemplate transaction, String name) {
+        Long stamp = transaction.execute(status -> changeStampRepo.findStamp(name).orElseThrow());
+        return stamp != null ? stamp : -1;
+    }
+
+    @TestConfiguration
+    @Import(ValueDictionary.class)
+    static class Config {
+
+        @Bean
+        EmbeddedDatabase primary() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        }
+
+        @Bean
+        EmbeddedDatabase replica() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+            return new ReadWriteDataSourceConfig().releaseConnectionsAfterTransaction();
+        }
+
+        // Wired like ReadWriteDataSourceConfig
+        @Bean
+        @Primary
+        DataSource dataSource(EmbeddedDatabase primary, EmbeddedDatabase replica) {
+            return new ReadWriteRoutingDataSource(primary, new ReplicaPoolDataSource(List.of(replica), primary,
+                    Duration.ofMinutes(1)));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.school.db;
+
+import com.school.dictionary.ValueDictionary;
+import com.school.repo.StudentRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "school.db.timeouts.categories.point-read=1s",
+        "school.db.timeouts.categories.search=1s",
+        "school.db.timeouts.methods[StudentRepo.findAllWithTeacher]=3s",
+        "school.db.timeouts.methods[StudentRepo.findByStudentId]=300ms"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class StatementTimeoutTest {
+
+    @Autowired
+    private StudentRepo studentRepo;
+
+    @Autowired
+    private LatencyInjectingDataSource slowDatabase;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @AfterEach
+    void tearDown() {
+        slowDatabase.setLatencyMillis(0);
+    }
+
+    @Test
+    void searchTimesOutAtItsCategoryTimeout() {
+        slowDatabase.setLatencyMillis(2000);
+
+        long start = System.nanoTime();
+        assertThrows(QueryTimeoutException.class, () -> studentRepo
+                .findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase("smith", "smith"));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1900);
+    }
+
+    @Test
+    void methodTimeoutOverridesCategory() {
+        slowDatabase.setLatencyMillis(2000);
+
+        assertDoesNotThrow(() -> studentRepo.findAllWithTeacher());
+        assertThrows(QueryTimeoutException.class, () -> studentRepo.findByEmail("a@b.com"));
+    }
+
+    @Test
+    void subSecondTimeoutIsRoundedUpRatherThanDropped() {
+        assertEquals(1000, StatementTimeoutAspect.timeoutHint(Duration.ofMillis(300)));
+        assertEquals(2000, StatementTimeoutAspect.timeoutHint(Duration.ofMillis(1001)));
+
+        slowDatabase.setLatencyMillis(2000);
+        assertThrows(QueryTimeoutException.class, () -> studentRepo.findByStudentId("SCH-1"));
+    }
+
+    @Test
+    void sessionTimeoutIsRestoredAfterTheCall() {
+        Object before = testEntityManager.getEntityManager().getProperties()
+                .get(StatementTimeoutAspect.QUERY_TIMEOUT_HINT);
+        studentRepo.findByEmail("a@b.com");
+        assertEquals(before != null ? before : 0, testEntityManager.getEntityManager().getProperties()
+                .get(StatementTimeoutAspect.QUERY_TIMEOUT_HINT));
+    }
+
+    @TestConfiguration
+    @EnableAspectJAutoProxy
+    @EnableConfigurationProperties(StatementTimeoutProperties.class)
+    @Import({StatementTimeoutAspect.class, ValueDictionary.class})
+    static class Config {
+
+        @Bean
+        LatencyInjectingDataSource dataSource() {
+            return new LatencyInjectingDataSource(new EmbeddedDatabaseBuilder()
+                    .setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.school.dictionary;
+
+import com.school.shard.ShardingProperties;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DictionaryMigrationCheckTest {
+
+    @Test
+    void failsWhileTheStringColumnsAreThere() {
+        DictionaryMigrationCheck check = check("CREATE TABLE students (id BIGINT, grade_level VARCHAR(20))");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> check.customize(settings("update")));
+        assertTrue(e.getMessage().contains("students.grade_level"), e.getMessage());
+        assertDoesNotThrow(() -> check.customize(settings("none")));
+    }
+
+    @Test
+    void passesOnceMigrated() {
+        DictionaryMigrationCheck check = check("CREATE TABLE students (id BIGINT, grade_level_code SMALLINT)");
+
+        assertDoesNotThrow(() -> check.customize(settings("update")));
+    }
+
+    private static DictionaryMigrationCheck check(String ddl) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        new JdbcTemplate(dataSource).execute(ddl);
+        DictionaryMigrationCheck check = new DictionaryMigrationCheck();
+        ReflectionTestUtils.setField(check, "dataSource", dataSource);
+        ReflectionTestUtils.setField(check, "shardingProperties",
+                new StaticListableBeanFactory().getBeanProvider(ShardingProperties.class));
+        return check;
+    }
+
+    private static Map<String, Object> settings(String action) {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(AvailableSettings.HBM2DDL_AUTO, action);
+        return settings;
+    }
+}
@@ -0,0 +1,156 @@
+package com.school.dictionary;
+
+import com.school.entity.Student;
+import com.school.event.RemoteChangesEvent;
+import com.school.entity.Teacher;
+import com.school.repo.StudentRepo;
+import com.school.repo.TeacherRepo;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs on a pool of one connection, so any lookup that took a second connection would time out
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ValueDictionaryTest {
+
+    @Autowired
+    private TeacherRepo teacherRepo;
+
+    @Autowired
+    private StudentRepo studentRepo;
+
+    @Autowired
+    private ValueDictionary valueDictionary;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void entityWritesAddTheirValuesAndReadBackAsLabels() {
+        Teacher teacher = new TransactionTemplate(transactionManager).execute(status -> {
+            Teacher saved = teacherRepo.save(teacher("Astronomy", "Sciences"));
+            studentRepo.save(student("Grade 9", saved));
+            return saved;
+        });
+
+        assertTrue(hasEntry("DEPARTMENT", "Sciences"));
+        assertTrue(hasEntry("GRADE_LEVEL", "Grade 9"));
+        assertTrue(hasEntry("SUBJECT", "Astronomy"));
+        Teacher loaded = teacherRepo.findById(teacher.getId()).orElseThrow();
+        assertEquals("Astronomy", loaded.getSubject());
+        assertEquals("Sciences", loaded.getDepartment());
+        assertEquals(1, studentRepo.countByGradeLevel("Grade 9"));
+    }
+
+    @Test
+    void updatesAddNewValues() {
+        Teacher teacher = teacherRepo.save(teacher("Algebra", "Mathematics"));
+        teacher.setSubject("Geometry");
+        teacherRepo.save(teacher);
+
+        assertEquals("Geometry", teacherRepo.findById(teacher.getId()).orElseThrow().getSubject());
+        assertEquals(valueDictionary.encode(DictionaryCategory.SUBJECT, "Geometry"),
+                jdbcTemplate.queryForObject("SELECT subject_code FROM teacher WHERE id = ?", Short.class,
+                        teacher.getId()));
+    }
+
+    @Test
+    void queryParametersDoNotAddValues() {
+        assertEquals(0, studentRepo.countByGradeLevel("Grade 42"));
+        assertEquals(List.of(), studentRepo.findByGradeLevel("Grade 42"));
+
+        assertFalse(hasEntry("GRADE_LEVEL", "Grade 42"));
+        assertEquals(ValueDictionary.UNKNOWN, valueDictionary.encode(DictionaryCategory.GRADE_LEVEL, "Grade 42"));
+    }
+
+    @Test
+    void valuesOfARolledBackWriteAreForgotten() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            teacherRepo.save(teacher("Alchemy", null));
+            assertTrue(hasEntry("SUBJECT", "Alchemy"));
+            status.setRollbackOnly();
+        });
+
+        assertFalse(hasEntry("SUBJECT", "Alchemy"));
+        assertEquals(ValueDictionary.UNKNOWN, valueDictionary.encode(DictionaryCategory.SUBJECT, "Alchemy"));
+
+        Teacher teacher = teacherRepo.save(teacher("Alchemy", null));
+        assertEquals("Alchemy", teacherRepo.findById(teacher.getId()).orElseThrow().getSubject());
+    }
+
+    @Test
+    void unknownValuesAreRememberedUntilAdded() {
+        assertEquals(ValueDictionary.UNKNOWN, valueDictionary.encode(DictionaryCategory.DEPARTMENT, "Music"));
+
+        // Added behind this node's back, as by another node: still unknown here until its writes are noticed
+        jdbcTemplate.update("INSERT INTO dictionary_values (category, label) VALUES ('DEPARTMENT', 'Music')");
+        assertEquals(ValueDictionary.UNKNOWN, valueDictionary.encode(DictionaryCategory.DEPARTMENT, "Music"));
+        valueDictionary.onRemoteChanges(new RemoteChangesEvent(1));
+        assertNotEquals(ValueDictionary.UNKNOWN, valueDictionary.encode(DictionaryCategory.DEPARTMENT, "Music"));
+
+        // Added by a write on this node: known at once
+        assertEquals(ValueDictionary.UNKNOWN, valueDictionary.encode(DictionaryCategory.DEPARTMENT, "Drama"));
+        Teacher teacher = teacherRepo.save(teacher(null, "Drama"));
+        assertEquals(jdbcTemplate.queryForObject("SELECT department_code FROM teacher WHERE id = ?", Short.class,
+                teacher.getId()), valueDictionary.encode(DictionaryCategory.DEPARTMENT, "Drama"));
+    }
+
+    private boolean hasEntry(String category, String label) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM dictionary_values WHERE category = ? AND label = ?",
+                Integer.class, category, label) == 1;
+    }
+
+    private static Teacher teacher(String subject, String department) {
+        String name = UUID.randomUUID().toString().substring(0, 8);
+        return new Teacher("Teacher", "Name", name + "@school.test", null, subject, department);
+    }
+
+    private static Student student(String gradeLevel, Teacher teacher) {
+        String name = UUID.randomUUID().toString().substring(0, 8);
+        Student student = new Student("Student", "Name", name + "@school.test", null, LocalDate.of(2025, 9, 1),
+                gradeLevel, null);
+        student.setTeacher(teacher);
+        return student;
+    }
+
+    @TestConfiguration
+    @Import(ValueDictionary.class)
+    static class Config {
+
+        @Bean
+        HikariDataSource dataSource() {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+            dataSource.setMaximumPoolSize(1);
+            dataSource.setConnectionTimeout(1000);
+            return dataSource;
+        }
+    }
+}
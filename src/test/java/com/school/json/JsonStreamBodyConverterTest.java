@@ -0,0 +1,47 @@
+package com.school.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonStreamBodyConverterTest {
+
+    private final JsonStreamBodyConverter converter =
+            new JsonStreamBodyConverter(Map.of(MediaType.APPLICATION_JSON, new JsonFactory()));
+
+    @Test
+    void writesTheBody() throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(generator -> {
+            generator.writeStartArray();
+            generator.writeNumber(1);
+            generator.writeEndArray();
+        }, MediaType.APPLICATION_JSON, message);
+
+        assertEquals("[1]", message.getBodyAsString());
+    }
+
+    @Test
+    void failureMidStreamLeavesTheBodyUnterminated() {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        JsonStreamBody failing = generator -> {
+            generator.writeStartArray();
+            generator.writeStartObject();
+            generator.writeNumberField("id", 1);
+            generator.writeEndObject();
+            throw new IllegalStateException("connection lost");
+        };
+
+        assertThrows(IllegalStateException.class,
+                () -> converter.write(failing, MediaType.APPLICATION_JSON, message));
+        // Not "[{"id":1}]", which a client would take for a complete list
+        assertEquals("[{\"id\":1}", message.getBodyAsString());
+    }
+}
@@ -0,0 +1,157 @@
+package com.school.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.school.controller.DatabaseExceptionHandler;
+import com.school.controller.StudentController;
+import com.school.db.ReadConsistencyFilter;
+import com.school.entity.Student;
+import com.school.limiter.ConcurrencyLimitFilter;
+import com.school.service.StudentArchiveService;
+import com.school.service.StudentService;
+import com.school.shard.ShardRoutingFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// GET /student and POST /student/bulk negotiate CBOR and Smile and answer the same data as JSON
+@WebMvcTest(controllers = StudentController.class,
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = {
+                ConcurrencyLimitFilter.class, ShardRoutingFilter.class, ReadConsistencyFilter.class,
+                DatabaseExceptionHandler.class}))
+@Import(StudentJsonWriter.class)
+class JsonStreamingConfigTest {
+
+    private static final TypeReference<List<Map<String, Object>>> ROWS = new TypeReference<>() {
+    };
+
+    private static final MediaType SMILE = JsonStreamingConfig.APPLICATION_SMILE;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StudentJsonWriter studentJsonWriter;
+
+    @Autowired
+    private RequestMappingHandlerAdapter handlerAdapter;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    @MockitoBean
+    private StudentService studentService;
+
+    @MockitoBean
+    private StudentArchiveService studentArchiveService;
+
+    @Test
+    void streamedStudentsNegotiateEveryFormat() throws Exception {
+        doAnswer(invocation -> {
+            studentJsonWriter.writeArray(invocation.getArgument(0, JsonGenerator.class), Stream.of(
+                    new Object[]{1L, "Alice", "Smith", "alice@school.test", null, LocalDate.of(2026, 9, 1), "9",
+                            "SCH-2026-00001", "SCH"},
+                    new Object[]{2L, "Zoë", "Ünal", "zoe@school.test", "555", null, null, null, "SCH"}));
+            return null;
+        }).when(studentService).writeAllStudents(any());
+
+        List<Map<String, Object>> json = decode(objectMapper, get("/student"), MediaType.APPLICATION_JSON);
+        assertEquals(2, json.size());
+        assertEquals("2026-09-01", json.get(0).get("enrollmentDate"));
+        assertEquals("Zoë", json.get(1).get("firstName"));
+
+        assertEquals(json, decode(new ObjectMapper(new CBORFactory()), get("/student"), MediaType.APPLICATION_CBOR));
+        assertEquals(json, decode(new ObjectMapper(new SmileFactory()), get("/student"), SMILE));
+    }
+
+    @Test
+    void bulkCreateReadsAndAnswersEveryFormat() throws Exception {
+        when(studentService.createStudents(anyList())).thenAnswer(invocation -> {
+            List<Student> students = invocation.getArgument(0);
+            long id = 1;
+            for (Student student : students) {
+                student.setId(id++);
+                student.setStudentId("SCH-2026-0000" + student.getId());
+            }
+            return students;
+        });
+        List<Map<String, Object>> request = List.of(
+                Map.of("firstName", "Alice", "lastName", "Smith", "email", "alice@school.test",
+                        "enrollmentDate", "2026-09-01", "gradeLevel", "9"),
+                Map.of("firstName", "Bob", "lastName", "Jones", "email", "bob@school.test"));
+
+        List<Map<String, Object>> json = decode(objectMapper, post("/student/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsBytes(request)), MediaType.APPLICATION_JSON);
+        assertEquals("SCH-2026-00001", json.get(0).get("studentId"));
+        assertEquals("2026-09-01", json.get(0).get("enrollmentDate"));
+        assertEquals("Bob", json.get(1).get("firstName"));
+
+        for (ObjectMapper binary : List.of(new ObjectMapper(new CBORFactory()), new ObjectMapper(new SmileFactory()))) {
+            MediaType type = binary.getFactory() instanceof CBORFactory ? MediaType.APPLICATION_CBOR : SMILE;
+            assertEquals(json, decode(binary, post("/student/bulk")
+                    .contentType(type)
+                    .content(binary.writeValueAsBytes(request)), type));
+        }
+    }
+
+    @Test
+    void streamedBodiesUseTheFactoriesOfTheConfiguredMappers() {
+        JsonStreamBodyConverter converter = handlerAdapter.getMessageConverters().stream()
+                .filter(JsonStreamBodyConverter.class::isInstance)
+                .map(JsonStreamBodyConverter.class::cast)
+                .findFirst()
+                .orElseThrow();
+        Map<?, ?> factories = (Map<?, ?>) ReflectionTestUtils.getField(converter, "factories");
+
+        assertSame(objectMapper.getFactory(), factories.get(MediaType.APPLICATION_JSON));
+        assertSame(cborConverter.getObjectMapper().getFactory(), factories.get(MediaType.APPLICATION_CBOR));
+        assertSame(smileConverter.getObjectMapper().getFactory(), factories.get(SMILE));
+    }
+
+    private List<Map<String, Object>> decode(ObjectMapper mapper, MockHttpServletRequestBuilder request,
+                                             MediaType accept) throws Exception {
+        MvcResult result = mockMvc.perform(request.accept(accept))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(content().contentTypeCompatibleWith(accept))
+                .andReturn();
+        return mapper.readValue(result.getResponse().getContentAsByteArray(), ROWS);
+    }
+}
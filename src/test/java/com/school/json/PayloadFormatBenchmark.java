@@ -0,0 +1,100 @@
+package com.school.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import com.school.entity.Student;
+import com.school.entity.Teacher;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Payload size and encode/decode throughput of the /teacher/with-students and /student bodies
+// in JSON, CBOR and Smile. Not a unit test; run it after `mvn test-compile` with the test classpath, e.g.
+//   java -cp target/test-classes:target/classes:$(cat cp.txt) com.school.json.PayloadFormatBenchmark
+public class PayloadFormatBenchmark {
+
+    private static final int TEACHERS = 200;
+    private static final int STUDENTS_PER_TEACHER = 50;
+    private static final long RUN_NANOS = 2_000_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        List<Teacher> teachers = teachersWithStudents();
+        List<Student> students = new ArrayList<>();
+        for (Teacher teacher : teachers) {
+            students.addAll(teacher.getStudents());
+        }
+
+        System.out.printf("%d teachers with %d students each%n", TEACHERS, STUDENTS_PER_TEACHER);
+        System.out.printf("%-7s %-22s %12s %12s %12s%n", "format", "body", "bytes", "encode ms", "decode ms");
+        for (String format : List.of("json", "cbor", "smile")) {
+            ObjectMapper mapper = mapper(format);
+            run(format, "teachers with students", mapper, teachers, Teacher.class);
+            run(format, "students", mapper, students, Student.class);
+        }
+    }
+
+    private static <T> void run(String format, String body, ObjectMapper mapper, List<T> value, Class<T> type)
+            throws Exception {
+        CollectionType listType = mapper.getTypeFactory().constructCollectionType(List.class, type);
+        byte[] encoded = mapper.writeValueAsBytes(value);
+
+        // Warm up, then run each side for a fixed time
+        for (int i = 0; i < 20; i++) {
+            mapper.readValue(mapper.writeValueAsBytes(value), listType);
+        }
+        long encodes = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < RUN_NANOS) {
+            mapper.writeValueAsBytes(value);
+            encodes++;
+        }
+        double encodeSeconds = (System.nanoTime() - start) / 1e9;
+
+        long decodes = 0;
+        start = System.nanoTime();
+        while (System.nanoTime() - start < RUN_NANOS) {
+            mapper.readValue(encoded, listType);
+            decodes++;
+        }
+        double decodeSeconds = (System.nanoTime() - start) / 1e9;
+
+        // Time per body, comparable across formats unlike bytes per second
+        System.out.printf("%-7s %-22s %,12d %12.2f %12.2f%n", format, body, encoded.length,
+                encodeSeconds * 1000 / encodes, decodeSeconds * 1000 / decodes);
+    }
+
+    // Configured like the application's converters: ISO dates rather than timestamps
+    private static ObjectMapper mapper(String format) {
+        Jackson2ObjectMapperBuilder builder = switch (format) {
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile();
+            default -> Jackson2ObjectMapperBuilder.json();
+        };
+        return builder.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    }
+
+    private static List<Teacher> teachersWithStudents() {
+        String[] subjects = {"Math", "Biology", "History", "Art"};
+        String[] departments = {"Science", "Humanities", "Arts"};
+        List<Teacher> teachers = new ArrayList<>(TEACHERS);
+        long studentId = 1;
+        for (int t = 1; t <= TEACHERS; t++) {
+            Teacher teacher = new Teacher("Teacher" + t, "Surname" + t, "teacher" + t + "@school.test",
+                    "555-01" + t, subjects[t % subjects.length], departments[t % departments.length]);
+            teacher.setId((long) t);
+            for (int s = 0; s < STUDENTS_PER_TEACHER; s++, studentId++) {
+                Student student = new Student("First" + studentId, "Last" + studentId,
+                        "student" + studentId + "@school.test", "555-02" + studentId,
+                        LocalDate.of(2022, 9, 1).plusDays(studentId % 700), String.valueOf(9 + studentId % 4),
+                        "SCH-2022-" + studentId);
+                student.setId(studentId);
+                teacher.addStudent(student);
+            }
+            teachers.add(teacher);
+        }
+        return teachers;
+    }
+}
@@ -0,0 +1,140 @@
+package com.school.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.school.SchoolApplication;
+import com.school.dictionary.DictionaryCategory;
+import com.school.dictionary.ValueDictionary;
+import com.school.entity.Student;
+import com.school.service.StudentService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compares the allocation of GET /student written from a List<Student> (the previous path) with the
+// streaming StudentJsonWriter path, for 100k students in an in-memory H2 database.
+// Not a unit test; run it after `mvn test-compile` with the test classpath, e.g.
+//   mvn -q dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=cp.txt
+//   java -cp target/test-classes:target/classes:$(cat cp.txt) com.school.json.StudentJsonBenchmark [rows]
+public class StudentJsonBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SchoolApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;MODE=MySQL",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--spring.jpa.show-sql=false",
+                        "--school.roster.enabled=false",
+                        "--school.archive.enabled=false",
+                        "--logging.level.root=WARN")) {
+            insertStudents(context, rows);
+
+            StudentService studentService = context.getBean(StudentService.class);
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+
+            Path listPath = out -> {
+                List<Student> students = studentService.getAllStudents();
+                objectMapper.writeValue(out, students);
+            };
+            Path streamingPath = out -> {
+                try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                    studentService.writeAllStudents(generator);
+                }
+            };
+
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                measure(listPath);
+                measure(streamingPath);
+            }
+            report("List<Student> + ObjectMapper", listPath, rows);
+            report("Streaming StudentJsonWriter", streamingPath, rows);
+        }
+    }
+
+    private static void insertStudents(ConfigurableApplicationContext context, int rows) {
+        ValueDictionary dictionary = context.getBean(ValueDictionary.class);
+        short[] grades = new short[4];
+        for (int i = 0; i < grades.length; i++) {
+            grades[i] = dictionary.register(DictionaryCategory.GRADE_LEVEL, String.valueOf(9 + i));
+        }
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Object[]> batch = new ArrayList<>(1000);
+        LocalDate start = LocalDate.of(2022, 9, 1);
+        for (int i = 1; i <= rows; i++) {
+            batch.add(new Object[]{"First" + i, "Last" + i, "student" + i + "@school.test", "555-" + i,
+                    Date.valueOf(start.plusDays(i % 1000)), grades[i % grades.length], "SCH-" + i});
+            if (batch.size() == 1000 || i == rows) {
+                jdbcTemplate.batchUpdate("INSERT INTO students (first_name, last_name, email, phone_number, " +
+                        "enrollment_date, grade_level_code, student_id) VALUES (?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private static void report(String name, Path path, int rows) throws IOException {
+        long bytes = 0;
+        long allocated = 0;
+        long nanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long[] result = measure(path);
+            bytes = result[0];
+            allocated += result[1];
+            nanos += result[2];
+        }
+        allocated /= MEASURED_ROUNDS;
+        nanos /= MEASURED_ROUNDS;
+        System.out.printf("%-30s %,d rows  %,d response bytes  %,d MB allocated (%,d bytes/row)  %,d ms  %,.0f MB/s allocation rate%n",
+                name, rows, bytes, allocated >> 20, allocated / rows, nanos / 1_000_000,
+                (allocated / 1048576.0) / (nanos / 1e9));
+    }
+
+    // Response bytes, bytes allocated by this thread and elapsed nanos of one run
+    private static long[] measure(Path path) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        CountingOutputStream out = new CountingOutputStream();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        path.write(out);
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new long[]{out.count, allocated, elapsed};
+    }
+
+    private interface Path {
+
+        void write(OutputStream out) throws IOException;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.school.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.school.dictionary.ValueDictionary;
+import com.school.entity.Student;
+import com.school.entity.Teacher;
+import com.school.repo.StudentRepo;
+import com.school.repo.TeacherRepo;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The streaming writer must produce exactly what the Boot-configured ObjectMapper makes of the entities
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@AutoConfigureJson
+class StudentJsonWriterTest {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StudentJsonWriter writer;
+
+    @Autowired
+    private StudentRepo studentRepo;
+
+    @Autowired
+    private TeacherRepo teacherRepo;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        Teacher math = teacherRepo.save(new Teacher("Ada", "O'Brien \"Lovelace\"", "ada@school.test",
+                "+44 20 7946 0000", "Math", "Science"));
+        Teacher art = teacherRepo.save(new Teacher("Frida", "Kahlo", "frida@school.test", null, "Art", null));
+        teacherRepo.save(new Teacher("Homer", "Ομηρος", "homer@school.test", null, null, "Classics"));
+
+        save("Alice", "Smith", LocalDate.of(2025, 9, 1), "9", math);
+        save("Zoë", "Ünal \\ </script>", LocalDate.of(2025, 9, 1), "10", art);
+        save("Bob", "Tab\tNewline\n", null, null, math);
+        save("Carol", "Jones", LocalDate.of(2026, 1, 5), "11", null);
+        Student noStudentId = new Student("Dan", "Brown", "dan@school.test", "555", LocalDate.of(2024, 2, 29), "9",
+                null);
+        noStudentId.setSchoolCode("NTH");
+        studentRepo.save(noStudentId);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void studentsMatchTheObjectMapperByteForByte() throws IOException {
+        List<Student> students = studentRepo.findAll(Sort.by("id"));
+        String expected = objectMapper.writeValueAsString(students);
+
+        String streamed = write(generator -> {
+            try (Stream<Object[]> rows = studentRepo.streamJsonColumns()) {
+                writer.writeArray(generator, rows);
+            }
+        });
+        assertEquals(expected, streamed);
+    }
+
+    @Test
+    void teachersWithStudentsMatchTheObjectMapperByteForByte() throws IOException {
+        List<Teacher> teachers = teacherRepo.findAll(Sort.by("id"));
+        for (Teacher teacher : teachers) {
+            teacher.getStudents().sort(Comparator.comparing(Student::getId));
+        }
+        String expected = objectMapper.writeValueAsString(teachers);
+
+        String streamed = write(generator -> {
+            try (Stream<Object[]> rows = teacherRepo.streamJsonColumnsWithStudents()) {
+                writer.writeTeachersWithStudents(generator, rows);
+            }
+        });
+        assertEquals(expected, streamed);
+    }
+
+    @Test
+    void emptyTablesWriteEmptyArrays() throws IOException {
+        studentRepo.deleteAll();
+        teacherRepo.deleteAll();
+
+        assertEquals("[]", write(generator -> writer.writeArray(generator, studentRepo.streamJsonColumns())));
+        assertEquals("[]", write(generator -> writer.writeTeachersWithStudents(generator,
+                teacherRepo.streamJsonColumnsWithStudents())));
+    }
+
+    private void save(String firstName, String lastName, LocalDate enrolled, String gradeLevel, Teacher teacher) {
+        Student student = new Student(firstName, lastName, firstName.toLowerCase() + "@student.test", null, enrolled,
+                gradeLevel, "S-" + firstName);
+        student.setSchoolCode("SCH");
+        student.setTeacher(teacher);
+        studentRepo.save(student);
+    }
+
+    private String write(JsonStreamBody body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            body.writeTo(generator);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @TestConfiguration
+    @Import({StudentJsonWriter.class, ValueDictionary.class})
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        }
+    }
+}
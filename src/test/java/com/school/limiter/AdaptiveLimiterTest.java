@@ -0,0 +1,115 @@
+package com.school.limiter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void rejectsOnceTheLimitIsReached() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(3, 1, 10, 1.5);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release(FAST);
+        assertEquals(2, limiter.getInFlight());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void growsWhileLatencyHoldsAndShrinksWhenItRises() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 2, 100, 1.5);
+        runAtLimit(limiter, FAST, 200);
+        int grown = limiter.getLimit();
+        assertTrue(grown > 10, "limit " + grown);
+
+        runAtLimit(limiter, SLOW, 50);
+        assertTrue(limiter.getLimit() < grown, "limit " + limiter.getLimit() + " after " + grown);
+        assertTrue(limiter.getLimit() >= 2);
+    }
+
+    @Test
+    void lightLoadLeavesTheLimitAlone() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 2, 100, 1.5);
+        for (int i = 0; i < 200; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(i < 100 ? FAST : SLOW);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void classifiesRequestsByMethodAndPath() {
+        assertEquals(RouteClass.POINT_READ, RouteClass.classify(request("GET", "/student/12")));
+        assertEquals(RouteClass.POINT_READ, RouteClass.classify(request("GET", "/student/email/a@b.test")));
+        assertEquals(RouteClass.POINT_READ, RouteClass.classify(request("GET", "/teacher/3/exists")));
+        assertEquals(RouteClass.POINT_READ, RouteClass.classify(request("HEAD", "/student/12")));
+        assertEquals(RouteClass.POINT_READ, RouteClass.classify(request("OPTIONS", "/student")));
+        assertEquals(RouteClass.LIST_SCAN, RouteClass.classify(request("GET", "/student/grade/9")));
+        assertEquals(RouteClass.LIST_SCAN, RouteClass.classify(request("HEAD", "/teacher")));
+        assertEquals(RouteClass.WRITE, RouteClass.classify(request("POST", "/student")));
+        assertEquals(RouteClass.WRITE, RouteClass.classify(request("DELETE", "/teacher/3")));
+        assertNull(RouteClass.classify(request("GET", "/roster/consistency")));
+    }
+
+    @Test
+    void filterShedsRequestsOverTheLimit() throws Exception {
+        LimiterProperties properties = new LimiterProperties();
+        LimiterProperties.Route route = new LimiterProperties.Route();
+        route.setInitialLimit(1);
+        route.setMinLimit(1);
+        route.setRetryAfterSeconds(7);
+        properties.getRoutes().put(RouteClass.POINT_READ, route);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(properties);
+
+        // Hold the only slot
+        assertTrue(filter.getLimiter(RouteClass.POINT_READ).tryAcquire());
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/student/1"), rejected, new MockFilterChain());
+        assertEquals(503, rejected.getStatus());
+        assertEquals("7", rejected.getHeader("Retry-After"));
+
+        // Other route classes have limits of their own
+        MockHttpServletResponse listed = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/student"), listed, new MockFilterChain());
+        assertEquals(200, listed.getStatus());
+
+        filter.getLimiter(RouteClass.POINT_READ).release(FAST);
+        MockHttpServletResponse served = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/student/1"), served, new MockFilterChain());
+        assertEquals(200, served.getStatus());
+        assertEquals(0, filter.getLimiter(RouteClass.POINT_READ).getInFlight());
+    }
+
+    // Keep the limiter full and complete one request at a time with the given latency
+    private static void runAtLimit(AdaptiveLimiter limiter, long latencyNanos, int requests) {
+        for (int i = 0; i < requests; i++) {
+            while (limiter.tryAcquire()) {
+                // fill every free slot
+            }
+            limiter.release(latencyNanos);
+        }
+        while (limiter.getInFlight() > 0) {
+            limiter.release(latencyNanos);
+        }
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        return new MockHttpServletRequest(method, path);
+    }
+}
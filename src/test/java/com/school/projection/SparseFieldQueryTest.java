@@ -0,0 +1,105 @@
+package com.school.projection;
+
+import com.school.db.StatementTimeoutProperties;
+import com.school.dictionary.ValueDictionary;
+import com.school.entity.Student;
+import com.school.entity.Teacher;
+import com.school.repo.StudentRepo;
+import com.school.repo.TeacherRepo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SparseFieldQueryTest {
+
+    @Autowired
+    private SparseFieldQuery sparseFieldQuery;
+
+    @Autowired
+    private StudentRepo studentRepo;
+
+    @Autowired
+    private TeacherRepo teacherRepo;
+
+    @Test
+    void parsesOnlyWhitelistedFieldsInTheRequestedOrder() {
+        assertEquals(List.of("lastName", "id", "teacherId"),
+                FieldWhitelist.STUDENT.parse(" lastName,id,,teacherId,id "));
+        assertEquals(List.of("department", "id"), FieldWhitelist.TEACHER.parse("department,id"));
+
+        // Columns outside the whitelist, associations and nested paths are all refused
+        for (String fields : new String[]{"id,password", "teacher", "teacher.id", "subject", ",", ""}) {
+            assertThrows(IllegalArgumentException.class, () -> FieldWhitelist.STUDENT.parse(fields), fields);
+        }
+    }
+
+    @Test
+    void mapsTupleColumnsToTheRequestedFields() {
+        Teacher teacher = teacherRepo.save(new Teacher("Ada", "Lovelace", "ada@school.test", null, "Math",
+                "Science"));
+        Student first = studentRepo.save(student("Alice", teacher));
+        Student second = studentRepo.save(student("Bob", null));
+
+        List<String> fields = FieldWhitelist.STUDENT.parse("teacherId,gradeLevel,firstName,id,enrollmentDate");
+        List<Map<String, Object>> rows = sparseFieldQuery.findAll(FieldWhitelist.STUDENT, fields);
+
+        assertEquals(2, rows.size());
+        Map<String, Object> row = rows.get(0);
+        assertEquals(fields, new ArrayList<>(row.keySet()));
+        assertEquals(teacher.getId(), row.get("teacherId"));
+        assertEquals("10", row.get("gradeLevel"));
+        assertEquals("Alice", row.get("firstName"));
+        assertEquals(first.getId(), row.get("id"));
+        assertEquals(LocalDate.of(2026, 9, 1), row.get("enrollmentDate"));
+        // A student without a teacher is still listed: the teacher id is read from the foreign key, not a join
+        assertEquals(second.getId(), rows.get(1).get("id"));
+        assertNull(rows.get(1).get("teacherId"));
+
+        Optional<Map<String, Object>> teacherRow = sparseFieldQuery.findById(FieldWhitelist.TEACHER,
+                FieldWhitelist.TEACHER.parse("department,subject"), teacher.getId());
+        assertEquals(Map.of("department", "Science", "subject", "Math"), teacherRow.orElseThrow());
+        assertTrue(sparseFieldQuery.findById(FieldWhitelist.TEACHER, List.of("id"), -1L).isEmpty());
+    }
+
+    private static Student student(String firstName, Teacher teacher) {
+        Student student = new Student(firstName, "Student", firstName.toLowerCase() + "@school.test", null,
+                LocalDate.of(2026, 9, 1), "10", "S-" + firstName);
+        student.setTeacher(teacher);
+        return student;
+    }
+
+    @TestConfiguration
+    @EnableConfigurationProperties(StatementTimeoutProperties.class)
+    @Import({SparseFieldQuery.class, ValueDictionary.class})
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        }
+    }
+}
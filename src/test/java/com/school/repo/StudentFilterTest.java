@@ -0,0 +1,137 @@
+package com.school.repo;
+
+import com.school.dictionary.ValueDictionary;
+import com.school.entity.Student;
+import com.school.entity.Teacher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class StudentFilterTest {
+
+    @Autowired
+    private StudentRepo studentRepo;
+
+    @Autowired
+    private TeacherRepo teacherRepo;
+
+    private Teacher math;
+    private Teacher art;
+
+    @BeforeEach
+    void setUp() {
+        math = teacherRepo.save(new Teacher("Ada", "Lovelace", "ada@school.test", null, "Math", "Science"));
+        art = teacherRepo.save(new Teacher("Frida", "Kahlo", "frida@school.test", null, "Art", "Arts"));
+
+        save("Alice", "Smith", "9", LocalDate.of(2025, 9, 1), math);
+        save("Bob", "Smithers", "9", LocalDate.of(2026, 1, 10), art);
+        save("Carol", "Jones", "10", LocalDate.of(2026, 2, 1), math);
+        save("Dan", "100%_Sure", "9", LocalDate.of(2026, 3, 1), null);
+        save("Eve", "smith", "11", LocalDate.of(2026, 4, 1), null);
+    }
+
+    @Test
+    void emptyFilterMatchesEveryone() {
+        assertEquals(List.of("Alice", "Bob", "Carol", "Dan", "Eve"), names(filter -> { }));
+    }
+
+    @Test
+    void studentCriteriaAreCombined() {
+        assertEquals(List.of("Alice", "Bob", "Dan"), names(filter -> filter.setGradeLevel("9")));
+        assertEquals(List.of("Bob", "Dan"), names(filter -> {
+            filter.setGradeLevel("9");
+            filter.setEnrolledFrom(LocalDate.of(2026, 1, 1));
+            filter.setEnrolledTo(LocalDate.of(2026, 3, 1));
+        }));
+        // A grade level that was never written is not in the dictionary and matches nothing
+        assertEquals(List.of(), names(filter -> filter.setGradeLevel("13")));
+    }
+
+    @Test
+    void nameMatchesEitherNameIgnoringCaseAndWildcards() {
+        assertEquals(List.of("Alice", "Bob", "Eve"), names(filter -> filter.setName(" SMITH ")));
+        assertEquals(List.of("Dan"), names(filter -> filter.setName("0%_s")));
+        assertEquals(List.of(), names(filter -> filter.setName("0%x")));
+    }
+
+    @Test
+    void teacherCriteria() {
+        assertEquals(List.of("Alice", "Carol"), names(filter -> filter.setTeacherId(math.getId())));
+        assertEquals(List.of("Dan", "Eve"), names(filter -> filter.setHasTeacher(false)));
+        assertEquals(List.of("Alice", "Bob", "Carol"), names(filter -> filter.setHasTeacher(true)));
+        assertEquals(List.of("Bob"), names(filter -> filter.setSubject("Art")));
+        assertEquals(List.of("Carol"), names(filter -> {
+            filter.setDepartment("Science");
+            filter.setGradeLevel("10");
+        }));
+        assertEquals(List.of(), names(filter -> filter.setDepartment("science")));
+    }
+
+    @Test
+    void slicesReadOnlyAsFarAsTheNextPage() {
+        StudentFilter filter = new StudentFilter();
+        filter.setGradeLevel("9");
+
+        Slice<Student> first = slice(filter, 0);
+        assertEquals(List.of("Alice", "Bob"), first.getContent().stream().map(Student::getFirstName).toList());
+        assertTrue(first.hasNext());
+
+        Slice<Student> last = slice(filter, 1);
+        assertEquals(List.of("Dan"), last.getContent().stream().map(Student::getFirstName).toList());
+        assertFalse(last.hasNext());
+    }
+
+    private Slice<Student> slice(StudentFilter filter, int page) {
+        PageRequest pageable = PageRequest.of(page, 2, Sort.by("firstName"));
+        return studentRepo.findBy(filter.toSpecification(), query -> query.slice(pageable));
+    }
+
+    private List<String> names(Consumer<StudentFilter> criteria) {
+        StudentFilter filter = new StudentFilter();
+        criteria.accept(filter);
+        return studentRepo.findAll(filter.toSpecification(), Sort.by("firstName")).stream()
+                .map(Student::getFirstName)
+                .toList();
+    }
+
+    private void save(String firstName, String lastName, String gradeLevel, LocalDate enrolled, Teacher teacher) {
+        Student student = new Student(firstName, lastName, firstName.toLowerCase() + "@school.test", null, enrolled,
+                gradeLevel, "S-" + firstName);
+        student.setTeacher(teacher);
+        studentRepo.save(student);
+    }
+
+    @TestConfiguration
+    @Import(ValueDictionary.class)
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        }
+    }
+}
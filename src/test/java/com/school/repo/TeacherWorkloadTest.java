@@ -0,0 +1,130 @@
+package com.school.repo;
+
+import com.school.dictionary.ValueDictionary;
+import com.school.entity.Student;
+import com.school.entity.Teacher;
+import com.school.report.DepartmentWorkload;
+import com.school.report.TeacherWorkload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TeacherWorkloadTest {
+
+    private static final long ANY = Long.MAX_VALUE;
+
+    @Autowired
+    private TeacherRepo teacherRepo;
+
+    @Autowired
+    private StudentRepo studentRepo;
+
+    private long ada;
+    private long alan;
+    private long grace;
+    private long frida;
+
+    @BeforeEach
+    void setUp() {
+        ada = teacher("Ada", "Math", "Science", 3);
+        alan = teacher("Alan", "Physics", "Science", 1);
+        grace = teacher("Grace", "Computing", "Science", 0);
+        frida = teacher("Frida", "Art", "Arts", 2);
+        teacher("Pablo", "Art", "Arts", 0);
+        teacher("Homer", "Greek", "Classics", 0);
+
+        // Students without a teacher are in no teacher's count
+        studentRepo.save(student("Unassigned", null));
+    }
+
+    @Test
+    void ranksTeachersByStudentCountIncludingTeachersWithoutStudents() {
+        List<TeacherWorkload> top = teacherRepo.findWorkloadsMostStudentsFirst(0, ANY, Limit.of(3));
+        assertEquals(List.of(ada, frida, alan), ids(top));
+        assertEquals(List.of(3L, 2L, 1L), top.stream().map(TeacherWorkload::studentCount).toList());
+        assertEquals(new TeacherWorkload(ada, "Ada", "Teacher", "Math", "Science", 3), top.get(0));
+
+        List<TeacherWorkload> bottom = teacherRepo.findWorkloadsFewestStudentsFirst(0, ANY, Limit.of(10));
+        assertEquals(6, bottom.size());
+        assertEquals(List.of(0L, 0L, 0L, 1L, 2L, 3L), bottom.stream().map(TeacherWorkload::studentCount).toList());
+        // Ties are broken by id
+        assertEquals(grace, bottom.get(0).teacherId());
+    }
+
+    @Test
+    void filtersByStudentCount() {
+        assertEquals(List.of(ada, frida), ids(teacherRepo.findWorkloadsMostStudentsFirst(2, ANY, Limit.of(10))));
+        assertEquals(List.of(frida, alan), ids(teacherRepo.findWorkloadsMostStudentsFirst(1, 2, Limit.of(10))));
+        assertEquals(3, teacherRepo.findWorkloadsFewestStudentsFirst(0, 0, Limit.of(10)).size());
+    }
+
+    @Test
+    void filtersByDepartment() {
+        assertEquals(List.of(ada, alan, grace),
+                ids(teacherRepo.findDepartmentWorkloadsMostStudentsFirst("Science", 0, ANY, Limit.of(10))));
+        assertEquals(List.of(grace, alan),
+                ids(teacherRepo.findDepartmentWorkloadsFewestStudentsFirst("Science", 0, ANY, Limit.of(2))));
+        assertEquals(List.of(frida),
+                ids(teacherRepo.findDepartmentWorkloadsMostStudentsFirst("Arts", 1, ANY, Limit.of(10))));
+        assertEquals(List.of(),
+                ids(teacherRepo.findDepartmentWorkloadsMostStudentsFirst("Music", 0, ANY, Limit.of(10))));
+    }
+
+    @Test
+    void rollsUpDepartments() {
+        assertEquals(List.of(
+                        new DepartmentWorkload("Science", 3, 4),
+                        new DepartmentWorkload("Arts", 2, 2),
+                        new DepartmentWorkload("Classics", 1, 0)),
+                teacherRepo.findDepartmentWorkloads());
+    }
+
+    private long teacher(String firstName, String subject, String department, int students) {
+        Teacher teacher = teacherRepo.save(new Teacher(firstName, "Teacher", firstName.toLowerCase() + "@school.test",
+                null, subject, department));
+        for (int i = 0; i < students; i++) {
+            studentRepo.save(student(firstName + i, teacher));
+        }
+        return teacher.getId();
+    }
+
+    private static Student student(String firstName, Teacher teacher) {
+        Student student = new Student(firstName, "Student", firstName.toLowerCase() + "@student.test", null,
+                LocalDate.of(2026, 9, 1), "9", "S-" + firstName);
+        student.setTeacher(teacher);
+        return student;
+    }
+
+    private static List<Long> ids(List<TeacherWorkload> workloads) {
+        return workloads.stream().map(TeacherWorkload::teacherId).toList();
+    }
+
+    @TestConfiguration
+    @Import(ValueDictionary.class)
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        }
+    }
+}
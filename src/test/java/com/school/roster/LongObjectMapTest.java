@@ -0,0 +1,112 @@
+package com.school.roster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongObjectMapTest {
+
+    @Test
+    void putGetReplaceAndRemove() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+
+        assertNull(map.put(7, "a"));
+        assertEquals("a", map.put(7, "b"));
+        assertEquals("b", map.get(7));
+        assertTrue(map.containsKey(7));
+        assertEquals(1, map.size());
+
+        assertEquals("b", map.remove(7));
+        assertNull(map.remove(7));
+        assertFalse(map.containsKey(7));
+        assertEquals(0, map.size());
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, "zero"));
+    }
+
+    @Test
+    void growsAndKeepsKeysSorted() {
+        LongObjectMap<Long> map = new LongObjectMap<>(4);
+        for (long key = 1000; key >= 1; key--) {
+            map.put(key, key * 10);
+        }
+
+        assertEquals(1000, map.size());
+        for (long key = 1; key <= 1000; key++) {
+            assertEquals(key * 10, map.get(key));
+        }
+        long[] keys = map.sortedKeys();
+        assertEquals(1000, keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i + 1, keys[i]);
+        }
+    }
+
+    @Test
+    void removingFromAProbeChainKeepsLaterEntriesReachable() {
+        // Four keys hashing to slot 6 of an 8-slot table occupy slots 6, 7, 0 and 1, wrapping around the end
+        LongObjectMap<String> map = new LongObjectMap<>(4);
+        long[] keys = keysWithHomeSlot(8, 6, 4);
+        for (long key : keys) {
+            map.put(key, "v" + key);
+        }
+
+        assertEquals("v" + keys[0], map.remove(keys[0]));
+        assertEquals("v" + keys[2], map.remove(keys[2]));
+        for (long key : new long[]{keys[1], keys[3]}) {
+            assertEquals("v" + key, map.get(key));
+        }
+        assertArrayEquals(sorted(keys[1], keys[3]), map.sortedKeys());
+    }
+
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        LongObjectMap<Integer> map = new LongObjectMap<>();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            long key = 1 + random.nextInt(512);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 1; key <= 512; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        Map<Long, Integer> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+
+    // Keys whose hash lands in the given slot of a table with the given capacity
+    private static long[] keysWithHomeSlot(int capacity, int home, int count) {
+        long[] keys = new long[count];
+        int n = 0;
+        for (long key = 1; n < count; key++) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            if (((int) (hash ^ (hash >>> 32)) & (capacity - 1)) == home) {
+                keys[n++] = key;
+            }
+        }
+        return keys;
+    }
+
+    private static long[] sorted(long... keys) {
+        long[] copy = keys.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
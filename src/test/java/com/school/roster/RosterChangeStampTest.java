@@ -0,0 +1,151 @@
+package com.school.roster;
+
+import com.school.entity.ChangeStamp;
+import com.school.event.RemoteChangesEvent;
+import com.school.event.StudentChangedEvent;
+import com.school.event.TeacherChangedEvent;
+import com.school.repo.ChangeStampRepo;
+import com.school.shard.ShardDirectory;
+import com.school.shard.ShardingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RosterChangeStampTest {
+
+    private RosterChangeStamp changeStamp;
+    private ApplicationEventPublisher eventPublisher;
+    private ChangeStampRepo repository;
+
+    // The stamp row as the database holds it
+    private final AtomicLong stored = new AtomicLong(10);
+
+    @BeforeEach
+    void setUp() {
+        repository = Mockito.mock(ChangeStampRepo.class);
+        when(repository.findStripes(RosterChangeStamp.NAME))
+                .thenAnswer(invocation -> List.of(new ChangeStamp(RosterChangeStamp.NAME, stored.get())));
+        when(repository.increment(anyString())).thenAnswer(invocation -> {
+            stored.incrementAndGet();
+            return 1;
+        });
+        eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+
+        changeStamp = new RosterChangeStamp();
+        ReflectionTestUtils.setField(changeStamp, "changeStampRepository", repository);
+        ReflectionTestUtils.setField(changeStamp, "transactionManager", Mockito.mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(changeStamp, "shardDirectory", new ShardDirectory(new ShardingProperties()));
+        ReflectionTestUtils.setField(changeStamp, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(changeStamp, "rosterEnabled", true);
+        ReflectionTestUtils.setField(changeStamp, "stripes", 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        changeStamp.shutdown();
+    }
+
+    @Test
+    void ownChangesDoNotTriggerARebuild() {
+        changeStamp.startChecking();
+        changeStamp.onStudentChanged(new StudentChangedEvent(null, false));
+        changeStamp.onTeacherChanged(new TeacherChangedEvent(null, true));
+        changeStamp.checkForRemoteChanges();
+
+        assertEquals(12, changeStamp.current());
+        verify(eventPublisher, after(200).never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void createsTheStripesAndBumpsOneRowPerThread() throws InterruptedException {
+        changeStamp.current();
+        verify(repository, times(7)).saveAndFlush(any(ChangeStamp.class));
+
+        Set<String> bumped = ConcurrentHashMap.newKeySet();
+        when(repository.increment(anyString())).thenAnswer(invocation -> {
+            bumped.add(invocation.getArgument(0));
+            return 1;
+        });
+        for (int i = 0; i < 16; i++) {
+            Thread thread = new Thread(() -> {
+                changeStamp.onStudentChanged(new StudentChangedEvent(null, false));
+                changeStamp.onStudentChanged(new StudentChangedEvent(null, false));
+            });
+            thread.start();
+            thread.join();
+        }
+        assertTrue(bumped.size() > 1);
+        assertTrue(bumped.stream().allMatch(name -> name.equals("roster") || name.matches("roster\\.[1-7]")));
+    }
+
+    @Test
+    void nothingIsBumpedOrCheckedWhenNoViewIsEnabled() {
+        ReflectionTestUtils.setField(changeStamp, "rosterEnabled", false);
+        changeStamp.startChecking();
+        changeStamp.onStudentChanged(new StudentChangedEvent(null, false));
+        stored.addAndGet(3);
+        changeStamp.checkForRemoteChanges();
+
+        verify(repository, never()).increment(anyString());
+        verify(repository, never()).findStripes(anyString());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void changesByOtherNodesTriggerOneRebuild() {
+        changeStamp.startChecking();
+        changeStamp.onStudentChanged(new StudentChangedEvent(null, false));
+        stored.addAndGet(3);
+        changeStamp.checkForRemoteChanges();
+        changeStamp.checkForRemoteChanges();
+
+        ArgumentCaptor<RemoteChangesEvent> event = ArgumentCaptor.forClass(RemoteChangesEvent.class);
+        verify(eventPublisher, timeout(1000)).publishEvent(event.capture());
+        verify(eventPublisher, times(1)).publishEvent(any(Object.class));
+        assertEquals(3, event.getValue().getChanges());
+    }
+
+    @Test
+    void rolledBackChangesAreNotCountedAsOwn() {
+        changeStamp.startChecking();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            changeStamp.onStudentChanged(new StudentChangedEvent(null, false));
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                    TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        // The mocked row keeps the rolled-back bump, so it stands for a change made by another node
+        changeStamp.checkForRemoteChanges();
+
+        ArgumentCaptor<RemoteChangesEvent> event = ArgumentCaptor.forClass(RemoteChangesEvent.class);
+        verify(eventPublisher, timeout(1000)).publishEvent(event.capture());
+        assertEquals(1, event.getValue().getChanges());
+    }
+}
@@ -0,0 +1,193 @@
+package com.school.roster;
+
+import com.school.entity.Student;
+import com.school.entity.Teacher;
+import com.school.event.RemoteChangesEvent;
+import com.school.event.StudentChangedEvent;
+import com.school.event.StudentsArchivedEvent;
+import com.school.event.StudentsUpdatedEvent;
+import com.school.event.TeacherChangedEvent;
+import com.school.repo.StudentRepo;
+import com.school.repo.TeacherRepo;
+import com.school.shard.ShardDirectory;
+import com.school.shard.ShardingProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RosterReadModelTest {
+
+    private RosterReadModel roster;
+    private StudentRepo studentRepository;
+
+    @BeforeEach
+    void setUp() {
+        roster = new RosterReadModel();
+        studentRepository = Mockito.mock(StudentRepo.class);
+        ReflectionTestUtils.setField(roster, "enabled", true);
+        ReflectionTestUtils.setField(roster, "studentRepository", studentRepository);
+    }
+
+    @Test
+    void studentsFollowTheirTeacher() {
+        Teacher math = teacher(1, "Mathematics");
+        Teacher science = teacher(2, "Science");
+        roster.onTeacherChanged(new TeacherChangedEvent(math, false));
+        roster.onTeacherChanged(new TeacherChangedEvent(science, false));
+        roster.onStudentChanged(new StudentChangedEvent(student(11, math), false));
+        roster.onStudentChanged(new StudentChangedEvent(student(10, math), false));
+
+        assertEquals(List.of(10L, 11L), studentIdsOf(1));
+
+        roster.onStudentChanged(new StudentChangedEvent(student(10, science), false));
+        assertEquals(List.of(11L), studentIdsOf(1));
+        assertEquals(List.of(10L), studentIdsOf(2));
+        assertEquals(2L, roster.getStudentsByTeacherId(2).get(0).getTeacher().getId());
+
+        roster.onStudentChanged(new StudentChangedEvent(student(11, null), false));
+        assertEquals(List.of(), studentIdsOf(1));
+        assertNull(roster.getStudent(11).orElseThrow().getTeacher());
+    }
+
+    @Test
+    void deletesAndArchivesRemoveStudents() {
+        Teacher math = teacher(1, "Mathematics");
+        roster.onTeacherChanged(new TeacherChangedEvent(math, false));
+        for (long id = 10; id <= 13; id++) {
+            roster.onStudentChanged(new StudentChangedEvent(student(id, math), false));
+        }
+
+        roster.onStudentChanged(new StudentChangedEvent(student(10, math), true));
+        roster.onStudentsArchived(new StudentsArchivedEvent(List.of(11L, 12L)));
+
+        assertEquals(List.of(13L), studentIdsOf(1));
+        assertTrue(roster.getStudent(10).isEmpty());
+        assertTrue(roster.getStudent(12).isEmpty());
+    }
+
+    @Test
+    void deletingATeacherUnassignsTheirStudents() {
+        Teacher math = teacher(1, "Mathematics");
+        roster.onTeacherChanged(new TeacherChangedEvent(math, false));
+        roster.onStudentChanged(new StudentChangedEvent(student(10, math), false));
+
+        roster.onTeacherChanged(new TeacherChangedEvent(math, true));
+
+        assertTrue(roster.getTeacher(1).isEmpty());
+        assertEquals(0, roster.studentRow(10).teacherId);
+        assertEquals(List.of(), roster.getStudentsByTeacherId(1));
+    }
+
+    @Test
+    void bulkUpdatesReloadTheirRows() {
+        Teacher math = teacher(1, "Mathematics");
+        roster.onTeacherChanged(new TeacherChangedEvent(math, false));
+        roster.onStudentChanged(new StudentChangedEvent(student(10, math), false));
+        Mockito.when(studentRepository.findRosterRowsByIds(List.of(10L))).thenReturn(List.of(
+                new StudentRow(10L, "First10", "Last", "s10@school.test", null, LocalDate.of(2024, 9, 1),
+                        "Grade 10", "SCH-10", 1L, "SCH")));
+
+        roster.onStudentsUpdated(new StudentsUpdatedEvent(List.of(10L)));
+
+        assertEquals("Grade 10", roster.getStudent(10).orElseThrow().getGradeLevel());
+        assertEquals(List.of(10L), studentIdsOf(1));
+    }
+
+    @Test
+    void departmentMatchesExactlyLikeTheDatabase() {
+        roster.onTeacherChanged(new TeacherChangedEvent(teacher(1, "Science"), false));
+        roster.onTeacherChanged(new TeacherChangedEvent(teacher(2, "science"), false));
+
+        assertEquals(List.of(1L), roster.getTeachersWithStudents("Science").stream().map(Teacher::getId).toList());
+        assertEquals(2, roster.getTeachersWithStudents().size());
+    }
+
+    @Test
+    void reloadsOnChangesMadeByOtherNodes() {
+        TeacherRepo teacherRepository = Mockito.mock(TeacherRepo.class);
+        RosterChangeStamp changeStamp = Mockito.mock(RosterChangeStamp.class);
+        ReflectionTestUtils.setField(roster, "teacherRepository", teacherRepository);
+        ReflectionTestUtils.setField(roster, "changeStamp", changeStamp);
+        ReflectionTestUtils.setField(roster, "warmupThreads", 1);
+        ReflectionTestUtils.setField(roster, "transactionManager", Mockito.mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(roster, "shardDirectory", new ShardDirectory(new ShardingProperties()));
+        roster.onTeacherChanged(new TeacherChangedEvent(teacher(1, "Mathematics"), false));
+
+        // Another node deleted teacher 1 and added teacher 2 with a student
+        Mockito.when(teacherRepository.findMinId()).thenReturn(2L);
+        Mockito.when(teacherRepository.findMaxId()).thenReturn(2L);
+        Mockito.when(teacherRepository.streamRosterRowsBetween(2, 2)).thenAnswer(invocation -> Stream.of(
+                TeacherRow.of(teacher(2, "Science"))));
+        Mockito.when(studentRepository.findMinId()).thenReturn(20L);
+        Mockito.when(studentRepository.findMaxId()).thenReturn(20L);
+        Mockito.when(studentRepository.streamRosterRowsBetween(20, 20)).thenAnswer(invocation -> Stream.of(
+                StudentRow.of(student(20, teacher(2, "Science")))));
+
+        roster.onRemoteChanges(new RemoteChangesEvent(2));
+
+        assertTrue(roster.isReady());
+        assertTrue(roster.getTeacher(1).isEmpty());
+        assertEquals(List.of(20L), studentIdsOf(2));
+    }
+
+    @Test
+    void keepsServingWhileReloading() {
+        TeacherRepo teacherRepository = Mockito.mock(TeacherRepo.class);
+        ReflectionTestUtils.setField(roster, "teacherRepository", teacherRepository);
+        ReflectionTestUtils.setField(roster, "changeStamp", Mockito.mock(RosterChangeStamp.class));
+        ReflectionTestUtils.setField(roster, "warmupThreads", 1);
+        ReflectionTestUtils.setField(roster, "transactionManager", Mockito.mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(roster, "shardDirectory", new ShardDirectory(new ShardingProperties()));
+        Teacher math = teacher(1, "Mathematics");
+        Mockito.when(teacherRepository.findMinId()).thenReturn(1L);
+        Mockito.when(teacherRepository.findMaxId()).thenReturn(1L);
+        Mockito.when(teacherRepository.streamRosterRowsBetween(1, 1)).thenAnswer(invocation -> Stream.of(
+                TeacherRow.of(math)));
+        Mockito.when(studentRepository.findMinId()).thenReturn(10L);
+        Mockito.when(studentRepository.findMaxId()).thenReturn(10L);
+        Mockito.when(studentRepository.streamRosterRowsBetween(10, 10)).thenAnswer(invocation -> Stream.of(
+                StudentRow.of(student(10, math))));
+        roster.bootstrap();
+
+        // While the reload streams, the roster loaded before still answers, and a change made meanwhile is kept
+        Mockito.when(studentRepository.streamRosterRowsBetween(10, 10)).thenAnswer(invocation -> {
+            assertTrue(roster.isReady());
+            assertEquals(List.of(10L), studentIdsOf(1));
+            roster.onStudentChanged(new StudentChangedEvent(student(11, math), false));
+            return Stream.of(StudentRow.of(student(10, math)), StudentRow.of(student(12, math)));
+        });
+        roster.onRemoteChanges(new RemoteChangesEvent(1));
+
+        assertEquals(List.of(10L, 11L, 12L), studentIdsOf(1));
+    }
+
+    private List<Long> studentIdsOf(long teacherId) {
+        return roster.getStudentsByTeacherId(teacherId).stream().map(Student::getId).toList();
+    }
+
+    private static Teacher teacher(long id, String department) {
+        Teacher teacher = new Teacher("First" + id, "Last", "t" + id + "@school.test", null, "Subject", department);
+        teacher.setId(id);
+        teacher.setSchoolCode("SCH");
+        return teacher;
+    }
+
+    private static Student student(long id, Teacher teacher) {
+        Student student = new Student("First" + id, "Last", "s" + id + "@school.test", null,
+                LocalDate.of(2024, 9, 1), "Grade 9", "SCH-" + id);
+        student.setId(id);
+        student.setSchoolCode("SCH");
+        student.setTeacher(teacher);
+        return student;
+    }
+}
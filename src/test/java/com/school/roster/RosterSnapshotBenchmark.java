@@ -0,0 +1,62 @@
+package com.school.roster;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Size of a roster snapshot for 1M students and the time to write it and to map and read it back,
+// i.e. how long a restarted node takes to warm the roster from its snapshot. Not a unit test; run it after
+// `mvn test-compile`, e.g.
+//   java -Xmx2g -cp target/test-classes:target/classes:$(cat cp.txt) com.school.roster.RosterSnapshotBenchmark
+public class RosterSnapshotBenchmark {
+
+    private static final int STUDENTS = 1_000_000;
+    private static final int TEACHERS = 20_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int studentCount = args.length > 0 ? Integer.parseInt(args[0]) : STUDENTS;
+        Random random = new Random(1);
+        List<TeacherRow> teachers = new ArrayList<>(TEACHERS);
+        for (int i = 1; i <= TEACHERS; i++) {
+            teachers.add(new TeacherRow((long) i, "Teacher" + random.nextInt(2_000), "Last" + i,
+                    "teacher" + i + "@school.test", "555-" + i, "Subject" + random.nextInt(30),
+                    "Department" + random.nextInt(10), "SCH"));
+        }
+        List<StudentRow> students = new ArrayList<>(studentCount);
+        for (int i = 1; i <= studentCount; i++) {
+            students.add(new StudentRow(i, "First" + random.nextInt(5_000), "Last" + random.nextInt(50_000),
+                    "student" + i + "@school.test", random.nextBoolean() ? "555-" + i : null,
+                    19_000 + random.nextInt(3_000), String.valueOf(1 + random.nextInt(12)), "SCH-2025-" + i,
+                    1 + random.nextInt(TEACHERS), "SCH"));
+        }
+
+        Path path = Files.createTempFile("roster", ".snapshot");
+        try {
+            long writeNanos = Long.MAX_VALUE;
+            long readNanos = Long.MAX_VALUE;
+            int[] read = new int[2];
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                RosterSnapshot.write(path, round, teachers, students);
+                writeNanos = Math.min(writeNanos, System.nanoTime() - start);
+
+                read[0] = 0;
+                read[1] = 0;
+                start = System.nanoTime();
+                RosterSnapshot snapshot = RosterSnapshot.open(path);
+                snapshot.read(row -> read[0]++, row -> read[1]++);
+                readNanos = Math.min(readNanos, System.nanoTime() - start);
+            }
+
+            System.out.printf("%,d teachers, %,d students: snapshot %,d MB%n",
+                    read[0], read[1], Files.size(path) >> 20);
+            System.out.printf("write %,d ms, map + verify + read %,d ms (best of %d)%n",
+                    writeNanos / 1_000_000, readNanos / 1_000_000, ROUNDS);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
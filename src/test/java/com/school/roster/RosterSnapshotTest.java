@@ -0,0 +1,123 @@
+package com.school.roster;
+
+import com.school.entity.Student;
+import com.school.repo.StudentRepo;
+import com.school.repo.TeacherRepo;
+import com.school.shard.ShardDirectory;
+import com.school.shard.ShardingProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RosterSnapshotTest {
+
+    private static final List<TeacherRow> TEACHERS = List.of(
+            new TeacherRow(1L, "Ada", "Lovelace", "ada@school.test", "+44 20 7946 0000", "Math", "Science", "SCH"),
+            new TeacherRow(2L, "Homer", "Ομηρος", null, null, null, "Classics", null));
+
+    private static final List<StudentRow> STUDENTS = List.of(
+            new StudentRow(10L, "Alice", "Smith", "alice@school.test", "555", LocalDate.of(2025, 9, 1), "9",
+                    "SCH-2025-00001", 1L, "SCH"),
+            new StudentRow(11L, "Zoë", "Ünal", "zoe@school.test", null, null, null, null, null, null));
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void rowsSurviveARoundTrip() throws IOException {
+        Path path = directory.resolve("roster.snapshot");
+        RosterSnapshot.write(path, 42, TEACHERS, STUDENTS);
+
+        RosterSnapshot snapshot = RosterSnapshot.open(path);
+        assertEquals(42, snapshot.getChangeStamp());
+        assertEquals(2, snapshot.getTeacherCount());
+        assertEquals(2, snapshot.getStudentCount());
+        assertTrue(Duration.between(snapshot.getCreatedAt(), Instant.now()).abs().toMinutes() < 1);
+
+        List<TeacherRow> teachers = new ArrayList<>();
+        List<StudentRow> students = new ArrayList<>();
+        snapshot.read(teachers::add, students::add);
+        assertEquals(TEACHERS.size(), teachers.size());
+        assertEquals(STUDENTS.size(), students.size());
+        for (int i = 0; i < TEACHERS.size(); i++) {
+            assertTrue(TEACHERS.get(i).sameAs(teachers.get(i)));
+        }
+        for (int i = 0; i < STUDENTS.size(); i++) {
+            assertTrue(STUDENTS.get(i).sameAs(students.get(i)));
+        }
+    }
+
+    @Test
+    void corruptSnapshotsAreRejected() throws IOException {
+        Path path = directory.resolve("roster.snapshot");
+        RosterSnapshot.write(path, 42, TEACHERS, STUDENTS);
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 3] ^= 1;
+        Files.write(path, bytes);
+
+        assertThrows(IOException.class, () -> RosterSnapshot.open(path));
+    }
+
+    @Test
+    void snapshotIsLoadedOnlyWhileItsStampMatchesTheDatabase() throws IOException {
+        Path path = directory.resolve("roster.snapshot");
+        RosterSnapshot.write(path, 42, TEACHERS, STUDENTS);
+
+        StudentRepo studentRepository = Mockito.mock(StudentRepo.class);
+        RosterReadModel current = roster(path, 42, studentRepository);
+        current.warmUp();
+        assertTrue(current.isReady());
+        assertEquals("Lovelace", current.getTeacher(1).orElseThrow().getLastName());
+        assertEquals(List.of(10L), current.getStudentsByTeacherId(1).stream().map(Student::getId).toList());
+        assertEquals("Zoë", current.getStudent(11).orElseThrow().getFirstName());
+        verify(studentRepository, never()).findMinId();
+
+        // The tables changed since the snapshot was written: load from the (here empty) database instead,
+        // and replace the snapshot with one at the new stamp
+        StudentRepo reloadedRepository = Mockito.mock(StudentRepo.class);
+        RosterReadModel stale = roster(path, 43, reloadedRepository);
+        stale.warmUp();
+        assertTrue(stale.isReady());
+        assertTrue(stale.getTeacher(1).isEmpty());
+        verify(reloadedRepository).findMinId();
+        RosterSnapshot rewritten = RosterSnapshot.open(path);
+        assertEquals(43, rewritten.getChangeStamp());
+        assertEquals(0, rewritten.getStudentCount());
+    }
+
+    private static RosterReadModel roster(Path path, long stamp, StudentRepo studentRepository) {
+        RosterChangeStamp changeStamp = Mockito.mock(RosterChangeStamp.class);
+        when(changeStamp.current()).thenReturn(stamp);
+
+        RosterReadModel roster = new RosterReadModel();
+        ReflectionTestUtils.setField(roster, "enabled", true);
+        ReflectionTestUtils.setField(roster, "snapshotEnabled", true);
+        ReflectionTestUtils.setField(roster, "snapshotPath", path.toString());
+        ReflectionTestUtils.setField(roster, "snapshotMaxAge", Duration.ofHours(1));
+        ReflectionTestUtils.setField(roster, "warmupThreads", 1);
+        ReflectionTestUtils.setField(roster, "changeStamp", changeStamp);
+        ReflectionTestUtils.setField(roster, "studentRepository", studentRepository);
+        ReflectionTestUtils.setField(roster, "teacherRepository", Mockito.mock(TeacherRepo.class));
+        ReflectionTestUtils.setField(roster, "transactionManager", Mockito.mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(roster, "shardDirectory", new ShardDirectory(new ShardingProperties()));
+        return roster;
+    }
+}
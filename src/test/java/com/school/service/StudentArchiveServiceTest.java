@@ -0,0 +1,130 @@
+package com.school.service;
+
+import com.school.dictionary.ValueDictionary;
+import com.school.entity.ArchivedStudent;
+import com.school.entity.JobLease;
+import com.school.entity.Student;
+import com.school.repo.ArchivedStudentRepo;
+import com.school.repo.JobLeaseRepo;
+import com.school.repo.StudentRepo;
+import com.school.shard.ShardDirectory;
+import com.school.shard.ShardingProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "school.archive.retain-years=1",
+        "school.archive.batch-size=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StudentArchiveServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private StudentArchiveService archiveService;
+
+    @Autowired
+    private StudentRepo studentRepo;
+
+    @Autowired
+    private ArchivedStudentRepo archivedStudentRepo;
+
+    @Autowired
+    private JobLeaseRepo jobLeaseRepo;
+
+    @BeforeEach
+    void setUp() {
+        studentRepo.deleteAll();
+        archivedStudentRepo.deleteAll();
+        jobLeaseRepo.deleteAll();
+    }
+
+    @Test
+    void cutoffIsRetainYearsBeforeToday() {
+        assertEquals(TODAY.minusYears(1), archiveService.getArchiveCutoff());
+    }
+
+    @Test
+    void movesOnlyGraduatesPastTheRetentionPeriodInBatches() {
+        List<Long> leaving = List.of(
+                save("Graduated", TODAY.minusYears(6), TODAY.minusYears(2)),
+                save("Graduated", TODAY.minusYears(5), TODAY.minusYears(1).minusDays(1)),
+                save("Graduated", TODAY.minusYears(8), null),
+                save("Graduated", TODAY.minusYears(7), TODAY.minusYears(3)),
+                save("Graduated", TODAY.minusYears(9), TODAY.minusYears(4)));
+        List<Long> staying = List.of(
+                save("Graduated", TODAY.minusYears(4), TODAY.minusMonths(1)),
+                save("12", TODAY.minusYears(10), null),
+                save("9", TODAY.minusYears(1), null));
+
+        assertEquals(5, archiveService.archiveInactiveCohorts());
+
+        assertEquals(staying, studentRepo.findAll().stream().map(Student::getId).sorted().toList());
+        List<ArchivedStudent> archived = archivedStudentRepo.findAll();
+        assertEquals(leaving, archived.stream().map(ArchivedStudent::getId).sorted().toList());
+        ArchivedStudent first = archivedStudentRepo.findById(leaving.get(0)).orElseThrow();
+        assertEquals("Graduated", first.getGradeLevel());
+        assertEquals(TODAY.minusYears(2), first.getLeftOn());
+        assertEquals(TODAY, first.getArchivedOn());
+
+        assertEquals(0, archiveService.archiveInactiveCohorts());
+    }
+
+    @Test
+    void waitsWhileAnotherNodeHoldsTheLease() {
+        long id = save("Graduated", TODAY.minusYears(6), TODAY.minusYears(2));
+        jobLeaseRepo.save(new JobLease("student-archive", "other-node", Instant.now().plus(5, ChronoUnit.MINUTES)));
+
+        assertThrows(RuntimeException.class, () -> archiveService.archiveInactiveCohorts());
+        assertEquals(List.of(id), studentRepo.findAll().stream().map(Student::getId).toList());
+
+        // Once the other node's lease has expired this node takes it over, and gives it up when done
+        jobLeaseRepo.save(new JobLease("student-archive", "other-node", Instant.now().minusSeconds(1)));
+        assertEquals(1, archiveService.archiveInactiveCohorts());
+        assertNull(jobLeaseRepo.findById("student-archive").orElseThrow().getHolder());
+    }
+
+    private long save(String gradeLevel, LocalDate enrolled, LocalDate leftOn) {
+        long n = studentRepo.count() + archivedStudentRepo.count();
+        Student student = new Student("Student", "Name", "student" + System.nanoTime() + "@school.test", null,
+                enrolled, gradeLevel, "S-" + n + "-" + System.nanoTime());
+        student.setLeftOn(leftOn);
+        return studentRepo.save(student).getId();
+    }
+
+    @TestConfiguration
+    @EnableConfigurationProperties(ShardingProperties.class)
+    @Import({StudentArchiveService.class, ShardDirectory.class, ValueDictionary.class})
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.school.shard;
+
+import com.school.dictionary.ValueDictionary;
+import com.school.entity.Student;
+import com.school.entity.Teacher;
+import com.school.repo.StudentRepo;
+import com.school.repo.TeacherRepo;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Two schools sharing a shard only see their own rows, and work without a school sees both
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SchoolFilterTest {
+
+    @Autowired
+    private StudentRepo studentRepo;
+
+    @Autowired
+    private TeacherRepo teacherRepo;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Student north;
+    private Teacher northTeacher;
+
+    @BeforeEach
+    void setUp() {
+        northTeacher = teacherRepo.save(teacher("Ada", "NTH"));
+        teacherRepo.save(teacher("Alan", "STH"));
+        north = studentRepo.save(student("Alice", "NTH"));
+        studentRepo.save(student("Bob", "STH"));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void theSameQueryFollowsTheSchoolOfEachCall() {
+        // Run the same queries under each school in turn, so a plan cached for one school would show up
+        for (int round = 0; round < 2; round++) {
+            assertEquals(List.of("Alice"), firstNames("NTH"));
+            assertEquals(List.of("Bob"), firstNames("STH"));
+            assertEquals(List.of("Alice", "Bob"), firstNames(null));
+            assertEquals(1L, (long) ShardContext.call("NTH", null, () -> teacherRepo.count()));
+            assertEquals(2L, teacherRepo.count());
+        }
+    }
+
+    @Test
+    void loadsByIdOnlyWithinTheSchool() {
+        assertTrue(ShardContext.call("NTH", null, () -> studentRepo.findById(north.getId())).isPresent());
+        entityManager.clear();
+        assertFalse(ShardContext.call("STH", null, () -> studentRepo.findById(north.getId())).isPresent());
+        assertFalse(ShardContext.call("STH", null, () -> teacherRepo.findById(northTeacher.getId())).isPresent());
+        assertFalse(ShardContext.call("STH", null, () -> studentRepo.existsByEmail(north.getEmail())));
+        assertTrue(studentRepo.existsByEmail(north.getEmail()));
+    }
+
+    @Test
+    void uniquenessChecksOnEveryShardSeeEverySchool() {
+        ShardExecutor shardExecutor = new ShardExecutor(new ShardDirectory(new ShardingProperties()), null, null);
+
+        assertTrue(ShardContext.call("STH", null,
+                () -> shardExecutor.anyShard(shard -> studentRepo.existsByEmail(north.getEmail()))));
+    }
+
+    private List<String> firstNames(String school) {
+        return ShardContext.call(school, null, () -> studentRepo.findAll(Sort.by("firstName")).stream()
+                .map(Student::getFirstName)
+                .toList());
+    }
+
+    private static Student student(String firstName, String school) {
+        Student student = new Student(firstName, "Student", firstName.toLowerCase() + "@school.test", null,
+                LocalDate.of(2026, 9, 1), "9", "S-" + firstName);
+        student.setSchoolCode(school);
+        return student;
+    }
+
+    private static Teacher teacher(String firstName, String school) {
+        Teacher teacher = new Teacher(firstName, "Teacher", firstName.toLowerCase() + "@school.test", null, "Math",
+                "Science");
+        teacher.setSchoolCode(school);
+        return teacher;
+    }
+
+    @TestConfiguration
+    @Import(ValueDictionary.class)
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        }
+    }
+}
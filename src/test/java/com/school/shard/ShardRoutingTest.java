@@ -0,0 +1,252 @@
+package com.school.shard;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardRoutingTest {
+
+    private static final int STRIDE = 16;
+    private static final long ID_BASE = 1000;
+
+    private DataSource main;
+    private DataSource north;
+    private ShardingProperties properties;
+    private ShardRoutingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private ShardDirectory shardDirectory;
+
+    @BeforeEach
+    void setUp() {
+        main = database();
+        north = database();
+
+        ShardingProperties.Shard northShard = new ShardingProperties.Shard();
+        northShard.setName("north");
+        northShard.setUrl("jdbc:h2:mem:north");
+        properties = new ShardingProperties();
+        properties.setShards(List.of(northShard));
+        properties.setIdStride(STRIDE);
+        properties.setIdBase(ID_BASE);
+        properties.setMoveBatchSize(2);
+
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        shards.put(ShardDirectory.MAIN_SHARD, main);
+        shards.put("north", north);
+        dataSource = new ShardRoutingDataSource(shards);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        shardDirectory = new ShardDirectory(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(main).execute("SHUTDOWN");
+        new JdbcTemplate(north).execute("SHUTDOWN");
+    }
+
+    @Test
+    void connectionsFollowShardContext() {
+        ShardContext.run("NTH", "north", () -> insertTeacher(null, "NTH"));
+
+        assertEquals(0, countTeachers(ShardDirectory.MAIN_SHARD));
+        assertEquals(1, countTeachers("north"));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM teacher", Integer.class));
+    }
+
+    @Test
+    void schoolsMapToTheirConfiguredShard() {
+        properties.setSchools(Map.of("NTH", "north"));
+
+        assertEquals("north", shardDirectory.shardOf("NTH"));
+        assertEquals(ShardDirectory.MAIN_SHARD, shardDirectory.shardOf("SCH"));
+        assertEquals(List.of(ShardDirectory.MAIN_SHARD, "north"), shardDirectory.getShardNames());
+    }
+
+    @Test
+    void scatterReadsCoverEveryShard() {
+        ShardContext.run(null, ShardDirectory.MAIN_SHARD, () -> {
+            for (long id : new long[]{1, 4, 7}) {
+                insertTeacher(id, "SCH");
+            }
+        });
+        ShardContext.run(null, "north", () -> {
+            for (long id : new long[]{2, 3, 9}) {
+                insertTeacher(id, "NTH");
+            }
+        });
+        ShardExecutor shardExecutor = new ShardExecutor(shardDirectory, transactionManager, properties);
+        try {
+            assertEquals(6, shardExecutor.sum(shard ->
+                    jdbcTemplate.queryForObject("SELECT COUNT(*) FROM teacher", Long.class)));
+
+            try (Stream<Long> ids = shardExecutor.merge(shard ->
+                    jdbcTemplate.queryForList("SELECT id FROM teacher ORDER BY id", Long.class).stream(),
+                    Comparator.naturalOrder())) {
+                assertEquals(List.of(1L, 2L, 3L, 4L, 7L, 9L), ids.toList());
+            }
+
+            // Each shard's first rows, merged: the overall first rows are among them
+            List<Long> firstIds = shardExecutor.gather(shard -> jdbcTemplate.queryForList(
+                    "SELECT id FROM teacher ORDER BY id DESC LIMIT 2", Long.class), Comparator.reverseOrder());
+            assertEquals(List.of(9L, 7L, 4L, 3L), firstIds);
+        } finally {
+            shardExecutor.shutdown();
+        }
+    }
+
+    @Test
+    void uniquenessChecksAskTheCurrentShardInTheCallersTransaction() {
+        ShardContext.run(null, "north", () -> insertTeacher(null, "NTH"));
+        ShardExecutor shardExecutor = new ShardExecutor(shardDirectory, transactionManager, properties);
+        try {
+            List<String> asked = new CopyOnWriteArrayList<>();
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            Boolean found = ShardContext.call("SCH", ShardDirectory.MAIN_SHARD, () -> transaction.execute(status -> {
+                Thread caller = Thread.currentThread();
+                return shardExecutor.anyShard(shard -> {
+                    asked.add(shard + (Thread.currentThread() == caller ? " in caller" : " on pool") +
+                            (ShardContext.currentSchool() == null ? "" : " for " + ShardContext.currentSchool()));
+                    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM teacher", Long.class) > 0;
+                });
+            }));
+
+            assertEquals(Boolean.TRUE, found);
+            assertEquals(List.of("main in caller", "north on pool"), asked);
+        } finally {
+            shardExecutor.shutdown();
+        }
+    }
+
+    @Test
+    void movedSchoolKeepsItsRowsAndIds() {
+        ShardContext.run(null, ShardDirectory.MAIN_SHARD, () -> {
+            long teacher = insertTeacher(null, "NTH");
+            for (int i = 0; i < 5; i++) {
+                jdbcTemplate.update("INSERT INTO students (school_code, teacher_id) VALUES ('NTH', ?)", teacher);
+            }
+            insertTeacher(null, "SCH");
+            jdbcTemplate.update("INSERT INTO student_id_blocks (scope, next_value) VALUES ('NTH', 101), " +
+                    "('NTH.2025', 201), ('NTHX', 301)");
+        });
+        ShardRebalancer rebalancer = new ShardRebalancer(shardDirectory, properties, dataSource, transactionManager);
+
+        Map<String, Long> copied = rebalancer.copySchool("NTH", ShardDirectory.MAIN_SHARD, "north");
+        assertEquals(Map.of("teacher", 1L, "students", 5L, "students_archive", 0L, "student_id_blocks", 2L),
+                copied);
+        assertEquals(copied, rebalancer.countSchool("NTH", "north"));
+
+        rebalancer.removeSchool("NTH", ShardDirectory.MAIN_SHARD);
+        assertEquals(Map.of("teacher", 0L, "students", 0L, "students_archive", 0L, "student_id_blocks", 0L),
+                rebalancer.countSchool("NTH", ShardDirectory.MAIN_SHARD));
+        assertEquals(1, countTeachers(ShardDirectory.MAIN_SHARD));
+        assertEquals(301L, new JdbcTemplate(main).queryForObject(
+                "SELECT next_value FROM student_id_blocks WHERE scope = 'NTHX'", Long.class));
+        assertEquals(List.of(1L, 1L, 1L, 1L, 1L), new JdbcTemplate(north).queryForList(
+                "SELECT teacher_id FROM students ORDER BY id", Long.class));
+    }
+
+    @Test
+    void copyIsCheckedAgainstTheSourceRowByRow() {
+        ShardContext.run(null, ShardDirectory.MAIN_SHARD, () -> {
+            long teacher = insertTeacher(null, "NTH");
+            for (int i = 0; i < 3; i++) {
+                jdbcTemplate.update("INSERT INTO students (school_code, teacher_id) VALUES ('NTH', ?)", teacher);
+            }
+        });
+        ShardRebalancer rebalancer = new ShardRebalancer(shardDirectory, properties, dataSource, transactionManager);
+        rebalancer.copySchool("NTH", ShardDirectory.MAIN_SHARD, "north");
+        assertEquals(3L, rebalancer.verifyCopy("NTH", ShardDirectory.MAIN_SHARD, "north").get("students"));
+
+        // A write that slipped in during the copy changes a row but not the row count
+        new JdbcTemplate(main).update("UPDATE students SET teacher_id = NULL WHERE id = " +
+                "(SELECT MAX(id) FROM students)");
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> rebalancer.verifyCopy("NTH", ShardDirectory.MAIN_SHARD, "north"));
+        assertTrue(e.getMessage().contains("copy of students"), e.getMessage());
+    }
+
+    @Test
+    void rowsWithoutSchoolAreAssignedToTheDefaultSchoolOnEveryShard() {
+        ShardContext.run(null, ShardDirectory.MAIN_SHARD, () -> {
+            for (int i = 0; i < 5; i++) {
+                insertTeacher(null, null);
+            }
+            insertTeacher(null, "NTH");
+        });
+        ShardContext.run(null, "north", () -> insertTeacher(null, null));
+
+        new SchoolCodeBackfill(shardDirectory, properties, dataSource, transactionManager).backfill();
+
+        assertEquals(List.of("NTH", "SCH", "SCH", "SCH", "SCH", "SCH"), new JdbcTemplate(main).queryForList(
+                "SELECT school_code FROM teacher ORDER BY school_code", String.class));
+        assertEquals(List.of("SCH"), new JdbcTemplate(north).queryForList(
+                "SELECT school_code FROM teacher", String.class));
+    }
+
+    @Test
+    void shardsHandOutIdsOfTheirOwnResidue() {
+        ShardContext.run(null, "north", () -> {
+            ShardIdentity.align(jdbcTemplate, 1, STRIDE, ID_BASE);
+            long first = insertTeacher(null, "NTH");
+            assertTrue(first >= ID_BASE);
+            assertEquals(2, first % STRIDE);
+
+            // An explicitly inserted id, as when a school is moved in, is followed by realigning
+            insertTeacher(5000L, "NTH");
+            ShardIdentity.align(jdbcTemplate, 1, STRIDE, ID_BASE);
+            long next = insertTeacher(null, "NTH");
+            assertTrue(next > 5000);
+            assertEquals(2, next % STRIDE);
+        });
+        ShardContext.run(null, ShardDirectory.MAIN_SHARD, () -> {
+            ShardIdentity.align(jdbcTemplate, 0, STRIDE, ID_BASE);
+            assertEquals(1, insertTeacher(null, "SCH") % STRIDE);
+        });
+    }
+
+    private long insertTeacher(Long id, String school) {
+        if (id != null) {
+            jdbcTemplate.update("INSERT INTO teacher (id, school_code) VALUES (?, ?)", id, school);
+            return id;
+        }
+        jdbcTemplate.update("INSERT INTO teacher (school_code) VALUES (?)", school);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM teacher", Long.class);
+    }
+
+    private int countTeachers(String shard) {
+        return ShardContext.call(null, shard,
+                () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM teacher", Integer.class));
+    }
+
+    private static DataSource database() {
+        DataSource database = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(database);
+        jdbc.execute("CREATE TABLE teacher (id BIGINT AUTO_INCREMENT PRIMARY KEY, school_code VARCHAR(16))");
+        jdbc.execute("CREATE TABLE students (id BIGINT AUTO_INCREMENT PRIMARY KEY, school_code VARCHAR(16), " +
+                "teacher_id BIGINT REFERENCES teacher (id))");
+        jdbc.execute("CREATE TABLE students_archive (id BIGINT PRIMARY KEY, school_code VARCHAR(16))");
+        jdbc.execute("CREATE TABLE student_id_blocks (scope VARCHAR(64) PRIMARY KEY, next_value BIGINT NOT NULL)");
+        return database;
+    }
+}
@@ -0,0 +1,54 @@
+package com.school.startup;
+
+import com.school.db.ReadWriteDataSourceConfig;
+import com.school.shard.ShardingDataSourceConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AotConditionCheckTest {
+
+    @Test
+    void passesWhenTheBuildMatchesTheProperties() {
+        assertDoesNotThrow(() -> check(new MockEnvironment(), new DefaultListableBeanFactory()));
+
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty(AotConditionCheck.REPLICA_URL, "jdbc:mysql://replica/school")
+                .withProperty(AotConditionCheck.SHARD_URL, "jdbc:mysql://shard/school");
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("readWrite", new RootBeanDefinition(ReadWriteDataSourceConfig.class));
+        beanFactory.registerBeanDefinition("sharding", new RootBeanDefinition(ShardingDataSourceConfig.class));
+        assertDoesNotThrow(() -> check(environment, beanFactory));
+    }
+
+    @Test
+    void failsWhenRoutingConfiguredAtRuntimeIsMissingFromTheBuild() {
+        MockEnvironment replicas = new MockEnvironment()
+                .withProperty(AotConditionCheck.REPLICA_URL, "jdbc:mysql://replica/school");
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> check(replicas, new DefaultListableBeanFactory()));
+        assertTrue(e.getMessage().startsWith("ReadWriteDataSourceConfig is not part of this build"));
+
+        MockEnvironment shards = new MockEnvironment()
+                .withProperty(AotConditionCheck.SHARD_URL, "jdbc:mysql://shard/school");
+        assertThrows(IllegalStateException.class, () -> check(shards, new DefaultListableBeanFactory()));
+    }
+
+    @Test
+    void failsWhenTheBuildRoutesButTheInstanceIsNotConfiguredTo() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("sharding", new RootBeanDefinition(ShardingDataSourceConfig.class));
+        assertThrows(IllegalStateException.class, () -> check(new MockEnvironment(), beanFactory));
+    }
+
+    private static void check(MockEnvironment environment, DefaultListableBeanFactory beanFactory) {
+        AotConditionCheck check = new AotConditionCheck();
+        check.setEnvironment(environment);
+        check.postProcessBeanFactory(beanFactory);
+    }
+}
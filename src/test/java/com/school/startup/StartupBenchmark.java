@@ -0,0 +1,123 @@
+package com.school.startup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Time from launching the application to its first served request (GET /teacher returning 200), for the default
+// boot and the fast-startup mode with and without the CDS archive. All runs share one file-backed H2 database;
+// the default runs go first and create its schema. Not a unit test; run it after `mvn -Pfast-startup package`,
+// which extracts the jar and records the CDS archive in target/fast-startup, e.g.
+//   java -cp target/test-classes:target/classes:$(cat cp.txt) com.school.startup.StartupBenchmark 5
+public class StartupBenchmark {
+
+    private static final int RUNS = 5;
+    private static final String JAR = "school-0.0.1-SNAPSHOT.jar";
+    private static final long TIMEOUT_MILLIS = 120_000;
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : RUNS;
+        Path dir = Path.of(args.length > 1 ? args[1] : "target/fast-startup").toAbsolutePath();
+        if (!Files.exists(dir.resolve(JAR))) {
+            throw new IllegalStateException(dir.resolve(JAR) + " not found; run `mvn -Pfast-startup package` first");
+        }
+        Path work = Files.createTempDirectory("startup-benchmark");
+
+        run("default", runs, dir, work, List.of(), List.of());
+        run("fast-startup (AOT, lazy, no ddl)", runs, dir, work,
+                List.of("-Dspring.aot.enabled=true"), List.of("--spring.profiles.active=fast-startup"));
+        run("fast-startup + CDS archive", runs, dir, work,
+                List.of("-XX:SharedArchiveFile=school.jsa", "-Xlog:cds=off", "-Dspring.aot.enabled=true"),
+                List.of("--spring.profiles.active=fast-startup"));
+    }
+
+    private static void run(String mode, int runs, Path dir, Path work, List<String> jvmArgs, List<String> appArgs)
+            throws Exception {
+        long[] millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            millis[i] = timeToFirstRequest(dir, work, jvmArgs, appArgs);
+        }
+        Arrays.sort(millis);
+        System.out.printf("%-34s time to first request: median %,d ms, best %,d ms (%d runs)%n",
+                mode, millis[runs / 2], millis[0], runs);
+    }
+
+    private static long timeToFirstRequest(Path dir, Path work, List<String> jvmArgs, List<String> appArgs)
+            throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        // H2 is a test dependency, so it is added after the jar (and the libraries its manifest lists)
+        command.add("-cp");
+        command.add(JAR + File.pathSeparator + h2Jar());
+        command.add("com.school.SchoolApplication");
+        command.add("--server.port=" + port);
+        command.add("--spring.datasource.url=jdbc:h2:file:" + work.resolve("db") + ";MODE=MySQL;DB_CLOSE_ON_EXIT=FALSE");
+        command.add("--spring.datasource.username=sa");
+        command.add("--spring.datasource.password=");
+        command.add("--spring.datasource.driver-class-name=org.h2.Driver");
+        command.add("--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect");
+        command.add("--spring.jpa.show-sql=false");
+        command.add("--school.roster.snapshot.path=" + work.resolve("roster.snapshot"));
+        command.addAll(appArgs);
+
+        ProcessBuilder builder = new ProcessBuilder(command).directory(dir.toFile())
+                .redirectErrorStream(true).redirectOutput(work.resolve("app.log").toFile());
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            URL url = new URL("http://localhost:" + port + "/teacher");
+            while (System.nanoTime() - start < TIMEOUT_MILLIS * 1_000_000) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited, see " + work.resolve("app.log"));
+                }
+                if (served(url)) {
+                    return (System.nanoTime() - start) / 1_000_000;
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("No request served within " + TIMEOUT_MILLIS + " ms");
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static boolean served(URL url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(100);
+            connection.setReadTimeout(10_000);
+            try {
+                return connection.getResponseCode() == 200;
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static String h2Jar() {
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (Path.of(entry).getFileName().toString().startsWith("h2-")) {
+                return entry;
+            }
+        }
+        throw new IllegalStateException("H2 is not on the classpath");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
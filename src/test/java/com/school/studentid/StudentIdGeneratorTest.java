@@ -0,0 +1,124 @@
+package com.school.studentid;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StudentIdGeneratorTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private StudentIdProperties properties;
+    private StudentIdGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName("student-ids")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE student_id_blocks (scope VARCHAR(64) PRIMARY KEY, next_value BIGINT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE students (student_id VARCHAR(32))");
+        jdbcTemplate.execute("CREATE TABLE students_archive (student_id VARCHAR(32))");
+
+        properties = new StudentIdProperties();
+        properties.setBlockSize(50);
+        properties.setGenerate(true);
+        generator = new StudentIdGenerator(properties, new StudentIdBlockAllocator(database));
+    }
+
+    @AfterEach
+    void tearDown() {
+        generator.shutdown();
+        database.shutdown();
+    }
+
+    @Test
+    void rendersConfiguredFormats() {
+        properties.getFormats().put("SCH.2027", "{school}{yy}{seq:6}");
+
+        assertEquals("SCH-2026-00001", generator.nextId(2026));
+        assertEquals("SCH-2026-00002", generator.nextId(2026));
+        assertEquals("SCH27000001", generator.nextId(2027));
+        assertThrows(IllegalArgumentException.class, () -> new StudentIdFormat("{school}-{year}"));
+    }
+
+    @Test
+    void concurrentIdsAreUniqueAndReservedInBlocks() throws Exception {
+        int threads = 8;
+        int idsPerThread = 1000;
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < idsPerThread; j++) {
+                        ids.add(generator.nextId(2026));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * idsPerThread, ids.size());
+        // 8000 ids in blocks of 50 is exactly 160 reservations, plus the one reserved ahead once half the last
+        // block was used, if it has been reserved by now
+        long next = jdbcTemplate.queryForObject(
+                "SELECT next_value FROM student_id_blocks WHERE scope = 'SCH.2026'", Long.class);
+        assertTrue(next == 8001L || next == 8051L, "next_value " + next);
+    }
+
+    @Test
+    void newScopesStartAboveStoredIds() {
+        properties.getFormats().put("SCH.2027", "{school}_{yy}{seq:6}");
+        jdbcTemplate.update("INSERT INTO students (student_id) VALUES ('SCH-2026-00041'), ('SCH-2026-9'), "
+                + "('SCH-2025-00900'), ('SCH-2026-X0100'), ('SCH_27000007'), ('SCHX27000900')");
+        jdbcTemplate.update("INSERT INTO students_archive (student_id) VALUES ('SCH-2026-00077')");
+
+        assertEquals("SCH-2026-00078", generator.nextId(2026));
+        assertEquals("SCH_27000008", generator.nextId(2027));
+        assertEquals("SCH-2024-00001", generator.nextId(2024));
+    }
+
+    @Test
+    void recognisesIdsOfGeneratedFormats() {
+        properties.getFormats().put("SCH.2027", "{school}{yy}{seq:6}");
+        properties.getFormats().put("OTH", "O{seq:3}");
+
+        assertTrue(generator.isGeneratedFormat("SCH", "SCH-2019-00012"));
+        assertTrue(generator.isGeneratedFormat("SCH", "SCH-2019-123456"));
+        assertTrue(generator.isGeneratedFormat("SCH", "SCH31000004"));
+        assertFalse(generator.isGeneratedFormat("SCH", "SCH-2019-12"));
+        assertFalse(generator.isGeneratedFormat("SCH", "SCH-19-00012"));
+        assertFalse(generator.isGeneratedFormat("SCH", "O123"));
+        assertFalse(generator.isGeneratedFormat("SCH", "STU-001"));
+        assertTrue(generator.isGeneratedFormat("OTH", "O123"));
+
+        properties.setGenerate(false);
+        assertFalse(generator.isGeneratedFormat("SCH", "SCH-2019-00012"));
+    }
+}